@@ -0,0 +1,90 @@
+package com.codingchallenge.toyrobot.benchmark;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.CommandPlace;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.Robot;
+import com.codingchallenge.toyrobot.service.AuditChannel;
+import com.codingchallenge.toyrobot.service.AuditLevel;
+import com.codingchallenge.toyrobot.service.RobotCommandService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the command audit on stateful robot turns, each thread turns its own robot so only the audit is shared.
+ * Compare the audit levels against OFF for the overhead on the command thread.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuditBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Audit {
+        @Param({"OFF", "WARN", "INFO"})
+        AuditLevel level;
+
+        @Param({"1", "100"})
+        int sampleRate;
+
+        RobotServices services;
+        RobotCommandService robotCommandService;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            RobotProperties robotProperties = new RobotProperties();
+            robotProperties.getAudit().getLevels().put(AuditChannel.ROBOT, level);
+            robotProperties.getAudit().setSampleRate(sampleRate);
+            services = new RobotServices(robotProperties);
+            robotCommandService = services.robotCommandService;
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException, IOException {
+            services.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRobot {
+        Robot robot;
+
+        @Setup(Level.Trial)
+        public void setup(Audit audit) {
+            robot = new Robot("robot" + Thread.currentThread().getId(), audit.services.tableRegistry.getDefaultTable());
+            audit.robotCommandService.placeRobot(robot, new CommandPlace(2, 2, DirectionEnum.NORTH));
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long turn1Thread(Audit audit, ThreadRobot robot) {
+        audit.robotCommandService.turnLeft(robot.robot);
+        return robot.robot.getState().get();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long turn4Threads(Audit audit, ThreadRobot robot) {
+        audit.robotCommandService.turnLeft(robot.robot);
+        return robot.robot.getState().get();
+    }
+
+}
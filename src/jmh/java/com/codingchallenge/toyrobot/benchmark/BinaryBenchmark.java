@@ -0,0 +1,123 @@
+package com.codingchallenge.toyrobot.benchmark;
+
+import com.codingchallenge.toyrobot.config.ApplicationExceptionHandler;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.IRobotLocation;
+import com.codingchallenge.toyrobot.domain.RobotLocationDTO;
+import com.codingchallenge.toyrobot.domain.RobotLocationMessageDTO;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.codingchallenge.toyrobot.service.BinaryProtocol;
+import com.codingchallenge.toyrobot.service.CommandProgram;
+import com.codingchallenge.toyrobot.service.CommandScanner;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports and commands of a batch on the 5x5 table in the binary encoding against JSON reports and text commands,
+ * the payload sizes of each are printed once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryBenchmark {
+
+    private static final DirectionEnum[] DIRECTIONS = DirectionEnum.values();
+
+    @Param({"1000"})
+    int count;
+
+    ObjectMapper objectMapper;
+    long[] states;
+    String textCommands;
+    byte[] binaryCommands;
+    CommandProgram program;
+
+    @Setup(Level.Trial)
+    public void setup() throws JsonProcessingException {
+        objectMapper = new ObjectMapper();
+        Random random = new Random(19);
+        states = new long[count];
+        for (int i = 0; i < count; ++i) {
+            states[i] = i % 10 == 0 ? RobotState.EMPTY : RobotState.of(random.nextInt(5), random.nextInt(5), random.nextInt(4));
+        }
+        StringBuilder text = new StringBuilder();
+        ByteBuffer binary = ByteBuffer.allocate(count * BinaryProtocol.PLACE_BYTES);
+        for (int i = 0; i < count; ++i) {
+            int command = random.nextInt(8);
+            if (command == 0) {
+                int x = random.nextInt(5);
+                int y = random.nextInt(5);
+                DirectionEnum direction = DIRECTIONS[random.nextInt(4)];
+                text.append("PLACE ").append(x).append(',').append(y).append(',').append(direction).append('\n');
+                binary.put((byte) 0).putInt(x).putInt(y).put((byte) direction.ordinal());
+            } else {
+                // MOVE most often, then LEFT, RIGHT and REPORT
+                int op = Math.min(command, 4);
+                text.append(op == 1 ? "MOVE" : op == 2 ? "LEFT" : op == 3 ? "RIGHT" : "REPORT").append('\n');
+                binary.put((byte) op);
+            }
+        }
+        textCommands = text.toString();
+        binaryCommands = new byte[binary.position()];
+        ((Buffer) binary).flip();
+        binary.get(binaryCommands);
+        program = new CommandProgram();
+        System.out.printf("%nReports: %d bytes JSON, %d bytes binary. Commands: %d bytes text, %d bytes binary%n",
+                jsonReports().length, binaryReports().length, textCommands.length(), binaryCommands.length);
+    }
+
+    @Benchmark
+    public byte[] jsonReports() throws JsonProcessingException {
+        List<IRobotLocation> reports = new ArrayList<>(count);
+        for (long state : states) {
+            reports.add(RobotState.isPlaced(state) ?
+                    new RobotLocationDTO(RobotState.x(state), RobotState.y(state), RobotState.direction(state)) :
+                    new RobotLocationMessageDTO(ApplicationExceptionHandler.MISSING_ROBOT_MESSAGE));
+        }
+        return objectMapper.writeValueAsBytes(reports);
+    }
+
+    @Benchmark
+    public byte[] binaryReports() {
+        return BinaryProtocol.encodeReports(states, count);
+    }
+
+    @Benchmark
+    public int textCommands() {
+        program.clear();
+        CommandScanner scanner = new CommandScanner(program);
+        scanner.feed(textCommands);
+        scanner.finish();
+        return program.length();
+    }
+
+    @Benchmark
+    public int binaryCommands() {
+        program.clear();
+        BinaryProtocol.decodeCommands(binaryCommands, 0, binaryCommands.length, program);
+        return program.length();
+    }
+
+}
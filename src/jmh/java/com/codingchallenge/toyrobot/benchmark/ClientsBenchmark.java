@@ -0,0 +1,114 @@
+package com.codingchallenge.toyrobot.benchmark;
+
+import com.codingchallenge.toyrobot.ToyRobotApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many clients each driving its own stateful robot over keep-alive connections, served by the Tomcat thread pool
+ * or by virtual threads (Java 21). Sample time mode reports the latency percentiles, the server thread count and
+ * heap in use per client are printed at the end of the trial.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(256)
+public class ClientsBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Server {
+        @Param({"platform", "virtual"})
+        String threads;
+
+        @Param({"200"})
+        int maxThreads;
+
+        ConfigurableApplicationContext context;
+        String baseUrl;
+        int peakThreads;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            context = SpringApplication.run(ToyRobotApplication.class, "--server.port=0",
+                    "--robot.server.threads=" + threads, "--server.tomcat.threads.max=" + maxThreads,
+                    "--robot.audit.levels.robot=off");
+            baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort()
+                    + "/rest/robot/";
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+            MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+            System.gc();
+            System.out.printf("%n[threads=%s] peak JVM threads %d, heap in use %d KB%n", threads,
+                    threadBean.getPeakThreadCount(), memoryBean.getHeapMemoryUsage().getUsed() >> 10);
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        String robotUrl;
+        final byte[] buffer = new byte[1024];
+
+        @Setup(Level.Trial)
+        public void setup(Server server) throws IOException {
+            robotUrl = server.baseUrl + "client" + Thread.currentThread().getId();
+            request("POST", robotUrl + "/place/x/2/y/2/direction/NORTH");
+        }
+
+        int request(String method, String url) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod(method);
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException(method + " " + url + " failed with " + connection.getResponseCode());
+            }
+            int length = 0;
+            // Reading the whole response returns the connection to the keep-alive cache
+            try (InputStream in = connection.getInputStream()) {
+                for (int read; (read = in.read(buffer)) > 0; ) {
+                    length += read;
+                }
+            }
+            return length;
+        }
+    }
+
+    @Benchmark
+    public int turn(Client client) throws IOException {
+        return client.request("PUT", client.robotUrl + "/left");
+    }
+
+    @Benchmark
+    public int report(Client client) throws IOException {
+        return client.request("GET", client.robotUrl + "/report");
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.codingchallenge.toyrobot.benchmark;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.CommandPlace;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.Robot;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.service.RobotCommandService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of robots patrolling a shared table with collisions, each thread drives its own robot and turns right
+ * whenever its move is blocked by the edge or another robot.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SharedTable {
+        // 16 is crowded at 64 threads, 1024 is sparse
+        @Param({"16", "1024"})
+        int size;
+
+        RobotCommandService robotCommandService;
+        RobotServices services;
+        Table table;
+        final AtomicInteger robots = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setup() {
+            services = new RobotServices(new RobotProperties());
+            robotCommandService = services.robotCommandService;
+            table = services.tableRegistry.createSharedTable("benchmark", size, size, true);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException, IOException {
+            services.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRobot {
+        Robot robot;
+
+        @Setup(Level.Trial)
+        public void setup(SharedTable shared) {
+            int index = shared.robots.getAndIncrement();
+            robot = new Robot("robot" + index, shared.table);
+            // Every other row so each robot starts on its own location
+            shared.robotCommandService.placeRobot(robot,
+                    new CommandPlace(index % shared.size, index / shared.size * 2, DirectionEnum.NORTH));
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long patrol1Thread(SharedTable shared, ThreadRobot robot) {
+        return patrol(shared, robot);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long patrol4Threads(SharedTable shared, ThreadRobot robot) {
+        return patrol(shared, robot);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public long patrol16Threads(SharedTable shared, ThreadRobot robot) {
+        return patrol(shared, robot);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public long patrol64Threads(SharedTable shared, ThreadRobot robot) {
+        return patrol(shared, robot);
+    }
+
+    private static long patrol(SharedTable shared, ThreadRobot threadRobot) {
+        Robot robot = threadRobot.robot;
+        long before = robot.getState().get();
+        shared.robotCommandService.moveForward(robot);
+        if (robot.getState().get() == before) {
+            shared.robotCommandService.turnRight(robot);
+        }
+        return robot.getState().get();
+    }
+
+}
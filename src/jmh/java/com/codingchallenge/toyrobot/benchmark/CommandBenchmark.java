@@ -0,0 +1,98 @@
+package com.codingchallenge.toyrobot.benchmark;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.IRobotLocation;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.service.CommandProgram;
+import com.codingchallenge.toyrobot.service.CommandScanner;
+import com.codingchallenge.toyrobot.service.RobotCommandService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cli batch scripts of increasing size, parsing alone (the scanner compiling the program as the batch endpoints do)
+ * and the full batch from script to report DTOs. With the batch cache every batch after the first is a cache hit, up
+ * to the cache's command limit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandBenchmark {
+
+    private static final String[] PATROL = {"MOVE", "MOVE", "LEFT", "MOVE", "RIGHT", "REPORT"};
+
+    @Param({"10", "1000", "100000"})
+    int commands;
+
+    @Param({"false", "true"})
+    boolean batchCache;
+
+    String script;
+    Table table;
+    RobotCommandService robotCommandService;
+    RobotServices services;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        RobotProperties robotProperties = new RobotProperties();
+        robotProperties.getBatchCache().setEnabled(batchCache);
+        services = new RobotServices(robotProperties);
+        robotCommandService = services.robotCommandService;
+        table = services.tableRegistry.getDefaultTable();
+        script = script(commands);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException, IOException {
+        services.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public CommandProgram parseCommands() {
+        CommandProgram program = new CommandProgram();
+        CommandScanner scanner = new CommandScanner(program);
+        scanner.feed(script);
+        scanner.finish();
+        return program;
+    }
+
+    @Benchmark
+    public List<IRobotLocation> executeBatchCommandsForRobot() {
+        return robotCommandService.executeBatchCommandsForRobot(script, table);
+    }
+
+    /**
+     * Script of a robot patrolling the table which reports every few commands
+     *
+     * @param commands
+     * @return
+     */
+    static String script(int commands) {
+        StringBuilder script = new StringBuilder("PLACE 0,0,NORTH");
+        for (int i = 1; i < commands; ++i) {
+            script.append(' ').append(PATROL[i % PATROL.length]);
+        }
+        return script.toString();
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.codingchallenge.toyrobot.benchmark;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.CommandPlace;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.Fleet;
+import com.codingchallenge.toyrobot.domain.Robot;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.domain.TurnEnum;
+import com.codingchallenge.toyrobot.service.FleetService;
+import com.codingchallenge.toyrobot.service.ReportFragments;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A command broadcast to every robot of a 10^7 robot fleet on a 1000x1000 table, against the same command sent to
+ * each of 10^6 stateful robots one at a time (without the HTTP round trip each would need).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class FleetBenchmark {
+
+    private static final int SIZE = 1000;
+
+    @Param({"10000000"})
+    int robots;
+
+    @Param({"true"})
+    boolean parallel;
+
+    RobotServices services;
+    FleetService fleetService;
+    Fleet fleet;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        RobotProperties properties = new RobotProperties();
+        properties.getParallel().setEnabled(parallel);
+        properties.getFleet().setMaxRobots(robots);
+        services = new RobotServices(properties);
+        fleetService = new FleetService(services.audit, services.metrics, services.batchExecutor,
+                new ReportFragments(properties), properties);
+        fleet = fleetService.createFleet("benchmark", new Table(null, SIZE, SIZE, false), robots, 1);
+        Random random = new Random(21);
+        for (int i = 0; i < robots; ++i) {
+            fleet.place(i, i + 1, random.nextInt(SIZE), random.nextInt(SIZE), DirectionEnum.values()[random.nextInt(4)]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException, IOException {
+        services.close();
+    }
+
+    @Benchmark
+    public Fleet broadcastMove() {
+        fleetService.move(fleet, null);
+        return fleet;
+    }
+
+    @Benchmark
+    public Fleet broadcastTurn() {
+        fleetService.turn(fleet, null, TurnEnum.LEFT);
+        return fleet;
+    }
+
+    @Benchmark
+    public Robot[] robotMoves(Robots robots) {
+        for (Robot robot : robots.robots) {
+            robots.services.robotCommandService.moveForward(robot);
+        }
+        return robots.robots;
+    }
+
+    /**
+     * Stateful robots each moved by its own command
+     */
+    @State(Scope.Benchmark)
+    public static class Robots {
+
+        @Param({"1000000"})
+        int statefulRobots;
+
+        RobotServices services;
+        Robot[] robots;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            services = new RobotServices(new RobotProperties());
+            Table table = new Table(null, SIZE, SIZE, false);
+            Random random = new Random(21);
+            robots = new Robot[statefulRobots];
+            for (int i = 0; i < statefulRobots; ++i) {
+                robots[i] = new Robot(Integer.toString(i), table);
+                services.robotCommandService.placeRobot(robots[i], new CommandPlace(random.nextInt(SIZE),
+                        random.nextInt(SIZE), DirectionEnum.values()[random.nextInt(4)]));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException, IOException {
+            services.close();
+        }
+    }
+
+}
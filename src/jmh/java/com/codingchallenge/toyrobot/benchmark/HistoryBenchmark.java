@@ -0,0 +1,85 @@
+package com.codingchallenge.toyrobot.benchmark;
+
+import com.codingchallenge.toyrobot.domain.RobotHistory;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency of point in time queries on a robot history of 10^7 commands, a random walk on a 1000x1000 table with
+ * commands 0 to 10 milliseconds apart. The checkpoint interval bounds the entries replayed per query.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class HistoryBenchmark {
+
+    private static final int COMMANDS = 10_000_000;
+    private static final int SIZE = 1000;
+    private static final long CREATED = 1_600_000_000_000L;
+
+    @State(Scope.Benchmark)
+    public static class History {
+        @Param({"256", "1024", "4096"})
+        int checkpointInterval;
+
+        RobotHistory history;
+        long lastTime;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            SplittableRandom random = new SplittableRandom(13);
+            history = new RobotHistory(checkpointInterval, CREATED);
+            AtomicLong state = new AtomicLong(RobotState.of(SIZE / 2, SIZE / 2, 0));
+            long time = CREATED;
+            for (int command = 0; command < COMMANDS; ++command) {
+                long current = state.get();
+                if (random.nextInt(3) == 0) {
+                    state.set(RobotState.turn(current, random.nextInt(2)));
+                } else {
+                    int direction = RobotState.directionOrdinal(current);
+                    int x = RobotState.x(current) + RobotState.dx(direction);
+                    int y = RobotState.y(current) + RobotState.dy(direction);
+                    if (x >= 0 && x < SIZE && y >= 0 && y < SIZE) {
+                        state.set(RobotState.of(x, y, direction));
+                    }
+                }
+                time += random.nextInt(11);
+                history.record(state, time);
+            }
+            lastTime = time;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Query {
+        SplittableRandom random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public RobotHistory.Point atCommand(History history, Query query) {
+        return history.history.atCommand(query.random.nextLong(COMMANDS + 1L));
+    }
+
+    @Benchmark
+    public RobotHistory.Point atTime(History history, Query query) {
+        return history.history.atTime(CREATED + query.random.nextLong(history.lastTime - CREATED + 1));
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.codingchallenge.toyrobot.benchmark;
+
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.service.CommandInterpreter;
+import com.codingchallenge.toyrobot.service.CommandOptimizer;
+import com.codingchallenge.toyrobot.service.CommandProgram;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiled programs of long move and turn runs, interpreted as compiled, folded and interpreted, and interpreting an
+ * already folded program.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OptimizerBenchmark {
+
+    @Param({"1000", "1000000"})
+    int commands;
+
+    Table table;
+    CommandProgram program;
+    CommandProgram optimized;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        table = new Table(null, 1000, 1000, false);
+        program = new CommandProgram();
+        program.place(0, 0, DirectionEnum.NORTH);
+        // Runs of 100 moves and 3 turns
+        for (int i = 1; i < commands; ++i) {
+            if (i % 103 < 100) {
+                program.move();
+            } else {
+                program.right();
+            }
+            if (i % 10_000 == 0) {
+                program.report();
+            }
+        }
+        program.report();
+        optimized = new CommandProgram();
+        CommandOptimizer.optimize(program, table, optimized);
+    }
+
+    @Benchmark
+    public long interpret() {
+        return CommandInterpreter.execute(program, RobotState.EMPTY, table, state -> {
+        });
+    }
+
+    @Benchmark
+    public long optimizeAndInterpret() {
+        CommandProgram folded = new CommandProgram();
+        CommandOptimizer.optimize(program, table, folded);
+        return CommandInterpreter.execute(folded, RobotState.EMPTY, table, state -> {
+        });
+    }
+
+    @Benchmark
+    public long interpretOptimized() {
+        return CommandInterpreter.execute(optimized, RobotState.EMPTY, table, state -> {
+        });
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.codingchallenge.toyrobot.benchmark;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.IRobotLocation;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.service.RobotCommandService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cli batch of 10^6 commands placing the robot every 1000 commands, and 64 batches of 10^4 commands in one request,
+ * run sequentially and on the fork join pool. The batch cache is disabled so every batch runs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelBenchmark {
+
+    private static final int COMMANDS = 1_000_000;
+    private static final int BATCHES = 64;
+
+    @Param({"false", "true"})
+    boolean parallel;
+
+    String script;
+    List<String> scripts;
+    Table table;
+    RobotCommandService robotCommandService;
+    RobotServices services;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        RobotProperties robotProperties = new RobotProperties();
+        robotProperties.getBatchCache().setEnabled(false);
+        robotProperties.getParallel().setEnabled(parallel);
+        services = new RobotServices(robotProperties);
+        robotCommandService = services.robotCommandService;
+        table = services.tableRegistry.getDefaultTable();
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < COMMANDS; i += 1000) {
+            builder.append(CommandBenchmark.script(1000)).append(' ');
+        }
+        script = builder.toString();
+        scripts = new ArrayList<>();
+        for (int i = 0; i < BATCHES; ++i) {
+            scripts.add(CommandBenchmark.script(COMMANDS / 100));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException, IOException {
+        services.close();
+    }
+
+    @Benchmark
+    public List<IRobotLocation> executeBatchCommandsForRobot() {
+        return robotCommandService.executeBatchCommandsForRobot(script, table);
+    }
+
+    @Benchmark
+    public List<List<IRobotLocation>> executeBatchesForRobots() {
+        return robotCommandService.executeBatchesForRobots(scripts, table);
+    }
+
+}
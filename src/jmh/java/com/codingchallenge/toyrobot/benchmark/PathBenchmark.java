@@ -0,0 +1,88 @@
+package com.codingchallenge.toyrobot.benchmark;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.ObstacleMap;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.service.PathPlanner;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shortest paths to one target across a table with obstacles on a tenth of its cells, from random starts, with the
+ * target's distance field cached and searched for every path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class PathBenchmark {
+
+    private static final int STARTS = 1024;
+
+    @Param({"100", "1000"})
+    int size;
+
+    @Param({"true", "false"})
+    boolean cached;
+
+    PathPlanner planner;
+    Table table;
+    long target;
+    long[] starts;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        RobotProperties properties = new RobotProperties();
+        if (!cached) {
+            properties.getPath().setCacheStates(0);
+        }
+        planner = new PathPlanner(properties, new SimpleMeterRegistry());
+        Random random = new Random(23);
+        ObstacleMap obstacles = ObstacleMap.allocate(size, size);
+        for (int i = size * size / 10; i > 0; --i) {
+            obstacles.block(random.nextInt(size), random.nextInt(size));
+        }
+        table = new Table(null, size, size, false);
+        table.setObstacles(obstacles);
+        target = open(random);
+        starts = new long[STARTS];
+        for (int i = 0; i < STARTS; ++i) {
+            starts[i] = open(random);
+        }
+    }
+
+    @Benchmark
+    public String path() {
+        return planner.planScript(table, starts[next++ & (STARTS - 1)], target);
+    }
+
+    private long open(Random random) {
+        while (true) {
+            int x = random.nextInt(size);
+            int y = random.nextInt(size);
+            if (table.isOpen(x, y)) {
+                return RobotState.of(x, y, DirectionEnum.values()[random.nextInt(4)]);
+            }
+        }
+    }
+
+}
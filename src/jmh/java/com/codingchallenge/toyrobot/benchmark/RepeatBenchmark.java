@@ -0,0 +1,78 @@
+package com.codingchallenge.toyrobot.benchmark;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.IRobotLocation;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.service.RobotCommandService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A block of a move, a turn and a report walking to the edge of a 1000 x 1000 table and circling in its corner, as a
+ * REPEAT block and expanded into its iterations. The batch cache is disabled so every batch runs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class RepeatBenchmark {
+
+    private static final String BLOCK = "MOVE LEFT MOVE RIGHT REPORT";
+
+    @Param({"10000", "1000000"})
+    int iterations;
+
+    String repeated;
+    String expanded;
+    Table table;
+    RobotCommandService robotCommandService;
+    RobotServices services;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        RobotProperties robotProperties = new RobotProperties();
+        robotProperties.getBatchCache().setEnabled(false);
+        services = new RobotServices(robotProperties);
+        robotCommandService = services.robotCommandService;
+        table = services.tableRegistry.privateTable(1000, 1000);
+        repeated = "PLACE 0,0,EAST REPEAT " + iterations + " { " + BLOCK + " }";
+        StringBuilder builder = new StringBuilder("PLACE 0,0,EAST");
+        for (int i = 0; i < iterations; ++i) {
+            builder.append(' ').append(BLOCK);
+        }
+        expanded = builder.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException, IOException {
+        services.close();
+    }
+
+    @Benchmark
+    public List<IRobotLocation> repeated() {
+        return robotCommandService.executeBatchCommandsForRobot(repeated, table);
+    }
+
+    @Benchmark
+    public List<IRobotLocation> expanded() {
+        return robotCommandService.executeBatchCommandsForRobot(expanded, table);
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.codingchallenge.toyrobot.benchmark;
+
+import com.codingchallenge.toyrobot.config.ApplicationExceptionHandler;
+import com.codingchallenge.toyrobot.config.ReportJsonModule;
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.IRobotLocation;
+import com.codingchallenge.toyrobot.domain.RobotLocationDTO;
+import com.codingchallenge.toyrobot.domain.RobotLocationMessageDTO;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.codingchallenge.toyrobot.service.ReportFragments;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A REPORT converted to its DTO and written as JSON, on the default 5x5 table where reports are interned and on a
+ * 1000x1000 table where they are encoded field by field. Run with the gc profiler for the allocation per report.
+ * <ul>
+ * <li>reflective: a new DTO written by Jackson's reflective serializer, as before interning</li>
+ * <li>mapped: the DTO written through the ObjectMapper with the {@link ReportJsonModule}</li>
+ * <li>fragments: the DTO written straight into the generator, as the stream endpoint writes reports</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReportBenchmark {
+
+    private static final int STATES = 1024;
+
+    @Param({"5", "1000"})
+    int size;
+
+    ReportFragments reportFragments;
+    JsonGenerator reflective;
+    JsonGenerator mapped;
+    long[] states;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        reportFragments = new ReportFragments(new RobotProperties());
+        OutputStream discard = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+        reflective = new ObjectMapper().getFactory().createGenerator(discard);
+        mapped = new ObjectMapper().registerModule(new ReportJsonModule(reportFragments)).getFactory()
+                .createGenerator(discard);
+        Random random = new Random(20);
+        states = new long[STATES];
+        for (int i = 0; i < STATES; ++i) {
+            states[i] = i % 16 == 0 ? RobotState.EMPTY :
+                    RobotState.of(random.nextInt(size), random.nextInt(size), random.nextInt(4));
+        }
+    }
+
+    @Benchmark
+    public void reflective() throws IOException {
+        long state = nextState();
+        reflective.writeObject(RobotState.isPlaced(state) ?
+                new RobotLocationDTO(RobotState.x(state), RobotState.y(state), RobotState.direction(state)) :
+                new RobotLocationMessageDTO(ApplicationExceptionHandler.MISSING_ROBOT_MESSAGE));
+    }
+
+    @Benchmark
+    public void mapped() throws IOException {
+        mapped.writeObject(reportFragments.location(nextState()));
+    }
+
+    @Benchmark
+    public void fragments() throws IOException {
+        IRobotLocation location = reportFragments.location(nextState());
+        reportFragments.write(location, mapped);
+    }
+
+    private long nextState() {
+        return states[next++ & (STATES - 1)];
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.codingchallenge.toyrobot.benchmark;
+
+import com.codingchallenge.toyrobot.ToyRobotApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP round trips against the running application on a random local port, a stateful robot command and cli batches
+ * of increasing size through the batch and stream endpoints.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RestBenchmark {
+
+    @Param({"10", "10000"})
+    int commands;
+
+    ConfigurableApplicationContext context;
+    String baseUrl;
+    byte[] script;
+    final byte[] buffer = new byte[8192];
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        context = SpringApplication.run(ToyRobotApplication.class, "--server.port=0");
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/rest/robot";
+        script = CommandBenchmark.script(commands).getBytes(StandardCharsets.US_ASCII);
+        request("POST", "/benchmark/place/x/2/y/2/direction/NORTH", null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int turn() throws IOException {
+        return request("PUT", "/benchmark/left", null);
+    }
+
+    @Benchmark
+    public int batch() throws IOException {
+        return request("POST", "/cli/batch", script);
+    }
+
+    @Benchmark
+    public int stream() throws IOException {
+        return request("POST", "/cli/stream", script);
+    }
+
+    /**
+     * Send a request and read the whole response
+     *
+     * @return number of response bytes
+     */
+    private int request(String method, String path, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "text/plain");
+            connection.setFixedLengthStreamingMode(body.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+        }
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            throw new IOException(method + " " + path + " failed with " + connection.getResponseCode());
+        }
+        int length = 0;
+        try (InputStream in = connection.getInputStream()) {
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                length += read;
+            }
+        }
+        return length;
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.codingchallenge.toyrobot.benchmark;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.service.BatchExecutor;
+import com.codingchallenge.toyrobot.service.BatchResultCache;
+import com.codingchallenge.toyrobot.service.CommandAudit;
+import com.codingchallenge.toyrobot.service.RobotCommandService;
+import com.codingchallenge.toyrobot.service.RobotJournal;
+import com.codingchallenge.toyrobot.service.ReportFragments;
+import com.codingchallenge.toyrobot.service.RobotMetrics;
+import com.codingchallenge.toyrobot.service.RobotRegistry;
+import com.codingchallenge.toyrobot.service.TableRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+
+/**
+ * Robot services wired without the application context, as the application wires them
+ */
+class RobotServices {
+
+    final RobotJournal journal;
+    final TableRegistry tableRegistry;
+    final RobotRegistry robotRegistry;
+    final CommandAudit audit;
+    final RobotMetrics metrics;
+    final BatchExecutor batchExecutor;
+    final RobotCommandService robotCommandService;
+
+    RobotServices(RobotProperties robotProperties) {
+        journal = new RobotJournal(robotProperties);
+        tableRegistry = new TableRegistry(robotProperties, journal);
+        robotRegistry = new RobotRegistry(tableRegistry, journal, robotProperties);
+        audit = new CommandAudit(robotProperties);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        metrics = new RobotMetrics(meterRegistry, robotRegistry, audit, robotProperties);
+        batchExecutor = new BatchExecutor(robotProperties);
+        robotCommandService = new RobotCommandService(tableRegistry, audit, metrics, journal,
+                new BatchResultCache(robotProperties, meterRegistry), batchExecutor,
+                new ReportFragments(robotProperties));
+    }
+
+    void close() throws InterruptedException, IOException {
+        journal.close();
+        audit.close();
+        batchExecutor.close();
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.codingchallenge.toyrobot.benchmark;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.BehaviourEnum;
+import com.codingchallenge.toyrobot.domain.CommandPlace;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.Robot;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.service.AuditChannel;
+import com.codingchallenge.toyrobot.service.AuditLevel;
+import com.codingchallenge.toyrobot.service.SimulationScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A simulation tick of 10^6 robots on their own 1000x1000 tables, each applying one command of its behaviour, the
+ * robot steps a second are the robots divided by the tick time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class SimulationBenchmark {
+
+    private static final int SIZE = 1000;
+
+    @Param({"1000000"})
+    int robots;
+
+    @Param({"RANDOM_WALK", "PATROL"})
+    BehaviourEnum behaviour;
+
+    RobotServices services;
+    SimulationScheduler simulation;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        RobotProperties properties = new RobotProperties();
+        properties.getAudit().getLevels().put(AuditChannel.SIMULATION, AuditLevel.OFF);
+        // Ticks are only advanced by the benchmark
+        properties.getSimulation().setTickRate(0);
+        services = new RobotServices(properties);
+        simulation = new SimulationScheduler(services.robotCommandService, services.batchExecutor, services.metrics,
+                properties);
+        Random random = new Random(22);
+        for (int i = 0; i < robots; ++i) {
+            Robot robot = new Robot(Integer.toString(i), new Table(null, SIZE, SIZE, false));
+            services.robotCommandService.placeRobot(robot, new CommandPlace(random.nextInt(SIZE), random.nextInt(SIZE),
+                    DirectionEnum.values()[random.nextInt(4)]));
+            simulation.runBehaviour(robot, behaviour);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException, IOException {
+        simulation.close();
+        services.close();
+    }
+
+    @Benchmark
+    public long tick() {
+        return simulation.tick();
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.codingchallenge.toyrobot.benchmark;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.CommandPlace;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.IRobotLocation;
+import com.codingchallenge.toyrobot.domain.Robot;
+import com.codingchallenge.toyrobot.domain.RobotLocation;
+import com.codingchallenge.toyrobot.service.RobotCommandService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One stateful robot driven by one or many threads, every thread contends on the same robot state. The DTO
+ * benchmark measures the allocation of a report, run with the gc profiler for the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatefulRobotBenchmark {
+
+    RobotCommandService robotCommandService;
+    RobotServices services;
+    Robot robot;
+    RobotLocation location;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        services = new RobotServices(new RobotProperties());
+        robotCommandService = services.robotCommandService;
+        robot = new Robot("benchmark", services.tableRegistry.getDefaultTable());
+        robotCommandService.placeRobot(robot, new CommandPlace(2, 2, DirectionEnum.NORTH));
+        location = robotCommandService.reportLocation(robot);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException, IOException {
+        services.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long moveForward1Thread() {
+        return moveForward();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long moveForward4Threads() {
+        return moveForward();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long turn1Thread() {
+        return turn();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long turn4Threads() {
+        return turn();
+    }
+
+    @Benchmark
+    public IRobotLocation convertLocationToDTO() {
+        return robotCommandService.convertLocationToDTO(location);
+    }
+
+    private long moveForward() {
+        // Turn at the edge so moves keep changing the state
+        long before = robot.getState().get();
+        robotCommandService.moveForward(robot);
+        if (robot.getState().get() == before) {
+            robotCommandService.turnRight(robot);
+        }
+        return robot.getState().get();
+    }
+
+    private long turn() {
+        robotCommandService.turnLeft(robot);
+        return robot.getState().get();
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.codingchallenge.toyrobot.benchmark;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.domain.TrajectoryDTO;
+import com.codingchallenge.toyrobot.service.RobotCommandService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A random walk of 10^6 commands, mostly moves, across a 10^6 x 10^6 table, analysed against streamed with its reports
+ * dropped. Run with {@code -prof gc} for the allocation of each.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrajectoryBenchmark {
+
+    private static final int COMMANDS = 1_000_000;
+    private static final int SIZE = 1_000_000;
+    private static final String[] WALK = {"MOVE", "MOVE", "MOVE", "MOVE", "MOVE", "LEFT", "RIGHT", "REPORT"};
+
+    byte[] script;
+    Table table;
+    RobotCommandService robotCommandService;
+    RobotServices services;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        RobotProperties robotProperties = new RobotProperties();
+        robotProperties.getBatchCache().setEnabled(false);
+        services = new RobotServices(robotProperties);
+        robotCommandService = services.robotCommandService;
+        table = services.tableRegistry.privateTable(SIZE, SIZE);
+        Random random = new Random(24);
+        StringBuilder builder = new StringBuilder("PLACE ").append(SIZE / 2).append(',').append(SIZE / 2).append(",NORTH");
+        for (int i = 1; i < COMMANDS; ++i) {
+            builder.append(' ').append(WALK[random.nextInt(WALK.length)]);
+        }
+        script = builder.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException, IOException {
+        services.close();
+    }
+
+    @Benchmark
+    public TrajectoryDTO analyse() throws IOException {
+        return robotCommandService.analyseBatchCommandsForRobot(new ByteArrayInputStream(script), table);
+    }
+
+    @Benchmark
+    public void stream(Blackhole blackhole) throws IOException {
+        robotCommandService.streamBatchCommandsForRobot(new ByteArrayInputStream(script), table, blackhole::consume, () -> { });
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.codingchallenge.toyrobot.benchmark;
+
+import com.codingchallenge.toyrobot.ToyRobotApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip of a message of robot commands over the WebSocket command channel, one command per message against
+ * many pipelined in a single message. Divide by the commands per message for the cost per command, compare with
+ * {@link RestBenchmark#turn()} for a command per HTTP request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WebSocketBenchmark {
+
+    @Param({"1", "100"})
+    int commandsPerMessage;
+
+    ConfigurableApplicationContext context;
+    WebSocketSession session;
+    TextMessage message;
+    final BlockingQueue<String> acks = new LinkedBlockingQueue<>();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        context = SpringApplication.run(ToyRobotApplication.class, "--server.port=0", "--robot.audit.levels.robot=off");
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        session = new StandardWebSocketClient().doHandshake(new TextWebSocketHandler() {
+            @Override
+            protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+                acks.add(message.getPayload());
+            }
+        }, "ws://localhost:" + port + "/rest/robot/benchmark/ws").get(10, TimeUnit.SECONDS);
+        session.sendMessage(new TextMessage("PLACE 2,2,NORTH"));
+        acks.take();
+        StringBuilder commands = new StringBuilder();
+        for (int i = 1; i < commandsPerMessage; ++i) {
+            commands.append("LEFT ");
+        }
+        message = new TextMessage(commands.append("REPORT").toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        session.close();
+        context.close();
+    }
+
+    @Benchmark
+    public String commands() throws IOException, InterruptedException {
+        session.sendMessage(message);
+        return acks.take();
+    }
+
+}
@@ -1,7 +1,9 @@
 package com.codingchallenge.toyrobot;
 
+import com.codingchallenge.toyrobot.config.RobotProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import springfox.documentation.builders.ApiInfoBuilder;
 import springfox.documentation.service.ApiInfo;
@@ -13,6 +15,7 @@ import static springfox.documentation.builders.PathSelectors.regex;
 
 @SpringBootApplication
 @EnableSwagger2
+@EnableConfigurationProperties(RobotProperties.class)
 public class ToyRobotApplication {
 
     public static void main(String[] args) {
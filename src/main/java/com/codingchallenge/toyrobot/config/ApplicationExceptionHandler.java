@@ -1,21 +1,51 @@
 package com.codingchallenge.toyrobot.config;
 
+import com.codingchallenge.toyrobot.controller.FleetNotFoundException;
+import com.codingchallenge.toyrobot.controller.PathNotFoundException;
 import com.codingchallenge.toyrobot.controller.RobotNotFoundException;
+import com.codingchallenge.toyrobot.controller.TableNotFoundException;
 import com.codingchallenge.toyrobot.controller.UnknownCommandException;
+import com.codingchallenge.toyrobot.domain.RobotLocationMessageDTO;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+
 @ControllerAdvice
 public class ApplicationExceptionHandler {
     public static final String MISSING_ROBOT_MESSAGE = "MISSING ROBOT";
+    public static final String MISSING_HISTORY_MESSAGE = "HISTORY NOT RECORDED";
 
     @ExceptionHandler(RobotNotFoundException.class)
     public ResponseEntity<Object> handleException(RobotNotFoundException e) {
         return new ResponseEntity<>(e.getLocationDTO(), HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(TableNotFoundException.class)
+    public ResponseEntity<Object> handleTableNotFoundException(TableNotFoundException e) {
+        return new ResponseEntity<>(new RobotLocationMessageDTO(e.getMessage()), HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(FleetNotFoundException.class)
+    public ResponseEntity<Object> handleFleetNotFoundException(FleetNotFoundException e) {
+        return new ResponseEntity<>(new RobotLocationMessageDTO(e.getMessage()), HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(PathNotFoundException.class)
+    public ResponseEntity<Object> handlePathNotFoundException(PathNotFoundException e) {
+        // Paths are plain text scripts, so is the error
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(NoSuchFileException.class)
+    public ResponseEntity<Object> handleNoSuchFileException(NoSuchFileException e) {
+        return new ResponseEntity<>(new RobotLocationMessageDTO(String.format("File [%s] not found",
+                Paths.get(e.getFile()).getFileName())), HttpStatus.NOT_FOUND);
+    }
+
     @ExceptionHandler(UnknownCommandException.class)
     public ResponseEntity<Object> handleUnknownCommandException(UnknownCommandException e) {
         return new ResponseEntity<>(e.getInfos(), HttpStatus.NOT_ACCEPTABLE);
@@ -0,0 +1,39 @@
+package com.codingchallenge.toyrobot.config;
+
+import com.codingchallenge.toyrobot.domain.RobotLocationDTO;
+import com.codingchallenge.toyrobot.domain.RobotLocationMessageDTO;
+import com.codingchallenge.toyrobot.service.ReportFragments;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Writes report DTOs with {@link ReportFragments} instead of reflectively, registered with the application's
+ * ObjectMapper as a Jackson module.
+ */
+@Component
+public class ReportJsonModule extends SimpleModule {
+
+    public ReportJsonModule(ReportFragments reportFragments) {
+        super("robot-reports");
+        addSerializer(new StdSerializer<RobotLocationDTO>(RobotLocationDTO.class) {
+            @Override
+            public void serialize(RobotLocationDTO location, JsonGenerator generator, SerializerProvider provider)
+                    throws IOException {
+                reportFragments.write(location, generator);
+            }
+        });
+        addSerializer(new StdSerializer<RobotLocationMessageDTO>(RobotLocationMessageDTO.class) {
+            @Override
+            public void serialize(RobotLocationMessageDTO message, JsonGenerator generator, SerializerProvider provider)
+                    throws IOException {
+                reportFragments.write(message, generator);
+            }
+        });
+    }
+
+}
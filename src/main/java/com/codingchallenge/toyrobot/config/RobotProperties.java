@@ -0,0 +1,157 @@
+package com.codingchallenge.toyrobot.config;
+
+import com.codingchallenge.toyrobot.service.AuditChannel;
+import com.codingchallenge.toyrobot.service.AuditLevel;
+import com.codingchallenge.toyrobot.service.RobotJournal;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Toy robot settings from the robot.* application properties
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "robot")
+public class RobotProperties {
+
+    private TableProperties table = new TableProperties();
+    // Directory obstacle map files are loaded from, loading obstacle files is disabled when not set
+    private String obstacleDirectory;
+    private AuditProperties audit = new AuditProperties();
+    private MetricsProperties metrics = new MetricsProperties();
+    private JournalProperties journal = new JournalProperties();
+    private HistoryProperties history = new HistoryProperties();
+    private BatchCacheProperties batchCache = new BatchCacheProperties();
+    private ParallelProperties parallel = new ParallelProperties();
+    private ServerProperties server = new ServerProperties();
+    private ReportProperties report = new ReportProperties();
+    private FleetProperties fleet = new FleetProperties();
+    private SimulationProperties simulation = new SimulationProperties();
+    private PathProperties path = new PathProperties();
+
+    @Getter
+    @Setter
+    public static class TableProperties {
+        // Size of the table used by robots and cli batches which do not ask for another table
+        private int width = 5;
+        private int height = 5;
+    }
+
+    @Getter
+    @Setter
+    public static class AuditProperties {
+        // Events held for the audit log writer, further events are dropped until it catches up
+        private int bufferSize = 8192;
+        // Record one in sample-rate events
+        private int sampleRate = 1;
+        // Audit level per endpoint, INFO when not set
+        private Map<AuditChannel, AuditLevel> levels = new EnumMap<>(AuditChannel.class);
+
+        public AuditLevel level(AuditChannel channel) {
+            return levels.getOrDefault(channel, AuditLevel.INFO);
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class MetricsProperties {
+        // Command latency percentiles computed in the application, on top of the histogram buckets
+        private double[] percentiles = {0.5, 0.99, 0.999};
+    }
+
+    @Getter
+    @Setter
+    public static class JournalProperties {
+        // Journal registered robots and shared tables, recovering them on startup
+        private boolean enabled = false;
+        private String directory = "journal";
+        private RobotJournal.Fsync fsync = RobotJournal.Fsync.GROUP;
+        // Bytes of journal records buffered between writes
+        private int bufferSize = 1024 * 1024;
+        // Snapshot once the current journal segment holds this many records, checked every snapshot-check-millis
+        private long snapshotRecords = 1_000_000;
+        private long snapshotCheckMillis = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class HistoryProperties {
+        // Record the commands applied to registered robots for point in time queries, about 2 bytes per command
+        private boolean enabled = false;
+        // Commands between checkpoints, the most commands replayed by a query
+        private int checkpointInterval = 1024;
+    }
+
+    @Getter
+    @Setter
+    public static class BatchCacheProperties {
+        // Reuse the reports of cli batches already run on the same table layout
+        private boolean enabled = true;
+        private long maximumSize = 10_000;
+        private Duration expireAfterAccess = Duration.ofMinutes(10);
+        // Longer batches are always executed
+        private int maxCommands = 1024;
+    }
+
+    @Getter
+    @Setter
+    public static class ParallelProperties {
+        // Run long cli batches and multi script batches on a fork join pool
+        private boolean enabled = true;
+        // Pool threads, the number of processors when not set
+        private int parallelism;
+        // Commands of a folded batch run by one thread, longer batches are split at their placements
+        private int segmentLength = 1 << 16;
+    }
+
+    @Getter
+    @Setter
+    public static class ServerProperties {
+        // Threads serving requests, VIRTUAL needs Java 21 and the embedded server
+        private ServerThreadsConfig.Threads threads = ServerThreadsConfig.Threads.PLATFORM;
+    }
+
+    @Getter
+    @Setter
+    public static class ReportProperties {
+        // Report DTOs and their JSON are interned for the default table up to this many cells
+        private int internedCells = 4096;
+    }
+
+    @Getter
+    @Setter
+    public static class FleetProperties {
+        // Robots of a fleet, 9 bytes each
+        private int maxRobots = 20_000_000;
+        // Robots of a broadcast command handled by one thread, larger fleets are split between the pool threads
+        private int sliceLength = 1 << 16;
+    }
+
+    @Getter
+    @Setter
+    public static class SimulationProperties {
+        // Simulation ticks a second, 0 pauses the simulation so it only advances on request
+        private int tickRate = 10;
+        // Simulated robots stepped by one thread, more robots are split between the pool threads
+        private int sliceLength = 4096;
+        // Most ticks advanced by one tick request
+        private int maxTicksPerRequest = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class PathProperties {
+        // States (cells x 4 directions) of the largest table planned around obstacles, 8 bytes each while searched
+        private long maxStates = 1 << 24;
+        // States of the distance fields kept for repeated targets, 4 bytes each, 0 does not keep them
+        private long cacheStates = 1 << 24;
+        // Commands of the longest path planned, a longer path is rejected before it is planned
+        private long maxCommands = 1 << 20;
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.codingchallenge.toyrobot.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Threads serving requests on the embedded Tomcat.
+ * <p>
+ * With {@code robot.server.threads=virtual} each request runs on its own virtual thread instead of the Tomcat thread
+ * pool, so the number of clients blocked in a request is not bounded by the pool size. Virtual threads need Java 21,
+ * the executor is looked up reflectively so the application still builds for and runs on older Java versions where
+ * the Tomcat thread pool is kept. Tomcat does not shut down an executor it was given, it is shut down with the
+ * application context.
+ */
+@Configuration
+@Slf4j
+public class ServerThreadsConfig {
+
+    /**
+     * Request threads of the server
+     */
+    public enum Threads {
+        // Tomcat thread pool sized by server.tomcat.threads.*
+        PLATFORM,
+        // A virtual thread per request
+        VIRTUAL
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public RequestThreads requestThreadsCustomizer(RobotProperties robotProperties) {
+        return new RequestThreads(robotProperties.getServer().getThreads() == Threads.VIRTUAL ?
+                virtualThreadExecutor() : null);
+    }
+
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            log.info("Serving requests on virtual threads");
+            return executor;
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            log.warn("Virtual threads are not available on Java {}, serving requests on the Tomcat thread pool",
+                    System.getProperty("java.version"));
+            return null;
+        }
+    }
+
+    /**
+     * Request executor of the server, none to keep the Tomcat thread pool
+     */
+    public static final class RequestThreads implements TomcatProtocolHandlerCustomizer<ProtocolHandler> {
+        private final ExecutorService executor;
+
+        RequestThreads(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void customize(ProtocolHandler protocolHandler) {
+            if (executor != null) {
+                protocolHandler.setExecutor(executor);
+            }
+        }
+
+        /**
+         * Stop the executor once the server has stopped, requests still running are left to finish
+         */
+        public void shutdown() {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.codingchallenge.toyrobot.config;
+
+import com.codingchallenge.toyrobot.controller.RobotWebSocketHandler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * WebSocket endpoints
+ */
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final RobotWebSocketHandler robotWebSocketHandler;
+
+    public WebSocketConfig(RobotWebSocketHandler robotWebSocketHandler) {
+        this.robotWebSocketHandler = robotWebSocketHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(robotWebSocketHandler, RobotWebSocketHandler.PATH);
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.codingchallenge.toyrobot.controller;
+
+import com.codingchallenge.toyrobot.config.ApplicationExceptionHandler;
+import com.codingchallenge.toyrobot.domain.CommandPlace;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.Fleet;
+import com.codingchallenge.toyrobot.domain.FleetDTO;
+import com.codingchallenge.toyrobot.domain.IRobotLocation;
+import com.codingchallenge.toyrobot.domain.RobotLocationDTO;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.domain.TurnEnum;
+import com.codingchallenge.toyrobot.service.FleetService;
+import com.codingchallenge.toyrobot.service.ReportFragments;
+import com.codingchallenge.toyrobot.service.TableRegistry;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+@RestController
+@RequestMapping(FleetController.API)
+@Api(tags = {"fleet"}, description = "REST api's for fleets of toy robots driven by broadcast commands")
+public class FleetController {
+
+    static final String API = "/rest/fleet";
+
+    private final FleetService fleetService;
+    private final TableRegistry tableRegistry;
+
+    public FleetController(FleetService fleetService, TableRegistry tableRegistry) {
+        this.fleetService = fleetService;
+        this.tableRegistry = tableRegistry;
+    }
+
+    @ApiOperation(value = "Create (or replace) a fleet of robots off the grid, each moving as if alone on the table",
+            notes = "Robots are numbered from 0 and split into groups of consecutive robots. The table is the default "
+                    + "size, the given size or a copy of the size and obstacles of a shared table")
+    @PostMapping(path = "/{fleetId}/robots/{robots}", produces = APPLICATION_JSON_VALUE)
+    public FleetDTO createFleet(@PathVariable("fleetId") String fleetId,
+                                @PathVariable("robots") int robots,
+                                @RequestParam(name = "groups", defaultValue = "1") int groups,
+                                @RequestParam(name = "width", required = false) Integer width,
+                                @RequestParam(name = "height", required = false) Integer height,
+                                @RequestParam(name = "tableId", required = false) String tableId) {
+        return toDTO(fleetService.createFleet(fleetId, fleetTable(width, height, tableId), robots, groups));
+    }
+
+    @ApiOperation(value = "Size, groups and table of the fleet")
+    @GetMapping(path = "/{fleetId}", produces = APPLICATION_JSON_VALUE)
+    public FleetDTO getFleet(@PathVariable("fleetId") String fleetId) {
+        return toDTO(getFleetOrThrow(fleetId));
+    }
+
+    @ApiOperation(value = "Delete/remove the fleet")
+    @DeleteMapping(path = "/{fleetId}", produces = APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteFleet(@PathVariable("fleetId") String fleetId) {
+        fleetService.removeFleet(fleetId);
+    }
+
+    @ApiOperation(value = "Place every robot of the fleet, or of a group, on the grid at xy co-ordinates and orientation")
+    @PostMapping(path = "/{fleetId}/place/x/{x}/y/{y}/direction/{direction}", produces = APPLICATION_JSON_VALUE)
+    public void placeFleet(@PathVariable("fleetId") String fleetId,
+                           @PathVariable("x") int x,
+                           @PathVariable("y") int y,
+                           @PathVariable("direction") DirectionEnum direction,
+                           @RequestParam(name = "group", required = false) Integer group) {
+        fleetService.place(getFleetOrThrow(fleetId), group, new CommandPlace(x, y, direction));
+    }
+
+    @ApiOperation(value = "Move every robot of the fleet, or of a group, forward one square in its orientation direction")
+    @PutMapping(path = "/{fleetId}/move", produces = APPLICATION_JSON_VALUE)
+    public void moveFleet(@PathVariable("fleetId") String fleetId,
+                          @RequestParam(name = "group", required = false) Integer group) {
+        fleetService.move(getFleetOrThrow(fleetId), group);
+    }
+
+    @ApiOperation(value = "Rotate every robot of the fleet, or of a group, left on the grid")
+    @PutMapping(path = "/{fleetId}/left", produces = APPLICATION_JSON_VALUE)
+    public void turnFleetLeft(@PathVariable("fleetId") String fleetId,
+                              @RequestParam(name = "group", required = false) Integer group) {
+        fleetService.turn(getFleetOrThrow(fleetId), group, TurnEnum.LEFT);
+    }
+
+    @ApiOperation(value = "Rotate every robot of the fleet, or of a group, right on the grid")
+    @PutMapping(path = "/{fleetId}/right", produces = APPLICATION_JSON_VALUE)
+    public void turnFleetRight(@PathVariable("fleetId") String fleetId,
+                               @RequestParam(name = "group", required = false) Integer group) {
+        fleetService.turn(getFleetOrThrow(fleetId), group, TurnEnum.RIGHT);
+    }
+
+    @ApiOperation(value = "Place a robot of the fleet on the grid at xy co-ordinates and orientation")
+    @PostMapping(path = "/{fleetId}/{robot}/place/x/{x}/y/{y}/direction/{direction}", produces = APPLICATION_JSON_VALUE)
+    public void placeRobot(@PathVariable("fleetId") String fleetId,
+                           @PathVariable("robot") int robot,
+                           @PathVariable("x") int x,
+                           @PathVariable("y") int y,
+                           @PathVariable("direction") DirectionEnum direction) {
+        fleetService.placeRobot(getFleetOrThrow(fleetId), robot, new CommandPlace(x, y, direction));
+    }
+
+    @ApiOperation(value = "Report on the current location and orientation of a robot of the fleet",
+            response = RobotLocationDTO.class)
+    @GetMapping(path = "/{fleetId}/{robot}/report", produces = APPLICATION_JSON_VALUE)
+    @ApiResponse(code = 404, message = ApplicationExceptionHandler.MISSING_ROBOT_MESSAGE)
+    public IRobotLocation reportRobot(@PathVariable("fleetId") String fleetId,
+                                      @PathVariable("robot") int robot) {
+        IRobotLocation location = fleetService.reportRobot(getFleetOrThrow(fleetId), robot);
+        if (location == ReportFragments.MISSING_ROBOT) {
+            throw new RobotNotFoundException(location);
+        }
+        return location;
+    }
+
+    /**
+     * Table of a new fleet, a copy of the layout (size and obstacles) of a shared table when a table id is given
+     */
+    private Table fleetTable(Integer width, Integer height, String tableId) {
+        if (tableId == null) {
+            return tableRegistry.privateTable(width, height);
+        }
+        Table layout = tableRegistry.findSharedTable(tableId);
+        if (layout == null) {
+            throw new TableNotFoundException(tableId);
+        }
+        return tableRegistry.privateTable(layout);
+    }
+
+    private Fleet getFleetOrThrow(String fleetId) {
+        Fleet fleet = fleetService.findFleet(fleetId);
+        if (fleet == null) {
+            throw new FleetNotFoundException(fleetId);
+        }
+        return fleet;
+    }
+
+    private static FleetDTO toDTO(Fleet fleet) {
+        return new FleetDTO(fleet.getId(), fleet.getSize(), fleet.getGroups(), fleet.getTable().getWidth(),
+                fleet.getTable().getHeight());
+    }
+
+}
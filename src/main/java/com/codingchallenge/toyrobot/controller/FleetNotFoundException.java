@@ -0,0 +1,13 @@
+package com.codingchallenge.toyrobot.controller;
+
+import lombok.Getter;
+
+@Getter
+public class FleetNotFoundException extends RuntimeException {
+    private String fleetId;
+
+    public FleetNotFoundException(String fleetId) {
+        super(String.format("Fleet [%s] not found", fleetId));
+        this.fleetId = fleetId;
+    }
+}
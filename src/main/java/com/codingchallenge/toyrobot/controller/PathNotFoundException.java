@@ -0,0 +1,17 @@
+package com.codingchallenge.toyrobot.controller;
+
+import com.codingchallenge.toyrobot.domain.RobotLocation;
+import lombok.Getter;
+
+@Getter
+public class PathNotFoundException extends RuntimeException {
+    private RobotLocation start;
+    private RobotLocation target;
+
+    public PathNotFoundException(RobotLocation start, RobotLocation target) {
+        super(String.format("No path from [%d,%d,%s] to [%d,%d,%s]", start.getX(), start.getY(), start.getDirection(),
+                target.getX(), target.getY(), target.getDirection()));
+        this.start = start;
+        this.target = target;
+    }
+}
@@ -1,20 +1,40 @@
 package com.codingchallenge.toyrobot.controller;
 
 import com.codingchallenge.toyrobot.config.ApplicationExceptionHandler;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
 import com.codingchallenge.toyrobot.domain.IRobotLocation;
+import com.codingchallenge.toyrobot.domain.RobotLocation;
 import com.codingchallenge.toyrobot.domain.RobotLocationDTO;
+import com.codingchallenge.toyrobot.domain.RobotLocationMessageDTO;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.domain.TrajectoryDTO;
+import com.codingchallenge.toyrobot.service.BinaryProtocol;
+import com.codingchallenge.toyrobot.service.PathPlanner;
+import com.codingchallenge.toyrobot.service.ReportFragments;
 import com.codingchallenge.toyrobot.service.RobotCommandService;
+import com.codingchallenge.toyrobot.service.TableRegistry;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
 import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
 
 @RestController
@@ -23,20 +43,149 @@ import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
 public class RobotCliController {
 
     static final String API = "/rest/robot/cli";
+    private static final char NDJSON_SEPARATOR = '\n';
 
     private final RobotCommandService robotService;
+    private final TableRegistry tableRegistry;
+    private final ObjectMapper objectMapper;
+    private final ReportFragments reportFragments;
+    private final PathPlanner pathPlanner;
 
-    public RobotCliController(RobotCommandService robotService) {
+    public RobotCliController(RobotCommandService robotService, TableRegistry tableRegistry, ObjectMapper objectMapper,
+                              ReportFragments reportFragments, PathPlanner pathPlanner) {
         this.robotService = robotService;
+        this.tableRegistry = tableRegistry;
+        this.objectMapper = objectMapper;
+        this.reportFragments = reportFragments;
+        this.pathPlanner = pathPlanner;
     }
 
     @ApiOperation(value = "Execute a batch of cli commands on a state-less robot",
-            notes = "Example: PLACE 0,0,NORTH MOVE LEFT MOVE RIGHT REPORT",
+            notes = "Example: PLACE 0,0,NORTH MOVE LEFT MOVE RIGHT REPORT. Commands can be repeated, REPEAT 100 "
+                    + "{ MOVE REPORT }, the reports of scripts with REPEAT blocks are run-length encoded",
             response = RobotLocationDTO.class,
             responseContainer = "List")
     @PostMapping(path = "/batch", consumes = TEXT_PLAIN_VALUE, produces = APPLICATION_JSON_VALUE)
-    public List<IRobotLocation> batchCommandsForRobot(@RequestBody String batchCommands) {
-        return robotService.executeBatchCommandsForRobot(batchCommands);
+    public List<IRobotLocation> batchCommandsForRobot(@RequestBody String batchCommands,
+                                                      @RequestParam(name = "width", required = false) Integer width,
+                                                      @RequestParam(name = "height", required = false) Integer height,
+                                                      @RequestParam(name = "tableId", required = false) String tableId) {
+        return robotService.executeBatchCommandsForRobot(batchCommands, cliTable(width, height, tableId));
+    }
+
+    @ApiOperation(value = "Execute a batch of binary encoded commands on a state-less robot",
+            notes = "Commands and reports in the compact binary encoding of BinaryProtocol, negotiated by content type")
+    @PostMapping(path = "/batch", consumes = BinaryProtocol.COMMANDS_VALUE, produces = BinaryProtocol.REPORTS_VALUE)
+    public byte[] binaryBatchCommandsForRobot(@RequestBody byte[] batchCommands,
+                                              @RequestParam(name = "width", required = false) Integer width,
+                                              @RequestParam(name = "height", required = false) Integer height,
+                                              @RequestParam(name = "tableId", required = false) String tableId) {
+        return robotService.executeBinaryBatchForRobot(batchCommands, cliTable(width, height, tableId));
+    }
+
+    @ApiOperation(value = "Execute several batches of cli commands, each on its own state-less robot",
+            notes = "Example: [\"PLACE 0,0,NORTH MOVE REPORT\", \"PLACE 1,2,EAST MOVE REPORT\"], batches run in parallel "
+                    + "and the reports of each batch are returned in the order of the batches",
+            response = RobotLocationDTO.class,
+            responseContainer = "List")
+    @PostMapping(path = "/batches", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    public List<List<IRobotLocation>> batchesCommandsForRobots(@RequestBody List<String> batches,
+                                                               @RequestParam(name = "width", required = false) Integer width,
+                                                               @RequestParam(name = "height", required = false) Integer height,
+                                                               @RequestParam(name = "tableId", required = false) String tableId) {
+        return robotService.executeBatchesForRobots(batches, cliTable(width, height, tableId));
+    }
+
+    @ApiOperation(value = "Stream a batch of cli commands through a state-less robot",
+            notes = "Commands are executed as they are received and each REPORT is streamed back as a line of JSON",
+            response = RobotLocationDTO.class,
+            responseContainer = "List")
+    @PostMapping(path = "/stream", consumes = TEXT_PLAIN_VALUE, produces = APPLICATION_NDJSON_VALUE)
+    public void streamCommandsForRobot(@RequestParam(name = "width", required = false) Integer width,
+                                       @RequestParam(name = "height", required = false) Integer height,
+                                       @RequestParam(name = "tableId", required = false) String tableId,
+                                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Table table = cliTable(width, height, tableId);
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        // Values are separated by the NDJSON line separator written after each report
+        generator.setRootValueSeparator(null);
+        try {
+            robotService.streamBatchCommandsForRobot(request.getInputStream(), table,
+                    location -> writeValue(generator, location), generator);
+        } catch (UnknownCommandException | IllegalArgumentException e) {
+            if (!response.isCommitted()) {
+                // Nothing sent yet, drop any buffered reports and respond as the batch endpoint does
+                response.resetBuffer();
+                throw e;
+            }
+            // Reports have already been sent, terminate the stream with the error
+            writeValue(generator, new RobotLocationMessageDTO(e instanceof UnknownCommandException ?
+                    String.join(", ", ((UnknownCommandException) e).getInfos()) : e.getMessage()));
+        }
+        generator.close();
+    }
+
+    @ApiOperation(value = "Summarise the trajectory of a state-less robot running a batch of cli commands",
+            notes = "The commands are run as they are received, the summary counts the commands, moves applied and "
+                    + "ignored, placements ignored, reports and visits and holds the visited cells as runs of adjacent "
+                    + "cells along x ([x, y, length]) and the final location")
+    @PostMapping(path = "/analysis", consumes = TEXT_PLAIN_VALUE, produces = APPLICATION_JSON_VALUE)
+    public TrajectoryDTO analyseCommandsForRobot(@RequestParam(name = "width", required = false) Integer width,
+                                                 @RequestParam(name = "height", required = false) Integer height,
+                                                 @RequestParam(name = "tableId", required = false) String tableId,
+                                                 HttpServletRequest request) throws IOException {
+        return robotService.analyseBatchCommandsForRobot(request.getInputStream(), cliTable(width, height, tableId));
+    }
+
+    @ApiOperation(value = "Shortest cli script taking a state-less robot from one location and orientation to another",
+            notes = "The script places the robot at the start and reports it at the target, ready to run on /batch with "
+                    + "the same table parameters. Example: PLACE 0,0,NORTH MOVE RIGHT MOVE REPORT")
+    @GetMapping(path = "/path/x/{x}/y/{y}/direction/{direction}/to/x/{toX}/y/{toY}/direction/{toDirection}",
+            produces = TEXT_PLAIN_VALUE)
+    @ApiResponse(code = 404, message = "No path between the locations")
+    public String path(@PathVariable("x") int x,
+                       @PathVariable("y") int y,
+                       @PathVariable("direction") DirectionEnum direction,
+                       @PathVariable("toX") int toX,
+                       @PathVariable("toY") int toY,
+                       @PathVariable("toDirection") DirectionEnum toDirection,
+                       @RequestParam(name = "width", required = false) Integer width,
+                       @RequestParam(name = "height", required = false) Integer height,
+                       @RequestParam(name = "tableId", required = false) String tableId) {
+        Table table = cliTable(width, height, tableId);
+        // Negative co-ordinates are off every table, they are not packed
+        String script = x < 0 || y < 0 || toX < 0 || toY < 0 ? null : pathPlanner.planScript(table,
+                RobotState.of(x, y, direction), RobotState.of(toX, toY, toDirection));
+        if (script == null) {
+            throw new PathNotFoundException(new RobotLocation(x, y, direction), new RobotLocation(toX, toY, toDirection));
+        }
+        return script;
+    }
+
+    /**
+     * Private table for a cli batch, a copy of the layout (size and obstacles) of a shared table when a table id is
+     * given
+     */
+    private Table cliTable(Integer width, Integer height, String tableId) {
+        if (tableId == null) {
+            return tableRegistry.privateTable(width, height);
+        }
+        Table layout = tableRegistry.findSharedTable(tableId);
+        if (layout == null) {
+            throw new TableNotFoundException(tableId);
+        }
+        return tableRegistry.privateTable(layout);
+    }
+
+    private void writeValue(JsonGenerator generator, IRobotLocation location) {
+        try {
+            // Straight into the generator's buffer, not through the ObjectMapper
+            reportFragments.write(location, generator);
+            generator.writeRaw(NDJSON_SEPARATOR);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
 }
@@ -4,18 +4,30 @@ import com.codingchallenge.toyrobot.config.ApplicationExceptionHandler;
 import com.codingchallenge.toyrobot.domain.CommandPlace;
 import com.codingchallenge.toyrobot.domain.DirectionEnum;
 import com.codingchallenge.toyrobot.domain.IRobotLocation;
-import com.codingchallenge.toyrobot.domain.RobotLocation;
+import com.codingchallenge.toyrobot.domain.Robot;
+import com.codingchallenge.toyrobot.domain.RobotHistoryDTO;
+import com.codingchallenge.toyrobot.domain.RobotLocationMessageDTO;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.service.BinaryProtocol;
+import com.codingchallenge.toyrobot.service.RobotCommandChannel;
 import com.codingchallenge.toyrobot.service.RobotCommandService;
+import com.codingchallenge.toyrobot.service.RobotRegistry;
+import com.codingchallenge.toyrobot.service.SimulationScheduler;
+import com.codingchallenge.toyrobot.service.TableRegistry;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -23,15 +35,22 @@ import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 @RestController
 @RequestMapping(RobotController.API)
-@Api(tags = {"robot"}, description = "REST api's for a stateful toy robot")
+@Api(tags = {"robot"}, description = "REST api's for stateful toy robots")
 public class RobotController {
 
     static final String API = "/rest/robot";
 
     private final RobotCommandService robotCommandService;
+    private final RobotRegistry robotRegistry;
+    private final TableRegistry tableRegistry;
+    private final SimulationScheduler simulationScheduler;
 
-    public RobotController(RobotCommandService robotCommandService) {
+    public RobotController(RobotCommandService robotCommandService, RobotRegistry robotRegistry, TableRegistry tableRegistry,
+                           SimulationScheduler simulationScheduler) {
         this.robotCommandService = robotCommandService;
+        this.robotRegistry = robotRegistry;
+        this.tableRegistry = tableRegistry;
+        this.simulationScheduler = simulationScheduler;
     }
 
     @ApiOperation(value = "Place the robot on the grid at xy co-ordinates and orientation")
@@ -39,45 +58,164 @@ public class RobotController {
     public void placeRobot(@PathVariable("x") int x,
                            @PathVariable("y") int y,
                            @PathVariable("direction") DirectionEnum direction) {
-        robotCommandService.placeRobot(RobotCommandService.getStateFulRobotLocation(), new CommandPlace(x, y, direction));
+        placeRobot(RobotRegistry.DEFAULT_ROBOT_ID, x, y, direction);
     }
 
     @ApiOperation(value = "Move the robot forward one square in the current orientation direction")
     @PutMapping(path = "/move", produces = APPLICATION_JSON_VALUE)
     public void moveForward() {
-        robotCommandService.moveForward(RobotCommandService.getStateFulRobotLocation());
+        moveForward(RobotRegistry.DEFAULT_ROBOT_ID);
     }
 
     @ApiOperation(value = "Rotate the robot right on the grid")
     @PutMapping(path = "/left", produces = APPLICATION_JSON_VALUE)
     public void turnLeft() {
-        robotCommandService.turnLeft(RobotCommandService.getStateFulRobotLocation());
+        turnLeft(RobotRegistry.DEFAULT_ROBOT_ID);
     }
 
     @ApiOperation(value = "Rotate the robot right on the grid")
     @PutMapping(path = "/right", produces = APPLICATION_JSON_VALUE)
     public void turnRight() {
-        robotCommandService.turnRight(RobotCommandService.getStateFulRobotLocation());
+        turnRight(RobotRegistry.DEFAULT_ROBOT_ID);
     }
 
     @ApiOperation(value = "Report on the current location and orientation of the robot")
     @GetMapping(path = "/report", produces = APPLICATION_JSON_VALUE)
     @ApiResponse(code = 404, message = ApplicationExceptionHandler.MISSING_ROBOT_MESSAGE)
     public IRobotLocation reportLocation() {
-        RobotLocation robotLocation = robotCommandService.reportLocation(RobotCommandService.getStateFulRobotLocation());
-        IRobotLocation robotLocationDTO = robotCommandService.convertLocationToDTO(robotLocation);
-        if (robotLocation == null) {
-            throw new RobotNotFoundException(robotLocationDTO);
-        }
-        return robotLocationDTO;
+        return reportLocation(RobotRegistry.DEFAULT_ROBOT_ID);
     }
 
     @ApiOperation(value = "Delete/remove the robot from the grid")
     @DeleteMapping(produces = APPLICATION_JSON_VALUE)
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteRobot() {
-        robotCommandService.deleteRobot(RobotCommandService.getStateFulRobotLocation());
+        deleteRobot(RobotRegistry.DEFAULT_ROBOT_ID);
+    }
+
+    @ApiOperation(value = "Register the identified robot (off the grid) on its own table of the given size, replacing any robot with the id")
+    @PostMapping(path = "/{id}/table/width/{width}/height/{height}", produces = APPLICATION_JSON_VALUE)
+    public void registerRobot(@PathVariable("id") String id,
+                              @PathVariable("width") int width,
+                              @PathVariable("height") int height) {
+        registerRobot(id, tableRegistry.privateTable(width, height));
+    }
+
+    @ApiOperation(value = "Register the identified robot (off the grid) on a shared table, replacing any robot with the id")
+    @PostMapping(path = "/{id}/table/{tableId}", produces = APPLICATION_JSON_VALUE)
+    public void registerRobot(@PathVariable("id") String id,
+                              @PathVariable("tableId") String tableId) {
+        Table table = tableRegistry.findSharedTable(tableId);
+        if (table == null) {
+            throw new TableNotFoundException(tableId);
+        }
+        registerRobot(id, table);
+    }
+
+    @ApiOperation(value = "Place the identified robot on the grid at xy co-ordinates and orientation")
+    @PostMapping(path = "/{id}/place/x/{x}/y/{y}/direction/{direction}", produces = APPLICATION_JSON_VALUE)
+    public void placeRobot(@PathVariable("id") String id,
+                           @PathVariable("x") int x,
+                           @PathVariable("y") int y,
+                           @PathVariable("direction") DirectionEnum direction) {
+        robotCommandService.placeRobot(robotRegistry.getOrCreate(id), new CommandPlace(x, y, direction));
+    }
+
+    @ApiOperation(value = "Move the identified robot forward one square in the current orientation direction")
+    @PutMapping(path = "/{id}/move", produces = APPLICATION_JSON_VALUE)
+    public void moveForward(@PathVariable("id") String id) {
+        Robot robot = robotRegistry.find(id);
+        if (robot != null) {
+            robotCommandService.moveForward(robot);
+        }
     }
 
+    @ApiOperation(value = "Rotate the identified robot left on the grid")
+    @PutMapping(path = "/{id}/left", produces = APPLICATION_JSON_VALUE)
+    public void turnLeft(@PathVariable("id") String id) {
+        Robot robot = robotRegistry.find(id);
+        if (robot != null) {
+            robotCommandService.turnLeft(robot);
+        }
+    }
+
+    @ApiOperation(value = "Rotate the identified robot right on the grid")
+    @PutMapping(path = "/{id}/right", produces = APPLICATION_JSON_VALUE)
+    public void turnRight(@PathVariable("id") String id) {
+        Robot robot = robotRegistry.find(id);
+        if (robot != null) {
+            robotCommandService.turnRight(robot);
+        }
+    }
+
+    @ApiOperation(value = "Report on the current location and orientation of the identified robot")
+    @GetMapping(path = "/{id}/report", produces = APPLICATION_JSON_VALUE)
+    @ApiResponse(code = 404, message = ApplicationExceptionHandler.MISSING_ROBOT_MESSAGE)
+    public IRobotLocation reportLocation(@PathVariable("id") String id) {
+        Robot robot = robotRegistry.find(id);
+        long state = robot != null ? robotCommandService.reportState(robot) : RobotState.EMPTY;
+        IRobotLocation robotLocationDTO = robotCommandService.convertStateToDTO(state);
+        if (!RobotState.isPlaced(state)) {
+            throw new RobotNotFoundException(robotLocationDTO);
+        }
+        return robotLocationDTO;
+    }
+
+    @ApiOperation(value = "Report on the current location and orientation of the identified robot in the binary encoding",
+            notes = "A single report record of BinaryProtocol, the missing robot record when the robot does not exist")
+    @GetMapping(path = "/{id}/report", produces = BinaryProtocol.REPORTS_VALUE)
+    @ApiResponse(code = 404, message = ApplicationExceptionHandler.MISSING_ROBOT_MESSAGE)
+    public ResponseEntity<byte[]> binaryReportLocation(@PathVariable("id") String id) {
+        Robot robot = robotRegistry.find(id);
+        long state = robot != null ? robotCommandService.reportState(robot) : RobotState.EMPTY;
+        return new ResponseEntity<>(BinaryProtocol.encodeReports(new long[]{state}, 1),
+                RobotState.isPlaced(state) ? HttpStatus.OK : HttpStatus.NOT_FOUND);
+    }
+
+    @ApiOperation(value = "Execute binary encoded commands on the identified robot",
+            notes = "Commands and reports in the compact binary encoding of BinaryProtocol, executed in order as the "
+                    + "separate endpoints would execute them. A malformed request is rejected before any command runs")
+    @PostMapping(path = "/{id}/commands", consumes = BinaryProtocol.COMMANDS_VALUE, produces = BinaryProtocol.REPORTS_VALUE)
+    public byte[] binaryCommands(@PathVariable("id") String id, @RequestBody byte[] commands) {
+        return new RobotCommandChannel(robotCommandService, robotRegistry, id).execute(commands);
+    }
+
+    @ApiOperation(value = "Location of the identified robot after a command of its history",
+            notes = "After the given number of commands, or the last command at or before an epoch millisecond time, "
+                    + "the latest command when neither is given. History is recorded when robot.history.enabled is set")
+    @GetMapping(path = "/{id}/history", produces = APPLICATION_JSON_VALUE)
+    @ApiResponse(code = 404, message = ApplicationExceptionHandler.MISSING_ROBOT_MESSAGE)
+    public RobotHistoryDTO history(@PathVariable("id") String id,
+                                   @RequestParam(name = "command", required = false) Long command,
+                                   @RequestParam(name = "time", required = false) Long time) {
+        Robot robot = robotRegistry.find(id);
+        if (robot == null) {
+            throw new RobotNotFoundException(new RobotLocationMessageDTO(ApplicationExceptionHandler.MISSING_ROBOT_MESSAGE));
+        }
+        RobotHistoryDTO history = robotCommandService.historyAt(robot, command, time);
+        if (history == null) {
+            throw new RobotNotFoundException(new RobotLocationMessageDTO(ApplicationExceptionHandler.MISSING_HISTORY_MESSAGE));
+        }
+        return history;
+    }
+
+    @ApiOperation(value = "Delete/remove the identified robot from the grid")
+    @DeleteMapping(path = "/{id}", produces = APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteRobot(@PathVariable("id") String id) {
+        Robot robot = robotRegistry.remove(id);
+        if (robot != null) {
+            simulationScheduler.stop(id);
+            robotCommandService.deleteRobot(robot);
+        }
+    }
+
+    private void registerRobot(String id, Table table) {
+        Robot replaced = robotRegistry.register(id, table);
+        if (replaced != null) {
+            simulationScheduler.stop(id);
+            robotCommandService.deleteRobot(replaced);
+        }
+    }
 
 }
@@ -0,0 +1,75 @@
+package com.codingchallenge.toyrobot.controller;
+
+import com.codingchallenge.toyrobot.domain.CommandAckDTO;
+import com.codingchallenge.toyrobot.service.RobotCommandChannel;
+import com.codingchallenge.toyrobot.service.RobotCommandService;
+import com.codingchallenge.toyrobot.service.RobotRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * WebSocket command channel of a stateful robot at {@code /rest/robot/{id}/ws}.
+ * <p>
+ * Text messages carry cli commands, each message is answered by one JSON acknowledgement holding the number of
+ * commands executed and their reports. Binary messages carry commands in the {@code BinaryProtocol} encoding and are
+ * answered by a binary message of the encoded reports, or by a JSON acknowledgement of the error when malformed.
+ */
+@Component
+public class RobotWebSocketHandler extends AbstractWebSocketHandler {
+
+    public static final String PATH = RobotController.API + "/*/ws";
+    private static final String CHANNEL = "robotCommandChannel";
+
+    private final RobotCommandService robotCommandService;
+    private final RobotRegistry robotRegistry;
+    private final ObjectMapper objectMapper;
+
+    public RobotWebSocketHandler(RobotCommandService robotCommandService, RobotRegistry robotRegistry,
+                                 ObjectMapper objectMapper) {
+        this.robotCommandService = robotCommandService;
+        this.robotRegistry = robotRegistry;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws IOException {
+        String path = session.getUri() != null ? session.getUri().getPath() : null;
+        int end = path != null ? path.lastIndexOf('/') : -1;
+        String robotId = end > 0 ? path.substring(path.lastIndexOf('/', end - 1) + 1, end) : "";
+        if (robotId.isEmpty()) {
+            session.close(CloseStatus.BAD_DATA);
+            return;
+        }
+        session.getAttributes().put(CHANNEL, new RobotCommandChannel(robotCommandService, robotRegistry, robotId));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+        RobotCommandChannel channel = (RobotCommandChannel) session.getAttributes().get(CHANNEL);
+        session.sendMessage(new TextMessage(objectMapper.writeValueAsBytes(channel.execute(message.getPayload()))));
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws IOException {
+        RobotCommandChannel channel = (RobotCommandChannel) session.getAttributes().get(CHANNEL);
+        ByteBuffer payload = message.getPayload();
+        byte[] commands = new byte[payload.remaining()];
+        payload.get(commands);
+        try {
+            session.sendMessage(new BinaryMessage(channel.execute(commands)));
+        } catch (UnknownCommandException | IllegalArgumentException e) {
+            String error = e instanceof UnknownCommandException ?
+                    String.join(", ", ((UnknownCommandException) e).getInfos()) : e.getMessage();
+            session.sendMessage(new TextMessage(objectMapper.writeValueAsBytes(new CommandAckDTO(0, null, error))));
+        }
+    }
+
+}
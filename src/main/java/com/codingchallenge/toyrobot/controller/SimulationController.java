@@ -0,0 +1,79 @@
+package com.codingchallenge.toyrobot.controller;
+
+import com.codingchallenge.toyrobot.domain.BehaviourEnum;
+import com.codingchallenge.toyrobot.domain.SimulationDTO;
+import com.codingchallenge.toyrobot.service.RobotRegistry;
+import com.codingchallenge.toyrobot.service.SimulationScheduler;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
+
+@RestController
+@RequestMapping(SimulationController.API)
+@Api(tags = {"simulation"}, description = "REST api's for stateful toy robots driven by the server in ticks")
+public class SimulationController {
+
+    static final String API = "/rest/simulation";
+
+    private final SimulationScheduler simulationScheduler;
+    private final RobotRegistry robotRegistry;
+
+    public SimulationController(SimulationScheduler simulationScheduler, RobotRegistry robotRegistry) {
+        this.simulationScheduler = simulationScheduler;
+        this.robotRegistry = robotRegistry;
+    }
+
+    @ApiOperation(value = "Simulated robots, ticks and commands applied so far")
+    @GetMapping(produces = APPLICATION_JSON_VALUE)
+    public SimulationDTO getSimulation() {
+        return new SimulationDTO(simulationScheduler.size(), simulationScheduler.getTicks(),
+                simulationScheduler.getSteps(), simulationScheduler.getTickRate());
+    }
+
+    @ApiOperation(value = "Advance every simulated robot by a number of ticks, for a simulation paused by a tick rate of 0",
+            notes = "At most robot.simulation.max-ticks-per-request ticks")
+    @PostMapping(path = "/tick", produces = APPLICATION_JSON_VALUE)
+    public SimulationDTO tick(@RequestParam(name = "count", defaultValue = "1") int count) {
+        simulationScheduler.tick(count);
+        return getSimulation();
+    }
+
+    @ApiOperation(value = "Drive the identified robot by a cli program, one command a tick",
+            notes = "Example: PLACE 0,0,NORTH MOVE LEFT MOVE RIGHT. The program starts again once it has finished with "
+                    + "repeat, otherwise the robot stops being simulated. Replaces anything driving the robot")
+    @PostMapping(path = "/{id}/program", consumes = TEXT_PLAIN_VALUE, produces = APPLICATION_JSON_VALUE)
+    public void runProgram(@PathVariable("id") String id,
+                           @RequestBody String batchCommands,
+                           @RequestParam(name = "repeat", defaultValue = "false") boolean repeat) {
+        simulationScheduler.runProgram(robotRegistry.getOrCreate(id), batchCommands, repeat);
+    }
+
+    @ApiOperation(value = "Drive the identified robot by a behaviour, one command a tick",
+            notes = "PATROL moves forward and turns around over the next two ticks when the move is ignored, RANDOM_WALK moves forward half the "
+                    + "time and otherwise turns left or right. Replaces anything driving the robot")
+    @PostMapping(path = "/{id}/behaviour/{behaviour}", produces = APPLICATION_JSON_VALUE)
+    public void runBehaviour(@PathVariable("id") String id,
+                             @PathVariable("behaviour") BehaviourEnum behaviour) {
+        simulationScheduler.runBehaviour(robotRegistry.getOrCreate(id), behaviour);
+    }
+
+    @ApiOperation(value = "Stop driving the identified robot, it stays where it is")
+    @DeleteMapping(path = "/{id}", produces = APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void stop(@PathVariable("id") String id) {
+        simulationScheduler.stop(id);
+    }
+
+}
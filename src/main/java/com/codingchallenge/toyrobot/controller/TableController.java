@@ -0,0 +1,109 @@
+package com.codingchallenge.toyrobot.controller;
+
+import com.codingchallenge.toyrobot.domain.IRobotLocation;
+import com.codingchallenge.toyrobot.domain.ObstacleMap;
+import com.codingchallenge.toyrobot.domain.RobotPositionDTO;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.service.RobotCommandService;
+import com.codingchallenge.toyrobot.service.TableRegistry;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.List;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
+
+@RestController
+@RequestMapping(TableController.API)
+@Api(tags = {"table"}, description = "REST api's for tables shared by stateful toy robots")
+public class TableController {
+
+    static final String API = "/rest/table";
+
+    private final TableRegistry tableRegistry;
+    private final RobotCommandService robotCommandService;
+
+    public TableController(TableRegistry tableRegistry, RobotCommandService robotCommandService) {
+        this.tableRegistry = tableRegistry;
+        this.robotCommandService = robotCommandService;
+    }
+
+    @ApiOperation(value = "Create (or replace) a table shared by robots, robots already on a replaced table keep it",
+            notes = "With collisions a robot can not move into or be placed on a location held by another robot")
+    @PostMapping(path = "/{tableId}/width/{width}/height/{height}", produces = APPLICATION_JSON_VALUE)
+    public void createTable(@PathVariable("tableId") String tableId,
+                            @PathVariable("width") int width,
+                            @PathVariable("height") int height,
+                            @RequestParam(name = "collisions", defaultValue = "false") boolean collisions) {
+        tableRegistry.createSharedTable(tableId, width, height, collisions);
+    }
+
+    @ApiOperation(value = "Robots at the xy co-ordinates of the table",
+            response = RobotPositionDTO.class,
+            responseContainer = "List")
+    @GetMapping(path = "/{tableId}/x/{x}/y/{y}", produces = APPLICATION_JSON_VALUE)
+    public List<IRobotLocation> robotsAt(@PathVariable("tableId") String tableId,
+                                         @PathVariable("x") int x,
+                                         @PathVariable("y") int y) {
+        return robotCommandService.findRobots(getTable(tableId), x, y, x, y);
+    }
+
+    @ApiOperation(value = "Robots inside a rectangle of the table, the whole table by default",
+            response = RobotPositionDTO.class,
+            responseContainer = "List")
+    @GetMapping(path = "/{tableId}/robots", produces = APPLICATION_JSON_VALUE)
+    public List<IRobotLocation> robotsWithin(@PathVariable("tableId") String tableId,
+                                             @RequestParam(name = "minX", defaultValue = "0") int minX,
+                                             @RequestParam(name = "minY", defaultValue = "0") int minY,
+                                             @RequestParam(name = "maxX", required = false) Integer maxX,
+                                             @RequestParam(name = "maxY", required = false) Integer maxY) {
+        Table table = getTable(tableId);
+        return robotCommandService.findRobots(table, minX, minY,
+                maxX != null ? maxX : table.getMaxX(), maxY != null ? maxY : table.getMaxY());
+    }
+
+    @ApiOperation(value = "Upload the obstacles of a table, robots can not move into or be placed on a blocked location",
+            notes = "Binary obstacle map: int magic 0x54524F42, int width, int height, int reserved, then one bit per "
+                    + "location in row major order as little endian longs")
+    @PutMapping(path = "/{tableId}/obstacles", consumes = APPLICATION_OCTET_STREAM_VALUE)
+    public void uploadObstacles(@PathVariable("tableId") String tableId, HttpServletRequest request) throws IOException {
+        Table table = getTable(tableId);
+        ObstacleMap obstacles = ObstacleMap.read(Channels.newChannel(request.getInputStream()),
+                table.getWidth(), table.getHeight());
+        table.setObstacles(obstacles);
+    }
+
+    @ApiOperation(value = "Load the obstacles of a table from an obstacle map file in the configured obstacle directory")
+    @PostMapping(path = "/{tableId}/obstacles/{mapName}")
+    public void loadObstacles(@PathVariable("tableId") String tableId,
+                              @PathVariable("mapName") String mapName) throws IOException {
+        tableRegistry.loadObstacles(getTable(tableId), mapName);
+    }
+
+    @ApiOperation(value = "Remove the obstacles of a table")
+    @DeleteMapping(path = "/{tableId}/obstacles")
+    public void removeObstacles(@PathVariable("tableId") String tableId) {
+        getTable(tableId).setObstacles(null);
+    }
+
+    private Table getTable(String tableId) {
+        Table table = tableRegistry.findSharedTable(tableId);
+        if (table == null) {
+            throw new TableNotFoundException(tableId);
+        }
+        return table;
+    }
+
+}
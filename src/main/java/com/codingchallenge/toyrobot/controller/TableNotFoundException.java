@@ -0,0 +1,13 @@
+package com.codingchallenge.toyrobot.controller;
+
+import lombok.Getter;
+
+@Getter
+public class TableNotFoundException extends RuntimeException {
+    private String tableId;
+
+    public TableNotFoundException(String tableId) {
+        super(String.format("Table [%s] not found", tableId));
+        this.tableId = tableId;
+    }
+}
@@ -0,0 +1,11 @@
+package com.codingchallenge.toyrobot.domain;
+
+/**
+ * Behaviours of a robot driven by the simulation, one command each tick
+ */
+public enum BehaviourEnum {
+    // Move forward, turning around one right turn a tick when the move is ignored
+    PATROL,
+    // Move forward half the time, otherwise turn left or right
+    RANDOM_WALK
+}
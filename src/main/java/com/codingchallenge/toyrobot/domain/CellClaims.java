@@ -0,0 +1,47 @@
+package com.codingchallenge.toyrobot.domain;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exclusive claims on the cells of a table where robots collide.
+ * <p>
+ * A robot claims the cell it is entering with a single compare-and-swap style put before its own state changes and
+ * releases the cell it left afterwards, so conflicting robots are resolved per cell without any table wide lock.
+ */
+public class CellClaims {
+
+    // Results of a claim
+    public static final int CLAIMED = 0;
+    public static final int OCCUPIED = 1;
+    public static final int HELD = 2;
+
+    private final ConcurrentHashMap<Long, Robot> cells = new ConcurrentHashMap<>();
+
+    /**
+     * Claim the cell of the (placed) state for the robot
+     *
+     * @param state
+     * @param robot
+     * @return {@link #CLAIMED}, {@link #OCCUPIED} by another robot or {@link #HELD} by this robot for another
+     * command still in flight
+     */
+    public int claim(long state, Robot robot) {
+        Robot holder = cells.putIfAbsent(RobotState.cell(state), robot);
+        return holder == null ? CLAIMED : holder == robot ? HELD : OCCUPIED;
+    }
+
+    /**
+     * Release the robot's claim on the cell of the (placed) state
+     */
+    public void release(long state, Robot robot) {
+        cells.remove(RobotState.cell(state), robot);
+    }
+
+    /**
+     * Robot holding the cell or null when it is free
+     */
+    public Robot holder(int x, int y) {
+        return cells.get(RobotState.cell(RobotState.of(x, y, 0)));
+    }
+
+}
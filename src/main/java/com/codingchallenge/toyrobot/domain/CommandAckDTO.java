@@ -0,0 +1,23 @@
+package com.codingchallenge.toyrobot.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@ToString
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CommandAckDTO {
+    // Commands executed since the previous acknowledgement
+    private long commands;
+    // Reports of those commands in order
+    private List<IRobotLocation> reports;
+    // Reason the rest of the message was rejected
+    private String error;
+}
@@ -0,0 +1,155 @@
+package com.codingchallenge.toyrobot.domain;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Arrays;
+
+/**
+ * A fleet of stateless robots stored as columns, one array each for x, y and direction indexed by robot number.
+ * <p>
+ * Each robot moves as if alone on its own copy of the table, so a command broadcast to a range of robots is a loop over
+ * the columns without dependencies between robots. Without obstacles the loops are branch free, turns are looked up
+ * from a constant and moves are computed from the direction ordinal and clamped at the table edge, so the JIT can
+ * unroll and vectorise them. A robot not on the grid has x and y of -1. The robots are split into groups of
+ * consecutive robot numbers. Not thread safe, callers serialise commands on a fleet.
+ */
+@ToString(of = {"id", "size", "groups", "table"})
+public class Fleet {
+
+    private static final int NOT_PLACED = -1;
+    private static final int DIRECTIONS = DirectionEnum.values().length;
+
+    // Direction ordinal after turning, 2 bits per direction ordinal
+    private static final int LEFT = packDirections(TurnEnum.LEFT);
+    private static final int RIGHT = packDirections(TurnEnum.RIGHT);
+
+    @Getter
+    private final String id;
+    @Getter
+    private final Table table;
+    @Getter
+    private final int size;
+    @Getter
+    private final int groups;
+    private final int[] x;
+    private final int[] y;
+    private final byte[] direction;
+
+    public Fleet(String id, Table table, int size, int groups) {
+        if (size < 1 || groups < 1 || groups > size) {
+            throw new IllegalArgumentException(String.format("Invalid fleet of %d robots in %d groups", size, groups));
+        }
+        this.id = id;
+        this.table = table;
+        this.size = size;
+        this.groups = groups;
+        this.x = new int[size];
+        this.y = new int[size];
+        this.direction = new byte[size];
+        Arrays.fill(x, NOT_PLACED);
+        Arrays.fill(y, NOT_PLACED);
+    }
+
+    /**
+     * First robot of a group, {@link #getSize()} for the group after the last
+     */
+    public int groupStart(int group) {
+        if (group < 0 || group > groups) {
+            throw new IllegalArgumentException(String.format("Invalid group %d of %d", group, groups));
+        }
+        return (int) ((long) size * group / groups);
+    }
+
+    /**
+     * Packed state of a robot, {@link RobotState#EMPTY} when it is not on the grid
+     */
+    public long state(int robot) {
+        checkRobot(robot);
+        return x[robot] == NOT_PLACED ? RobotState.EMPTY : RobotState.of(x[robot], y[robot], direction[robot]);
+    }
+
+    /**
+     * Place the robots from robot up to but not including to, ignored when the location is not open
+     */
+    public void place(int from, int to, int placeX, int placeY, DirectionEnum placeDirection) {
+        checkRange(from, to);
+        if (!table.isOpen(placeX, placeY)) {
+            return;
+        }
+        Arrays.fill(x, from, to, placeX);
+        Arrays.fill(y, from, to, placeY);
+        Arrays.fill(direction, from, to, (byte) placeDirection.ordinal());
+    }
+
+    /**
+     * Move the robots from robot up to but not including to forward one square, robots not on the grid stay off it
+     */
+    public void move(int from, int to) {
+        checkRange(from, to);
+        if (table.getObstacles() != null) {
+            moveAroundObstacles(from, to);
+            return;
+        }
+        int maxX = table.getMaxX();
+        int maxY = table.getMaxY();
+        for (int i = from; i < to; ++i) {
+            int d = direction[i];
+            int robotX = x[i];
+            int robotY = y[i];
+            // All bits set for a robot on the grid, clear for a robot off it which then keeps -1 as its lower bound
+            int placed = ~(robotX >> 31);
+            // NORTH, SOUTH, EAST, WEST: odd ordinals step backwards, EAST and WEST step along x
+            int sign = (1 - ((d & 1) << 1)) & placed;
+            int dx = (d >> 1) * sign;
+            int dy = (1 - (d >> 1)) * sign;
+            x[i] = Math.min(Math.max(robotX + dx, robotX & ~placed), maxX);
+            y[i] = Math.min(Math.max(robotY + dy, robotY & ~placed), maxY);
+        }
+    }
+
+    /**
+     * Turn the robots from robot up to but not including to
+     */
+    public void turn(int from, int to, TurnEnum turn) {
+        checkRange(from, to);
+        int turns = turn == TurnEnum.LEFT ? LEFT : RIGHT;
+        for (int i = from; i < to; ++i) {
+            direction[i] = (byte) ((turns >>> (direction[i] << 1)) & 3);
+        }
+    }
+
+    private void moveAroundObstacles(int from, int to) {
+        for (int i = from; i < to; ++i) {
+            if (x[i] != NOT_PLACED) {
+                int nextX = x[i] + RobotState.dx(direction[i]);
+                int nextY = y[i] + RobotState.dy(direction[i]);
+                if (table.isOpen(nextX, nextY)) {
+                    x[i] = nextX;
+                    y[i] = nextY;
+                }
+            }
+        }
+    }
+
+    private void checkRobot(int robot) {
+        if (robot < 0 || robot >= size) {
+            throw new IllegalArgumentException(String.format("Invalid robot %d of %d", robot, size));
+        }
+    }
+
+    private void checkRange(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IllegalArgumentException(String.format("Invalid robots %d to %d of %d", from, to, size));
+        }
+    }
+
+    private static int packDirections(TurnEnum turn) {
+        int packed = 0;
+        for (int d = 0; d < DIRECTIONS; ++d) {
+            packed |= RobotState.turnDirection(d, turn.ordinal()) << (d << 1);
+        }
+        return packed;
+    }
+
+}
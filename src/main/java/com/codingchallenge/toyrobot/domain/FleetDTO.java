@@ -0,0 +1,18 @@
+package com.codingchallenge.toyrobot.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@AllArgsConstructor
+@ToString
+public class FleetDTO {
+    private final String id;
+    // Robots of the fleet, numbered from 0
+    private final int robots;
+    // Groups of consecutive robots commands can be broadcast to
+    private final int groups;
+    private final int width;
+    private final int height;
+}
@@ -0,0 +1,154 @@
+package com.codingchallenge.toyrobot.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Blocked cells of a table as a bitset, one bit per cell in row major order.
+ * <p>
+ * The binary format is a 16 byte header (magic, width, height, reserved int) followed by the bitset as little endian
+ * longs. The bits are read straight from the buffer which may be on-heap, off-heap or a memory mapped file, so
+ * loading a map costs no parsing and a blocked cell lookup is a single bit test.
+ */
+@Getter
+public final class ObstacleMap {
+
+    // "TROB" obstacle map file marker
+    public static final int MAGIC = 0x54524F42;
+    private static final int HEADER_BYTES = 16;
+
+    private final int width;
+    private final int height;
+    @Getter(AccessLevel.NONE)
+    private final ByteBuffer buffer;
+    @Getter(AccessLevel.NONE)
+    private final LongBuffer words;
+
+    private ObstacleMap(ByteBuffer buffer) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not an obstacle map");
+        }
+        this.width = buffer.getInt(4);
+        this.height = buffer.getInt(8);
+        long size = byteSize(width, height);
+        if (buffer.capacity() != size) {
+            throw new IllegalArgumentException(String.format("Obstacle map [%dx%d] requires %d bytes, found %d",
+                    width, height, size, buffer.capacity()));
+        }
+        this.buffer = buffer;
+        ByteBuffer bits = buffer.duplicate();
+        // Buffer casts keep the class usable on Java 8 where the ByteBuffer overrides do not exist
+        ((Buffer) bits).position(HEADER_BYTES);
+        this.words = bits.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+    }
+
+    /**
+     * New map without obstacles held on-heap
+     *
+     * @param width
+     * @param height
+     * @return
+     */
+    public static ObstacleMap allocate(int width, int height) {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(byteSize(width, height))).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, width);
+        buffer.putInt(8, height);
+        return new ObstacleMap(buffer);
+    }
+
+    /**
+     * Memory map a read only obstacle map file
+     *
+     * @param path
+     * @return
+     * @throws IOException
+     */
+    public static ObstacleMap map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new ObstacleMap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Read an obstacle map into an off-heap buffer, the header is checked against the table before the buffer is
+     * allocated so an untrusted header can not reserve more memory than the table's map
+     *
+     * @param channel
+     * @param width   table width the map must have
+     * @param height  table height the map must have
+     * @return
+     * @throws IOException
+     */
+    public static ObstacleMap read(ReadableByteChannel channel, int width, int height) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header);
+        if (header.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not an obstacle map");
+        }
+        if (header.getInt(4) != width || header.getInt(8) != height) {
+            throw new IllegalArgumentException(String.format("Obstacle map [%dx%d] does not match table [%dx%d]",
+                    header.getInt(4), header.getInt(8), width, height));
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.toIntExact(byteSize(width, height)));
+        ((Buffer) header).flip();
+        buffer.put(header);
+        readFully(channel, buffer);
+        return new ObstacleMap(buffer);
+    }
+
+    public boolean isBlocked(int x, int y) {
+        long bit = (long) y * width + x;
+        return (words.get((int) (bit >>> 6)) & (1L << bit)) != 0;
+    }
+
+    /**
+     * Block a cell, only maps created by {@link #allocate(int, int)} can be changed
+     */
+    public void block(int x, int y) {
+        long bit = (long) y * width + x;
+        int word = (int) (bit >>> 6);
+        words.put(word, words.get(word) | (1L << bit));
+    }
+
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer bytes = buffer.duplicate();
+        ((Buffer) bytes).clear();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private static long byteSize(int width, int height) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException(String.format("Invalid obstacle map size [%dx%d]", width, height));
+        }
+        long size = HEADER_BYTES + (((long) width * height + 63) >>> 6) * Long.BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Obstacle map [%dx%d] is too large", width, height));
+        }
+        return size;
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Obstacle map is truncated");
+            }
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.codingchallenge.toyrobot.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Grid hash of the robots on a shared table.
+ * <p>
+ * The table is divided in square buckets and only occupied buckets are held, so memory scales with the number of
+ * robots rather than the table area. A robot is re-indexed only when it crosses into another bucket, queries check
+ * the robot state itself so they never report a robot which has since moved away.
+ */
+public class OccupancyIndex {
+
+    // Buckets are 64x64 cells
+    private static final int BUCKET_SHIFT = 6;
+
+    private final ConcurrentHashMap<Long, Set<Robot>> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Bring the robot's index entry in line with its current state
+     *
+     * @param robot
+     */
+    public void update(Robot robot) {
+        if (bucketOf(robot.getState().get()) == robot.getIndexedBucket()) {
+            return;
+        }
+        // Per robot lock so concurrent commands on the same robot re-index in order, other robots never contend
+        synchronized (robot) {
+            long bucket = bucketOf(robot.getState().get());
+            long indexed = robot.getIndexedBucket();
+            // A command changing the state while the robot is re-indexed may have seen the old bucket and returned
+            // above, so re-index until the state read after the bucket is recorded still falls in it
+            while (bucket != indexed) {
+                move(robot, indexed, bucket);
+                robot.setIndexedBucket(bucket);
+                indexed = bucket;
+                bucket = bucketOf(robot.getState().get());
+            }
+        }
+    }
+
+    private void move(Robot robot, long from, long to) {
+        if (from != Robot.NOT_INDEXED) {
+            buckets.computeIfPresent(from, (key, robots) -> robots.remove(robot) && robots.isEmpty() ? null : robots);
+        }
+        if (to != Robot.NOT_INDEXED) {
+            buckets.compute(to, (key, robots) -> {
+                Set<Robot> bucketRobots = robots != null ? robots : ConcurrentHashMap.newKeySet();
+                bucketRobots.add(robot);
+                return bucketRobots;
+            });
+        }
+    }
+
+    /**
+     * Robots at the x,y location
+     */
+    public List<Robot> at(int x, int y) {
+        return within(x, y, x, y);
+    }
+
+    /**
+     * Robots inside the rectangle from minX,minY to maxX,maxY inclusive
+     */
+    public List<Robot> within(int minX, int minY, int maxX, int maxY) {
+        List<Robot> found = new ArrayList<>();
+        long minBucketX = minX >> BUCKET_SHIFT;
+        long minBucketY = minY >> BUCKET_SHIFT;
+        long maxBucketX = maxX >> BUCKET_SHIFT;
+        long maxBucketY = maxY >> BUCKET_SHIFT;
+        if ((maxBucketX - minBucketX + 1) * (maxBucketY - minBucketY + 1) <= buckets.size()) {
+            for (long bucketX = minBucketX; bucketX <= maxBucketX; ++bucketX) {
+                for (long bucketY = minBucketY; bucketY <= maxBucketY; ++bucketY) {
+                    Set<Robot> robots = buckets.get(bucketKey(bucketX, bucketY));
+                    if (robots != null) {
+                        collect(robots, minX, minY, maxX, maxY, found);
+                    }
+                }
+            }
+        } else {
+            // Fewer occupied buckets than the rectangle covers, scan the occupied ones
+            for (Map.Entry<Long, Set<Robot>> entry : buckets.entrySet()) {
+                long bucketX = entry.getKey() >>> 32;
+                long bucketY = entry.getKey() & 0xFFFFFFFFL;
+                if (bucketX >= minBucketX && bucketX <= maxBucketX && bucketY >= minBucketY && bucketY <= maxBucketY) {
+                    collect(entry.getValue(), minX, minY, maxX, maxY, found);
+                }
+            }
+        }
+        return found;
+    }
+
+    private static void collect(Set<Robot> robots, int minX, int minY, int maxX, int maxY, List<Robot> found) {
+        for (Robot robot : robots) {
+            long state = robot.getState().get();
+            if (RobotState.isPlaced(state)) {
+                int x = RobotState.x(state);
+                int y = RobotState.y(state);
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                    found.add(robot);
+                }
+            }
+        }
+    }
+
+    private static long bucketOf(long state) {
+        return RobotState.isPlaced(state) ?
+                bucketKey(RobotState.x(state) >> BUCKET_SHIFT, RobotState.y(state) >> BUCKET_SHIFT) :
+                Robot.NOT_INDEXED;
+    }
+
+    private static long bucketKey(long bucketX, long bucketY) {
+        return bucketX << 32 | bucketY;
+    }
+
+}
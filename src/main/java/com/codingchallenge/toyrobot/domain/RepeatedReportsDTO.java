@@ -0,0 +1,19 @@
+package com.codingchallenge.toyrobot.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Reports of a REPEAT block sent once with the number of times they repeat, a run of identical reports has a single
+ * report
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class RepeatedReportsDTO implements IRobotLocation {
+    private final long count;
+    private final List<IRobotLocation> reports;
+}
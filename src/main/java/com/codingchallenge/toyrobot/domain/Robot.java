@@ -0,0 +1,39 @@
+package com.codingchallenge.toyrobot.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A robot and its packed {@link RobotState}, all state changes are compare-and-swap updates of the single long
+ */
+@Getter
+@ToString(of = {"id", "state"})
+public class Robot {
+    static final long NOT_INDEXED = -1L;
+
+    private final String id;
+    private final Table table;
+    private final AtomicLong state = new AtomicLong(RobotState.EMPTY);
+
+    // Occupancy bucket the robot is indexed under on a shared table, only changed under the robot monitor
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.PACKAGE)
+    private volatile long indexedBucket = NOT_INDEXED;
+
+    // Handle of the robot in the journal, 0 when its changes are not journaled
+    @Setter
+    private volatile int journalHandle;
+
+    // Commands applied to the robot, null when history is not recorded
+    @Setter
+    private RobotHistory history;
+
+    public Robot(String id, Table table) {
+        this.id = id;
+        this.table = table;
+    }
+}
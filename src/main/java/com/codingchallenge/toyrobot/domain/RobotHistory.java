@@ -0,0 +1,242 @@
+package com.codingchallenge.toyrobot.domain;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compact history of the states of a robot after each command applied to it.
+ * <p>
+ * Each command is stored as the change it made to the previous state, a one byte entry for moves, turns and ignored
+ * commands and a full state otherwise, followed by the variable length milliseconds since the previous command.
+ * A checkpoint of the state is taken every checkpoint interval commands, so a point in time query replays at most
+ * one interval of entries from the nearest checkpoint.
+ * <p>
+ * A history that can not grow any further stops recording and is flagged as truncated, commands are still applied to
+ * the robot and queries answer up to the last recorded command.
+ */
+public class RobotHistory {
+
+    // Entry types
+    private static final byte SAME = 0;
+    private static final byte MOVE = 1;
+    private static final byte LEFT = 2;
+    private static final byte RIGHT = 3;
+    private static final byte STATE = 4;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MAX_LENGTH = Integer.MAX_VALUE - 8;
+    // Longest entry, a full state and the variable length elapsed time
+    private static final int MAX_ENTRY = 1 + Long.BYTES + 10;
+
+    private final int checkpointInterval;
+    private final int maxLength;
+    private byte[] entries = new byte[INITIAL_CAPACITY];
+    private int length;
+    private long commands;
+    private long lastState = RobotState.EMPTY;
+    private long lastTime;
+    private boolean truncated;
+
+    // Checkpoint k is the state after k * checkpointInterval commands and the entry offset and time of the command
+    private long[] checkpointStates = new long[INITIAL_CAPACITY];
+    private long[] checkpointTimes = new long[INITIAL_CAPACITY];
+    private int[] checkpointOffsets = new int[INITIAL_CAPACITY];
+    private int checkpoints;
+
+    /**
+     * @param checkpointInterval commands between checkpoints
+     * @param createdTime        time the robot was created, the time of command 0
+     */
+    public RobotHistory(int checkpointInterval, long createdTime) {
+        this(checkpointInterval, createdTime, MAX_LENGTH);
+    }
+
+    /**
+     * @param checkpointInterval commands between checkpoints
+     * @param createdTime        time the robot was created, the time of command 0
+     * @param maxLength          most bytes of entries before the history is truncated
+     */
+    RobotHistory(int checkpointInterval, long createdTime, int maxLength) {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        this.checkpointInterval = checkpointInterval;
+        this.maxLength = maxLength;
+        this.lastTime = createdTime;
+        checkpoint();
+    }
+
+    /**
+     * Record a command applied to the robot, nothing once the history is truncated
+     *
+     * @param state robot state, read under the history lock so the last entry is always the latest state
+     * @param time  epoch milliseconds of the command
+     */
+    public synchronized void record(AtomicLong state, long time) {
+        if (truncated || !ensureCapacity(MAX_ENTRY)) {
+            truncated = true;
+            return;
+        }
+        long current = state.get();
+        if (current == lastState) {
+            entries[length++] = SAME;
+        } else if (RobotState.isPlaced(lastState) && current == forward(lastState)) {
+            entries[length++] = MOVE;
+        } else if (RobotState.isPlaced(lastState) && current == RobotState.turn(lastState, TurnEnum.LEFT.ordinal())) {
+            entries[length++] = LEFT;
+        } else if (RobotState.isPlaced(lastState) && current == RobotState.turn(lastState, TurnEnum.RIGHT.ordinal())) {
+            entries[length++] = RIGHT;
+        } else {
+            entries[length++] = STATE;
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                entries[length++] = (byte) (current >>> shift);
+            }
+        }
+        // Clock steps backwards are recorded as no time passing
+        long elapsed = Math.max(time - lastTime, 0);
+        lastTime += elapsed;
+        for (; elapsed >= 0x80; elapsed >>>= 7) {
+            entries[length++] = (byte) (elapsed | 0x80);
+        }
+        entries[length++] = (byte) elapsed;
+        lastState = current;
+        if (++commands % checkpointInterval == 0) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Number of recorded commands
+     */
+    public synchronized long getCommands() {
+        return commands;
+    }
+
+    /**
+     * Whether commands stopped being recorded because the history is full
+     */
+    public synchronized boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Robot after a command
+     *
+     * @param command number of commands applied, 0 for the robot before its first command
+     * @return the command, its time and the robot state after it
+     */
+    public synchronized Point atCommand(long command) {
+        long target = Math.max(0, Math.min(command, commands));
+        int checkpoint = (int) (target / checkpointInterval);
+        return replay(checkpoint, target, Long.MAX_VALUE);
+    }
+
+    /**
+     * Robot at a time, after the last command applied at or before the time
+     *
+     * @param time epoch milliseconds
+     * @return the command, its time and the robot state after it
+     */
+    public synchronized Point atTime(long time) {
+        // Last checkpoint at or before the time
+        int index = Arrays.binarySearch(checkpointTimes, 0, checkpoints, time);
+        int checkpoint = index >= 0 ? index : Math.max(-index - 2, 0);
+        // Equal times may span checkpoints, the last command at the time is wanted
+        while (checkpoint + 1 < checkpoints && checkpointTimes[checkpoint + 1] <= time) {
+            checkpoint++;
+        }
+        return replay(checkpoint, commands, time);
+    }
+
+    /**
+     * Replay from a checkpoint up to the target command or the last command at or before the time
+     */
+    private Point replay(int checkpoint, long target, long time) {
+        long command = (long) checkpoint * checkpointInterval;
+        long state = checkpointStates[checkpoint];
+        long stateTime = checkpointTimes[checkpoint];
+        int offset = checkpointOffsets[checkpoint];
+        while (command < target) {
+            byte type = entries[offset++];
+            long next;
+            if (type == SAME) {
+                next = state;
+            } else if (type == MOVE) {
+                next = forward(state);
+            } else if (type == LEFT) {
+                next = RobotState.turn(state, TurnEnum.LEFT.ordinal());
+            } else if (type == RIGHT) {
+                next = RobotState.turn(state, TurnEnum.RIGHT.ordinal());
+            } else {
+                next = 0;
+                for (int i = 0; i < Long.BYTES; ++i) {
+                    next = next << 8 | (entries[offset++] & 0xFF);
+                }
+            }
+            long elapsed = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = entries[offset++];
+                elapsed |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            if (stateTime + elapsed > time) {
+                break;
+            }
+            state = next;
+            stateTime += elapsed;
+            command++;
+        }
+        return new Point(command, stateTime, state);
+    }
+
+    private void checkpoint() {
+        if (checkpoints == checkpointStates.length) {
+            int capacity = checkpoints << 1;
+            checkpointStates = Arrays.copyOf(checkpointStates, capacity);
+            checkpointTimes = Arrays.copyOf(checkpointTimes, capacity);
+            checkpointOffsets = Arrays.copyOf(checkpointOffsets, capacity);
+        }
+        checkpointStates[checkpoints] = lastState;
+        checkpointTimes[checkpoints] = lastTime;
+        checkpointOffsets[checkpoints] = length;
+        checkpoints++;
+    }
+
+    /**
+     * @return false when the entries can not grow to the extra bytes
+     */
+    private boolean ensureCapacity(int extra) {
+        if ((long) length + extra > entries.length) {
+            if ((long) length + extra > maxLength) {
+                return false;
+            }
+            long capacity = Math.min(Math.max((long) entries.length << 1, (long) length + extra), maxLength);
+            entries = Arrays.copyOf(entries, (int) capacity);
+        }
+        return true;
+    }
+
+    private static long forward(long state) {
+        int direction = RobotState.directionOrdinal(state);
+        return RobotState.of(RobotState.x(state) + RobotState.dx(direction),
+                RobotState.y(state) + RobotState.dy(direction), direction);
+    }
+
+    /**
+     * Robot state after a command
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PACKAGE)
+    public static final class Point {
+        private final long command;
+        private final long time;
+        private final long state;
+    }
+
+}
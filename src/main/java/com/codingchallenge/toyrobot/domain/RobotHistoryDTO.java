@@ -0,0 +1,22 @@
+package com.codingchallenge.toyrobot.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@ToString
+public class RobotHistoryDTO {
+    // Commands applied to the robot up to this point
+    private long command;
+    // Epoch milliseconds of the command
+    private long time;
+    // Commands recorded so far
+    private long commands;
+    // Commands stopped being recorded after the last recorded command because the history is full
+    private boolean truncated;
+    private IRobotLocation location;
+}
@@ -0,0 +1,17 @@
+package com.codingchallenge.toyrobot.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@ToString
+public class RobotPositionDTO implements IRobotLocation {
+    private String id;
+    private int x;
+    private int y;
+    private DirectionEnum direction;
+}
@@ -0,0 +1,122 @@
+package com.codingchallenge.toyrobot.domain;
+
+/**
+ * Packed, immutable robot state held in a single long so it can be updated with a plain compare-and-swap.
+ * <p>
+ * Layout: [x:31][y:31][direction:2], co-ordinates are always non-negative once the robot is on the grid.
+ * {@link #EMPTY} (all bits set) represents a robot that is not on the grid.
+ */
+public final class RobotState {
+
+    public static final long EMPTY = -1L;
+
+    private static final int X_SHIFT = 33;
+    private static final int Y_SHIFT = 2;
+    private static final long COORDINATE_MASK = 0x7FFFFFFFL;
+    private static final long DIRECTION_MASK = 0x3L;
+    private static final DirectionEnum[] DIRECTIONS = DirectionEnum.values();
+
+    // Transition tables indexed by direction ordinal, turn table is [direction << 1 | turn ordinal]
+    private static final int[] TURN_TABLE = new int[DIRECTIONS.length << 1];
+    private static final int[] DX = new int[DIRECTIONS.length];
+    private static final int[] DY = new int[DIRECTIONS.length];
+
+    static {
+        setTransitions(DirectionEnum.NORTH, DirectionEnum.WEST, DirectionEnum.EAST, 0, 1);
+        setTransitions(DirectionEnum.SOUTH, DirectionEnum.EAST, DirectionEnum.WEST, 0, -1);
+        setTransitions(DirectionEnum.EAST, DirectionEnum.NORTH, DirectionEnum.SOUTH, 1, 0);
+        setTransitions(DirectionEnum.WEST, DirectionEnum.SOUTH, DirectionEnum.NORTH, -1, 0);
+    }
+
+    private RobotState() {
+    }
+
+    /**
+     * Pack a grid location, the co-ordinates must be non-negative
+     *
+     * @param x
+     * @param y
+     * @param direction
+     * @return
+     */
+    public static long of(int x, int y, DirectionEnum direction) {
+        return of(x, y, direction.ordinal());
+    }
+
+    public static long of(int x, int y, int direction) {
+        return ((long) x << X_SHIFT) | ((long) y << Y_SHIFT) | direction;
+    }
+
+    public static boolean isPlaced(long state) {
+        return state != EMPTY;
+    }
+
+    public static int x(long state) {
+        return (int) ((state >>> X_SHIFT) & COORDINATE_MASK);
+    }
+
+    public static int y(long state) {
+        return (int) ((state >>> Y_SHIFT) & COORDINATE_MASK);
+    }
+
+    public static int directionOrdinal(long state) {
+        return (int) (state & DIRECTION_MASK);
+    }
+
+    public static DirectionEnum direction(long state) {
+        return DIRECTIONS[directionOrdinal(state)];
+    }
+
+    /**
+     * Location without the direction, equal for states on the same cell
+     */
+    public static long cell(long state) {
+        return state >>> Y_SHIFT;
+    }
+
+    /**
+     * Same location after turning, the turn is a {@link TurnEnum} ordinal
+     */
+    public static long turn(long state, int turn) {
+        return (state & ~DIRECTION_MASK) | turnDirection(directionOrdinal(state), turn);
+    }
+
+    /**
+     * Direction ordinal after turning from the direction ordinal
+     */
+    public static int turnDirection(int direction, int turn) {
+        return TURN_TABLE[direction << 1 | turn];
+    }
+
+    /**
+     * X step of one move forward in the direction ordinal
+     */
+    public static int dx(int direction) {
+        return DX[direction];
+    }
+
+    /**
+     * Y step of one move forward in the direction ordinal
+     */
+    public static int dy(int direction) {
+        return DY[direction];
+    }
+
+    /**
+     * Unpack to a location, null when the robot is not on the grid
+     *
+     * @param state
+     * @return
+     */
+    public static RobotLocation toLocation(long state) {
+        return isPlaced(state) ? new RobotLocation(x(state), y(state), direction(state)) : null;
+    }
+
+    private static void setTransitions(DirectionEnum direction, DirectionEnum left, DirectionEnum right, int dx, int dy) {
+        TURN_TABLE[direction.ordinal() << 1 | TurnEnum.LEFT.ordinal()] = left.ordinal();
+        TURN_TABLE[direction.ordinal() << 1 | TurnEnum.RIGHT.ordinal()] = right.ordinal();
+        DX[direction.ordinal()] = dx;
+        DY[direction.ordinal()] = dy;
+    }
+
+}
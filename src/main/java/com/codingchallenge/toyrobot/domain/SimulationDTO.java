@@ -0,0 +1,18 @@
+package com.codingchallenge.toyrobot.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@AllArgsConstructor
+@ToString
+public class SimulationDTO {
+    // Robots driven by the simulation
+    private final int robots;
+    private final long ticks;
+    // Commands applied to simulated robots
+    private final long steps;
+    // Ticks a second, 0 when paused
+    private final int tickRate;
+}
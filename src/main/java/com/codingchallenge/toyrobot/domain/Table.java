@@ -0,0 +1,103 @@
+package com.codingchallenge.toyrobot.domain;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Table top the robots move on, from 0,0 to width-1,height-1 inclusive.
+ * <p>
+ * A private table only bounds the movement of its robots, a shared table also indexes where its robots are so
+ * occupancy can be queried. Robots on a shared table with collisions can not enter a cell held by another robot.
+ * Robots can never enter a cell blocked by the table's {@link ObstacleMap}.
+ * <p>
+ * Each obstacle map set on a table is given a new layout version, unique across tables, so caches can key on the
+ * layout without holding on to replaced maps.
+ */
+@Getter
+@ToString(exclude = {"occupancy", "cells", "obstacles"})
+public class Table {
+    private static final AtomicLong LAYOUT_VERSIONS = new AtomicLong();
+
+    private final String id;
+    private final int width;
+    private final int height;
+    private final OccupancyIndex occupancy;
+    private final CellClaims cells;
+    private volatile ObstacleMap obstacles;
+    // Version of the obstacles, 0 without obstacles
+    private volatile long layoutVersion;
+
+    public Table(String id, int width, int height, boolean shared) {
+        this(id, width, height, shared, false);
+    }
+
+    public Table(String id, int width, int height, boolean shared, boolean collisions) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException(String.format("Invalid table size [%dx%d]", width, height));
+        }
+        this.id = id;
+        this.width = width;
+        this.height = height;
+        this.occupancy = shared || collisions ? new OccupancyIndex() : null;
+        this.cells = collisions ? new CellClaims() : null;
+    }
+
+    public int getMaxX() {
+        return width - 1;
+    }
+
+    public int getMaxY() {
+        return height - 1;
+    }
+
+    public boolean contains(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    /**
+     * On the table and not blocked by an obstacle
+     */
+    public boolean isOpen(int x, int y) {
+        ObstacleMap blocked = obstacles;
+        return contains(x, y) && (blocked == null || !blocked.isBlocked(x, y));
+    }
+
+    /**
+     * Replace the obstacles, the map must be the same size as the table. Robots already on a newly blocked cell
+     * stay there but can not return once they leave it.
+     *
+     * @param obstacles
+     */
+    public void setObstacles(ObstacleMap obstacles) {
+        if (obstacles != null && (obstacles.getWidth() != width || obstacles.getHeight() != height)) {
+            throw new IllegalArgumentException(String.format("Obstacle map [%dx%d] does not match table [%dx%d]",
+                    obstacles.getWidth(), obstacles.getHeight(), width, height));
+        }
+        this.obstacles = obstacles;
+        this.layoutVersion = obstacles != null ? LAYOUT_VERSIONS.incrementAndGet() : 0;
+    }
+
+    /**
+     * Use the obstacles of a table of the same size, keeping their layout version
+     *
+     * @param layout
+     */
+    public void copyObstacles(Table layout) {
+        if (layout.getWidth() != width || layout.getHeight() != height) {
+            throw new IllegalArgumentException(String.format("Table [%dx%d] does not match table [%dx%d]",
+                    layout.getWidth(), layout.getHeight(), width, height));
+        }
+        this.obstacles = layout.obstacles;
+        this.layoutVersion = layout.layoutVersion;
+    }
+
+    public boolean isShared() {
+        return occupancy != null;
+    }
+
+    public boolean hasCollisions() {
+        return cells != null;
+    }
+}
@@ -0,0 +1,27 @@
+package com.codingchallenge.toyrobot.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@ToString
+public class TrajectoryDTO {
+    private final long commands;
+    // Moves applied, moves ignored at the table edge or an obstacle and placements ignored off the table
+    private final long moves;
+    private final long ignoredMoves;
+    private final long ignoredPlacements;
+    private final long reports;
+    // Cells entered by a placement or a move, counting each time a cell is entered
+    private final long visits;
+    // Distinct cells visited
+    private final long visitedCells;
+    // Visited cells as runs of adjacent cells along x in row major order, each [x, y, length]
+    private final List<int[]> visited;
+    // Location after the last command
+    private final IRobotLocation location;
+}
@@ -0,0 +1,183 @@
+package com.codingchallenge.toyrobot.domain;
+
+import java.util.Arrays;
+
+/**
+ * Set of table cells held as a sparse bitmap of 64 x 64 cell tiles, one long per row of a tile.
+ * <p>
+ * A tile is allocated the first time one of its cells is added, so a trajectory across a table of any size takes
+ * about a bit per cell of the tiles it passes through rather than a bit per cell of the table. Tiles are found by
+ * their packed tile co-ordinates in an open addressing table, consecutive cells are mostly on the last tile found.
+ * Adding a cell only allocates when the tiles or the table grow. Not thread safe.
+ */
+public final class VisitedCells {
+
+    private static final int TILE_SHIFT = 6;
+    private static final int TILE_MASK = (1 << TILE_SHIFT) - 1;
+    private static final int TILE_WORDS = 1 << TILE_SHIFT;
+    // Tile x of a co-ordinate below 2^31 fits 25 bits
+    private static final int KEY_SHIFT = 31 - TILE_SHIFT;
+    private static final long NO_KEY = -1L;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    // First word of the tile of each key
+    private int[] bases = new int[INITIAL_CAPACITY];
+    private long[] words = new long[TILE_WORDS * 4];
+    private int tiles;
+    private long size;
+    private long lastKey = NO_KEY;
+    private int lastBase;
+
+    public VisitedCells() {
+        Arrays.fill(keys, NO_KEY);
+    }
+
+    /**
+     * Add a cell, the co-ordinates must be non-negative
+     *
+     * @param x
+     * @param y
+     * @return false when the cell was already in the set
+     */
+    public boolean add(int x, int y) {
+        long key = key(x, y);
+        int base = key == lastKey ? lastBase : tile(key, true);
+        lastKey = key;
+        lastBase = base;
+        int word = base + (y & TILE_MASK);
+        long bit = 1L << x;
+        if ((words[word] & bit) != 0) {
+            return false;
+        }
+        words[word] |= bit;
+        size++;
+        return true;
+    }
+
+    public boolean contains(int x, int y) {
+        int base = tile(key(x, y), false);
+        return base >= 0 && (words[base + (y & TILE_MASK)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Number of cells in the set
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Visit the cells as runs of adjacent cells along x, in row major order
+     *
+     * @param runs
+     */
+    public void forEachRun(RunConsumer runs) {
+        long[] sorted = new long[tiles];
+        int count = 0;
+        for (long key : keys) {
+            if (key != NO_KEY) {
+                sorted[count++] = key;
+            }
+        }
+        // Keys order by tile y then tile x
+        Arrays.sort(sorted);
+        for (int first = 0; first < count; ) {
+            long tileY = sorted[first] >>> KEY_SHIFT;
+            int last = first;
+            while (last < count && sorted[last] >>> KEY_SHIFT == tileY) {
+                last++;
+            }
+            for (int row = 0; row < TILE_WORDS; ++row) {
+                int y = (int) (tileY << TILE_SHIFT) | row;
+                long runX = -1;
+                long runEnd = -1;
+                for (int tile = first; tile < last; ++tile) {
+                    long word = words[tile(sorted[tile], false) + row];
+                    long tileX = (sorted[tile] & ((1L << KEY_SHIFT) - 1)) << TILE_SHIFT;
+                    while (word != 0) {
+                        int start = Long.numberOfTrailingZeros(word);
+                        int length = Long.numberOfTrailingZeros(~(word >>> start));
+                        if (tileX + start != runEnd) {
+                            if (runX >= 0) {
+                                runs.accept((int) runX, y, (int) (runEnd - runX));
+                            }
+                            runX = tileX + start;
+                        }
+                        runEnd = tileX + start + length;
+                        word = length == Long.SIZE ? 0 : word & ~(((1L << length) - 1) << start);
+                    }
+                }
+                if (runX >= 0) {
+                    runs.accept((int) runX, y, (int) (runEnd - runX));
+                }
+            }
+            first = last;
+        }
+    }
+
+    /**
+     * Receiver of a run of length cells from x,y along x
+     */
+    @FunctionalInterface
+    public interface RunConsumer {
+        void accept(int x, int y, int length);
+    }
+
+    private static long key(int x, int y) {
+        return (long) (y >>> TILE_SHIFT) << KEY_SHIFT | x >>> TILE_SHIFT;
+    }
+
+    /**
+     * First word of the tile, allocating it when asked, -1 when it does not exist and is not allocated
+     */
+    private int tile(long key, boolean allocate) {
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (keys[index] != NO_KEY) {
+            if (keys[index] == key) {
+                return bases[index];
+            }
+            index = (index + 1) & mask;
+        }
+        if (!allocate) {
+            return -1;
+        }
+        int base = tiles * TILE_WORDS;
+        if (base + TILE_WORDS > words.length) {
+            words = Arrays.copyOf(words, words.length << 1);
+        }
+        keys[index] = key;
+        bases[index] = base;
+        // Half full at most so probes stay short
+        if (++tiles << 1 > keys.length) {
+            rehash();
+        }
+        return base;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldBases = bases;
+        keys = new long[oldKeys.length << 1];
+        bases = new int[keys.length];
+        Arrays.fill(keys, NO_KEY);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldKeys[i] != NO_KEY) {
+                int index = hash(oldKeys[i]) & mask;
+                while (keys[index] != NO_KEY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                bases[index] = oldBases[i];
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.codingchallenge.toyrobot.service;
+
+/**
+ * Endpoints with their own audit level
+ */
+public enum AuditChannel {
+    // Stateful robot commands
+    ROBOT,
+    // Cli batches
+    BATCH,
+    // Streamed cli batches
+    STREAM,
+    // Commands broadcast to fleets
+    FLEET,
+    // Robot commands applied by the simulation scheduler
+    SIMULATION
+}
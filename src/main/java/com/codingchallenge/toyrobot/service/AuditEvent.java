@@ -0,0 +1,27 @@
+package com.codingchallenge.toyrobot.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Events recorded by the {@link CommandAudit}, the value of a location event is a packed robot state
+ */
+@Getter
+@AllArgsConstructor
+public enum AuditEvent {
+    PLACE(AuditLevel.INFO, "New robot location [robot={}][currentLocation={}]", true),
+    MOVE(AuditLevel.INFO, "Robot moving [robot={}][currentLocation={}]", true),
+    TURN(AuditLevel.INFO, "Robot turning [robot={}][currentLocation={}]", true),
+    DELETE(AuditLevel.INFO, "Robot deleted [robot={}][lastLocation={}]", true),
+    MOVE_IGNORED(AuditLevel.WARN, "Move command ignored [robot={}][currentLocation={}]", true),
+    PLACE_IGNORED(AuditLevel.WARN, "Place command ignored, location occupied [robot={}][location={}]", true),
+    FLEET_PLACE(AuditLevel.INFO, "Fleet robots placed [fleet={}][robots={}]", false),
+    FLEET_MOVE(AuditLevel.INFO, "Fleet robots moving [fleet={}][robots={}]", false),
+    FLEET_TURN(AuditLevel.INFO, "Fleet robots turning [fleet={}][robots={}]", false),
+    BATCH(AuditLevel.INFO, "Batch commands [endpoint={}][commands={}]", false),
+    BATCH_SCRIPT(AuditLevel.DEBUG, "batchCliCommands={} [length={}]", false);
+
+    private final AuditLevel level;
+    private final String message;
+    private final boolean location;
+}
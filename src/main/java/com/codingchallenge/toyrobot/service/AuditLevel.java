@@ -0,0 +1,14 @@
+package com.codingchallenge.toyrobot.service;
+
+/**
+ * Audit levels, each level records the events of the levels before it
+ */
+public enum AuditLevel {
+    OFF,
+    // Ignored commands
+    WARN,
+    // Every command, cli batch sizes
+    INFO,
+    // Cli batch scripts
+    DEBUG
+}
@@ -0,0 +1,209 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.codingchallenge.toyrobot.domain.Table;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+/**
+ * Runs cli programs and batches of cli scripts on a fork join pool.
+ * <p>
+ * A folded program is split at its segments, each segment starts with a placement onto an open cell so it does not
+ * depend on the commands before it. Programs longer than the segment length are divided into halves of whole segments
+ * until each part is shorter, the parts run in parallel and write their reports straight into their place in the
+ * result, the number of reports before each segment is known from the program.
+ * <p>
+ * Commands broadcast to a fleet are split the same way, into halves of the robots until each part is no longer than
+ * the slice length.
+ */
+@Service
+public class BatchExecutor {
+
+    private final ForkJoinPool pool;
+    private final int segmentLength;
+
+    public BatchExecutor(RobotProperties robotProperties) {
+        RobotProperties.ParallelProperties parallel = robotProperties.getParallel();
+        if (parallel.getSegmentLength() < 1) {
+            throw new IllegalArgumentException("Segment length must be positive");
+        }
+        this.segmentLength = parallel.getSegmentLength();
+        this.pool = parallel.isEnabled() ? new ForkJoinPool(parallel.getParallelism() > 0 ?
+                parallel.getParallelism() : Runtime.getRuntime().availableProcessors()) : null;
+    }
+
+    /**
+     * Run the program on its own private robot on the table
+     *
+     * @param program
+     * @param table
+     * @return packed robot states of the reports in order, {@link RobotState#EMPTY} when missing
+     */
+    public long[] execute(CommandProgram program, Table table) {
+        long[] reports = new long[program.reportCount()];
+        if (pool == null || program.length() <= segmentLength || program.segmentCount() == 0) {
+            CommandInterpreter.execute(program, RobotState.EMPTY, table, new ReportWriter(reports, 0));
+        } else {
+            // Segment -1 is the commands before the first marked segment
+            pool.invoke(new SegmentTask(program, table, reports, -1, program.segmentCount()));
+        }
+        return reports;
+    }
+
+    /**
+     * Apply the function to each script in parallel
+     *
+     * @param scripts
+     * @param execute
+     * @return results in the order of the scripts
+     */
+    public <T> List<T> executeAll(List<String> scripts, Function<String, T> execute) {
+        if (pool == null || scripts.size() < 2) {
+            List<T> results = new ArrayList<>(scripts.size());
+            scripts.forEach(script -> results.add(execute.apply(script)));
+            return results;
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(scripts.size());
+        for (String script : scripts) {
+            futures.add(CompletableFuture.supplyAsync(() -> execute.apply(script), pool));
+        }
+        List<T> results = new ArrayList<>(scripts.size());
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            // Fail as the script would on the calling thread, the first failing script in order is reported
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * Apply the action to slices of a range in parallel, returning once every slice is done
+     *
+     * @param from
+     * @param to          end of the range, exclusive
+     * @param sliceLength longest slice run by one thread
+     * @param action
+     */
+    public void executeRange(int from, int to, int sliceLength, RangeAction action) {
+        if (sliceLength < 1) {
+            throw new IllegalArgumentException("Slice length must be positive");
+        }
+        if (pool == null || to - from <= sliceLength) {
+            action.apply(from, to);
+        } else {
+            pool.invoke(new RangeTask(from, to, sliceLength, action));
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (pool != null) {
+            pool.shutdown();
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Runs the segments from first up to but not including last
+     */
+    private final class SegmentTask extends RecursiveAction {
+        private final CommandProgram program;
+        private final Table table;
+        private final long[] reports;
+        private final int first;
+        private final int last;
+
+        SegmentTask(CommandProgram program, Table table, long[] reports, int first, int last) {
+            this.program = program;
+            this.table = table;
+            this.reports = reports;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            int from = start(first);
+            int to = start(last);
+            if (last - first > 1 && to - from > segmentLength) {
+                int middle = (first + last) >>> 1;
+                invokeAll(new SegmentTask(program, table, reports, first, middle),
+                        new SegmentTask(program, table, reports, middle, last));
+            } else {
+                int offset = first < 0 ? 0 : program.segmentReports(first);
+                CommandInterpreter.execute(program, from, to, RobotState.EMPTY, table,
+                        new ReportWriter(reports, offset));
+            }
+        }
+
+        private int start(int segment) {
+            return segment < 0 ? 0 : segment == program.segmentCount() ? program.length() :
+                    program.segmentStart(segment);
+        }
+    }
+
+    /**
+     * Action on the part of a range from up to but not including to
+     */
+    @FunctionalInterface
+    public interface RangeAction {
+        void apply(int from, int to);
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final int sliceLength;
+        private final RangeAction action;
+
+        RangeTask(int from, int to, int sliceLength, RangeAction action) {
+            this.from = from;
+            this.to = to;
+            this.sliceLength = sliceLength;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > sliceLength) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(from, middle, sliceLength, action), new RangeTask(middle, to, sliceLength, action));
+            } else {
+                action.apply(from, to);
+            }
+        }
+    }
+
+    private static final class ReportWriter implements LongConsumer {
+        private final long[] reports;
+        private int next;
+
+        ReportWriter(long[] reports, int next) {
+            this.reports = reports;
+            this.next = next;
+        }
+
+        @Override
+        public void accept(long state) {
+            reports[next++] = state;
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Reports of recently executed cli batches, as the packed robot states of the reports.
+ * <p>
+ * A batch runs on its own private robot so its reports depend only on the compiled program and the table layout.
+ * Keying on the compiled program makes scripts differing only in case and whitespace share an entry. Eviction is
+ * Caffeine's W-TinyLFU, hit and miss counts are published as the {@code robot.batch} cache metrics.
+ */
+@Service
+public class BatchResultCache {
+
+    private final Cache<ProgramKey, long[]> cache;
+    private final int maxCommands;
+
+    public BatchResultCache(RobotProperties robotProperties, MeterRegistry meterRegistry) {
+        RobotProperties.BatchCacheProperties properties = robotProperties.getBatchCache();
+        this.maxCommands = properties.getMaxCommands();
+        if (properties.isEnabled()) {
+            cache = Caffeine.newBuilder()
+                    .maximumSize(properties.getMaximumSize())
+                    .expireAfterAccess(properties.getExpireAfterAccess())
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "robot.batch");
+        } else {
+            cache = null;
+        }
+    }
+
+    /**
+     * Reports of the program on the table, executing it when they are not cached
+     *
+     * @param program
+     * @param table
+     * @param execute runs the program on the table
+     * @return cached reports are shared and must not be modified
+     */
+    public long[] get(CommandProgram program, Table table, Function<CommandProgram, long[]> execute) {
+        if (cache == null || program.commandCount() > maxCommands) {
+            return execute.apply(program);
+        }
+        // Looked up without copying the program, only a new entry copies it
+        ProgramKey key = new ProgramKey(program.code(), program.length(), table);
+        long[] reports = cache.getIfPresent(key);
+        if (reports == null) {
+            // Batches racing on a missing entry each execute it, the results are the same
+            reports = execute.apply(program);
+            cache.put(new ProgramKey(Arrays.copyOf(program.code(), program.length()), program.length(), table),
+                    reports);
+        }
+        return reports;
+    }
+
+    /**
+     * Compiled program and the layout of the table it runs on, obstacles by their layout version so replaced maps are
+     * not held by the cache
+     */
+    private static final class ProgramKey {
+        private final int[] code;
+        private final int length;
+        private final int maxX;
+        private final int maxY;
+        private final long layoutVersion;
+        private final int hash;
+
+        ProgramKey(int[] code, int length, Table table) {
+            this.code = code;
+            this.length = length;
+            this.maxX = table.getMaxX();
+            this.maxY = table.getMaxY();
+            this.layoutVersion = table.getLayoutVersion();
+            int h = 31 * maxX + maxY;
+            for (int i = 0; i < length; ++i) {
+                h = 31 * h + code[i];
+            }
+            this.hash = 31 * h + Long.hashCode(layoutVersion);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ProgramKey)) {
+                return false;
+            }
+            ProgramKey other = (ProgramKey) o;
+            if (hash != other.hash || length != other.length || maxX != other.maxX || maxY != other.maxY
+                    || layoutVersion != other.layoutVersion) {
+                return false;
+            }
+            for (int i = 0; i < length; ++i) {
+                if (code[i] != other.code[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.controller.UnknownCommandException;
+import com.codingchallenge.toyrobot.domain.CommandEnum;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.RobotState;
+
+import java.util.Collections;
+
+/**
+ * Compact binary encoding of cli commands and their reports, negotiated by content type alongside text and JSON.
+ * <p>
+ * Commands ({@value #COMMANDS_VALUE}) are a byte holding the {@link CommandEnum} ordinal, a PLACE is followed by its
+ * x and y as big-endian 32 bit integers and a byte holding the {@link DirectionEnum} ordinal, so every command has a
+ * fixed width of 1 or 10 bytes.
+ * <p>
+ * Reports ({@value #REPORTS_VALUE}) start with a 3 byte header: the record width in bytes (1, 2, 4 or 8), the bits of
+ * x and the bits of y. Each report follows as a big-endian record {@code x << (yBits + 2) | y << 2 | direction}, all
+ * bits set for a missing robot. The record width is the narrowest holding the largest co-ordinates reported, a 5x5
+ * table reports in a single byte per report.
+ */
+public final class BinaryProtocol {
+
+    public static final String COMMANDS_VALUE = "application/x-robot-commands";
+    public static final String REPORTS_VALUE = "application/x-robot-reports";
+
+    public static final int PLACE_BYTES = 10;
+    public static final int HEADER_BYTES = 3;
+
+    private static final int OP_PLACE = CommandEnum.PLACE.ordinal();
+    private static final int OP_MOVE = CommandEnum.MOVE.ordinal();
+    private static final int OP_LEFT = CommandEnum.LEFT.ordinal();
+    private static final int OP_RIGHT = CommandEnum.RIGHT.ordinal();
+    private static final int OP_REPORT = CommandEnum.REPORT.ordinal();
+    private static final DirectionEnum[] DIRECTIONS = DirectionEnum.values();
+    private static final int DIRECTION_BITS = 2;
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * Decode commands into the sink, the whole input is checked before any command is given to the sink
+     *
+     * @param bytes
+     * @param off
+     * @param len
+     * @param sink
+     * @return number of commands decoded
+     */
+    public static int decodeCommands(byte[] bytes, int off, int len, CommandSink sink) {
+        int end = off + len;
+        int commands = 0;
+        for (int i = off; i < end; ++commands) {
+            int op = bytes[i];
+            if (op == OP_PLACE) {
+                if (end - i < PLACE_BYTES) {
+                    throw new IllegalArgumentException(String.format("PLACE requires placement arguments at offset %d",
+                            i - off));
+                }
+                int direction = bytes[i + PLACE_BYTES - 1];
+                if (direction < 0 || direction >= DIRECTIONS.length) {
+                    throw new IllegalArgumentException(String.format("Invalid direction [%d] at offset %d",
+                            direction, i + PLACE_BYTES - 1 - off));
+                }
+                i += PLACE_BYTES;
+            } else if (op == OP_MOVE || op == OP_LEFT || op == OP_RIGHT || op == OP_REPORT) {
+                i++;
+            } else {
+                throw new UnknownCommandException(Collections.singletonList(
+                        String.format("Unknown command [%d] at offset %d", op & 0xFF, i - off)));
+            }
+        }
+        for (int i = off; i < end; ) {
+            int op = bytes[i];
+            if (op == OP_PLACE) {
+                sink.place(readInt(bytes, i + 1), readInt(bytes, i + 5), DIRECTIONS[bytes[i + 9]]);
+                i += PLACE_BYTES;
+                continue;
+            }
+            if (op == OP_MOVE) {
+                sink.move();
+            } else if (op == OP_LEFT) {
+                sink.left();
+            } else if (op == OP_RIGHT) {
+                sink.right();
+            } else {
+                sink.report();
+            }
+            i++;
+        }
+        return commands;
+    }
+
+    /**
+     * Encode reports
+     *
+     * @param states packed robot states of the reports, {@link RobotState#EMPTY} when missing
+     * @param count  number of states to encode
+     * @return
+     */
+    public static byte[] encodeReports(long[] states, int count) {
+        int maxX = -1;
+        int maxY = -1;
+        for (int i = 0; i < count; ++i) {
+            long state = states[i];
+            if (RobotState.isPlaced(state)) {
+                maxX = Math.max(maxX, RobotState.x(state));
+                maxY = Math.max(maxY, RobotState.y(state));
+            }
+        }
+        // One more than the largest co-ordinate fits, so a record of all bits set is never a location
+        int xBits = bitLength(maxX + 1);
+        int yBits = bitLength(maxY + 1);
+        int width = recordBytes(xBits + yBits + DIRECTION_BITS);
+        int yShift = yBits + DIRECTION_BITS;
+        byte[] bytes = new byte[HEADER_BYTES + count * width];
+        bytes[0] = (byte) width;
+        bytes[1] = (byte) xBits;
+        bytes[2] = (byte) yBits;
+        int pos = HEADER_BYTES;
+        for (int i = 0; i < count; ++i) {
+            long state = states[i];
+            long record = RobotState.isPlaced(state) ? (long) RobotState.x(state) << yShift
+                    | (long) RobotState.y(state) << DIRECTION_BITS | RobotState.directionOrdinal(state) : -1L;
+            for (int shift = (width - 1) << 3; shift >= 0; shift -= 8) {
+                bytes[pos++] = (byte) (record >>> shift);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Decode reports
+     *
+     * @param bytes
+     * @return packed robot states of the reports, {@link RobotState#EMPTY} when missing
+     */
+    public static long[] decodeReports(byte[] bytes) {
+        if (bytes.length < HEADER_BYTES) {
+            throw new IllegalArgumentException("Reports require a header");
+        }
+        int width = bytes[0];
+        int xBits = bytes[1];
+        int yBits = bytes[2];
+        if ((width != 1 && width != 2 && width != 4 && width != 8) || xBits < 0 || yBits < 0
+                || xBits + yBits + DIRECTION_BITS > width << 3 || (bytes.length - HEADER_BYTES) % width != 0) {
+            throw new IllegalArgumentException("Invalid report header");
+        }
+        long missing = width == 8 ? -1L : (1L << (width << 3)) - 1;
+        long yMask = (1L << yBits) - 1;
+        long[] states = new long[(bytes.length - HEADER_BYTES) / width];
+        int pos = HEADER_BYTES;
+        for (int i = 0; i < states.length; ++i) {
+            long record = 0;
+            for (int b = 0; b < width; ++b) {
+                record = record << 8 | (bytes[pos++] & 0xFF);
+            }
+            states[i] = record == missing ? RobotState.EMPTY :
+                    RobotState.of((int) (record >>> (yBits + DIRECTION_BITS)),
+                            (int) ((record >>> DIRECTION_BITS) & yMask), (int) (record & 3));
+        }
+        return states;
+    }
+
+    private static int readInt(byte[] bytes, int i) {
+        return (bytes[i] & 0xFF) << 24 | (bytes[i + 1] & 0xFF) << 16 | (bytes[i + 2] & 0xFF) << 8 | bytes[i + 3] & 0xFF;
+    }
+
+    private static int bitLength(int value) {
+        return Integer.SIZE - Integer.numberOfLeadingZeros(value);
+    }
+
+    private static int recordBytes(int bits) {
+        return bits <= 8 ? 1 : bits <= 16 ? 2 : bits <= 32 ? 4 : 8;
+    }
+
+}
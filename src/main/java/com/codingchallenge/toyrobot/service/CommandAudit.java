@@ -0,0 +1,165 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audit trail of robot commands kept off the command hot path.
+ * <p>
+ * Commands record an event into a pre-allocated ring buffer, claiming a slot is a single CAS and nothing is
+ * formatted or allocated by the caller. A background thread drains the ring in order and writes the events to the
+ * log. When the ring is full events are dropped and counted rather than blocking the command. Events are filtered
+ * by the audit level of their endpoint and optionally sampled.
+ */
+@Service
+@Slf4j
+public class CommandAudit {
+
+    // Pause of the drain thread when the ring is empty
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final AuditEvent[] EVENTS = AuditEvent.values();
+
+    private final int[] levels = new int[AuditChannel.values().length];
+    private final int sampleRate;
+    private final int mask;
+
+    // Ring slots, a slot is readable once its published sequence matches
+    private final int[] events;
+    private final Object[] subjects;
+    private final long[] values;
+    private final AtomicLongArray published;
+
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail;
+    private final LongAdder dropped = new LongAdder();
+
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    public CommandAudit(RobotProperties robotProperties) {
+        RobotProperties.AuditProperties audit = robotProperties.getAudit();
+        for (AuditChannel channel : AuditChannel.values()) {
+            levels[channel.ordinal()] = audit.level(channel).ordinal();
+        }
+        if (audit.getBufferSize() < 1 || audit.getSampleRate() < 1) {
+            throw new IllegalArgumentException("Audit buffer size and sample rate must be positive");
+        }
+        this.sampleRate = audit.getSampleRate();
+        int capacity = Integer.highestOneBit(Math.max(audit.getBufferSize() - 1, 1)) << 1;
+        this.mask = capacity - 1;
+        this.events = new int[capacity];
+        this.subjects = new Object[capacity];
+        this.values = new long[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; ++i) {
+            published.set(i, -1);
+        }
+        drainer = new Thread(this::drain, "command-audit");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Whether events of the level are recorded for the endpoint, callers check it before doing any work for an event
+     *
+     * @param channel
+     * @param level
+     * @return
+     */
+    public boolean isEnabled(AuditChannel channel, AuditLevel level) {
+        return levels[channel.ordinal()] >= level.ordinal();
+    }
+
+    /**
+     * Record an event when its level is enabled for the endpoint and it is sampled
+     *
+     * @param channel
+     * @param event
+     * @param subject robot id or batch script
+     * @param value   packed robot state of location events, otherwise a count
+     */
+    public void record(AuditChannel channel, AuditEvent event, Object subject, long value) {
+        if (!isEnabled(channel, event.getLevel())
+                || (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0)) {
+            return;
+        }
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail > mask) {
+                dropped.increment();
+                return;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+        int slot = (int) sequence & mask;
+        events[slot] = event.ordinal();
+        subjects[slot] = subject;
+        values[slot] = value;
+        // Ordered write publishes the slot contents to the drain thread
+        published.lazySet(slot, sequence);
+    }
+
+    /**
+     * Events dropped because the ring was full
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Events recorded but not yet written
+     */
+    public long getPending() {
+        return head.get() - tail;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(drainer);
+        drainer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void drain() {
+        long next = tail;
+        while (running || next != head.get()) {
+            int slot = (int) next & mask;
+            if (published.get(slot) != next) {
+                LockSupport.parkNanos(IDLE_NANOS);
+                continue;
+            }
+            AuditEvent event = EVENTS[events[slot]];
+            Object subject = subjects[slot];
+            long value = values[slot];
+            subjects[slot] = null;
+            tail = ++next;
+            write(event, subject, value);
+        }
+    }
+
+    private static void write(AuditEvent event, Object subject, long value) {
+        Object detail = event.isLocation() ? RobotState.toLocation(value) : value;
+        switch (event.getLevel()) {
+            case WARN:
+                log.warn(event.getMessage(), subject, detail);
+                break;
+            case INFO:
+                log.info(event.getMessage(), subject, detail);
+                break;
+            default:
+                log.debug(event.getMessage(), subject, detail);
+                break;
+        }
+    }
+
+}
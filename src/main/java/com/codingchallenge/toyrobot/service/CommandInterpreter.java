@@ -0,0 +1,119 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.domain.ObstacleMap;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.domain.TurnEnum;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Executes a {@link CommandProgram} for a private robot.
+ * <p>
+ * Robot state is held in local primitives and moves/turns are table lookups, the only output is the packed
+ * {@link RobotState} handed to the report consumer for each REPORT ({@link RobotState#EMPTY} when missing).
+ * A run of moves folded by the {@link CommandOptimizer} is a single displacement clamped at the table edge, only
+ * tables with obstacles step along it, at most the width or height of the table.
+ */
+public final class CommandInterpreter {
+
+    private static final int LEFT = TurnEnum.LEFT.ordinal();
+    private static final int RIGHT = TurnEnum.RIGHT.ordinal();
+
+    private CommandInterpreter() {
+    }
+
+    /**
+     * Run the program on a table
+     *
+     * @param program
+     * @param state   robot state the program starts from
+     * @param table
+     * @param reports
+     * @return robot state at the end of the program
+     */
+    public static long execute(CommandProgram program, long state, Table table, LongConsumer reports) {
+        return execute(program, 0, program.length(), state, table, reports);
+    }
+
+    /**
+     * Run part of the program on a table
+     *
+     * @param program
+     * @param from    code offset of the first command
+     * @param to      code offset after the last command
+     * @param state   robot state the commands start from
+     * @param table
+     * @param reports
+     * @return robot state after the last command
+     */
+    public static long execute(CommandProgram program, int from, int to, long state, Table table,
+                               LongConsumer reports) {
+        int maxX = table.getMaxX();
+        int maxY = table.getMaxY();
+        ObstacleMap obstacles = table.getObstacles();
+        int[] code = program.code();
+        boolean placed = RobotState.isPlaced(state);
+        int x = placed ? RobotState.x(state) : 0;
+        int y = placed ? RobotState.y(state) : 0;
+        int direction = placed ? RobotState.directionOrdinal(state) : 0;
+        int pc = from;
+        while (pc < to) {
+            int op = code[pc++];
+            if (op == CommandProgram.OP_MOVE) {
+                if (placed) {
+                    int nextX = x + RobotState.dx(direction);
+                    int nextY = y + RobotState.dy(direction);
+                    if (nextX >= 0 && nextX <= maxX && nextY >= 0 && nextY <= maxY
+                            && (obstacles == null || !obstacles.isBlocked(nextX, nextY))) {
+                        x = nextX;
+                        y = nextY;
+                    }
+                }
+            } else if (op == CommandProgram.OP_MOVES) {
+                int count = code[pc++];
+                if (placed) {
+                    int dx = RobotState.dx(direction);
+                    int dy = RobotState.dy(direction);
+                    int steps = Math.min(count, dx > 0 ? maxX - x : dx < 0 ? x : dy > 0 ? maxY - y : y);
+                    if (obstacles != null) {
+                        // Stop in front of the first obstacle, later moves of the run are blocked by it too
+                        int step = 0;
+                        while (step < steps && !obstacles.isBlocked(x + dx * (step + 1), y + dy * (step + 1))) {
+                            step++;
+                        }
+                        steps = step;
+                    }
+                    x += dx * steps;
+                    y += dy * steps;
+                }
+            } else if (op == CommandProgram.OP_TURNS) {
+                for (int quarters = code[pc++]; quarters > 0; --quarters) {
+                    direction = RobotState.turnDirection(direction, RIGHT);
+                }
+            } else if (op == CommandProgram.OP_LEFT) {
+                direction = RobotState.turnDirection(direction, LEFT);
+            } else if (op == CommandProgram.OP_RIGHT) {
+                direction = RobotState.turnDirection(direction, RIGHT);
+            } else if (op == CommandProgram.OP_REPORT) {
+                reports.accept(placed ? RobotState.of(x, y, direction) : RobotState.EMPTY);
+            } else if (op == CommandProgram.OP_PLACE) {
+                int placeX = code[pc++];
+                int placeY = code[pc++];
+                int placeDirection = code[pc++];
+                // Placements off the grid or on an obstacle are ignored
+                if (placeX >= 0 && placeX <= maxX && placeY >= 0 && placeY <= maxY
+                        && (obstacles == null || !obstacles.isBlocked(placeX, placeY))) {
+                    placed = true;
+                    x = placeX;
+                    y = placeY;
+                    direction = placeDirection;
+                }
+            } else {
+                throw new IllegalArgumentException("Unsupported robot command");
+            }
+        }
+        return placed ? RobotState.of(x, y, direction) : RobotState.EMPTY;
+    }
+
+}
@@ -0,0 +1,229 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.Table;
+
+/**
+ * Folds cli commands into an equivalent shorter {@link CommandProgram} for a table as they are scanned.
+ * <p>
+ * A run of MOVEs becomes a single MOVES, executed as one clamped displacement, and a run of LEFTs and RIGHTs becomes
+ * its net turn (dropped when the turns cancel out). Commands between a REPORT and a PLACE onto an open cell of the
+ * table can not change any report so they are dropped, the placement starts a new segment of the program. Each
+ * command costs a constant amount of work and the folded program reports the same locations as the commands.
+ * <p>
+ * Runs are not folded across the start or end of a REPEAT block and a placement does not drop commands before either.
+ * Segments are only marked outside blocks.
+ */
+public final class CommandOptimizer implements CommandSink {
+
+    // Right quarter turns of each turn, a left turn is three right turns
+    private static final int LEFT_QUARTERS = 3;
+    private static final int RIGHT_QUARTERS = 1;
+
+    private final Table table;
+    private final CommandProgram program;
+
+    // Pending runs, not yet appended to the program
+    private int moves;
+    private int quarters;
+    private int turns;
+    private int lastTurn;
+
+    // Program after the last REPORT, where a placement onto an open cell restarts it
+    private int reportLength;
+    private int reportCommands;
+    private int commandCount;
+
+    /**
+     * @param table   table the program runs on
+     * @param program given the folded commands
+     */
+    public CommandOptimizer(Table table, CommandProgram program) {
+        this.table = table;
+        this.program = program;
+    }
+
+    /**
+     * Fold a program compiled by the {@link CommandScanner}
+     *
+     * @param program
+     * @param table     table the program runs on
+     * @param optimized cleared and given the folded program
+     */
+    public static void optimize(CommandProgram program, Table table, CommandProgram optimized) {
+        CommandOptimizer optimizer = new CommandOptimizer(table, optimized);
+        optimizer.clear();
+        int[] code = program.code();
+        int length = program.length();
+        // Ends of the blocks not yet ended, innermost last
+        int[] blockEnds = new int[program.blockCount()];
+        int openBlocks = 0;
+        int pc = 0;
+        while (pc < length) {
+            while (openBlocks > 0 && blockEnds[openBlocks - 1] == pc) {
+                optimizer.endRepeat();
+                openBlocks--;
+            }
+            int op = code[pc++];
+            if (op == CommandProgram.OP_MOVE) {
+                optimizer.move();
+            } else if (op == CommandProgram.OP_LEFT) {
+                optimizer.left();
+            } else if (op == CommandProgram.OP_RIGHT) {
+                optimizer.right();
+            } else if (op == CommandProgram.OP_REPORT) {
+                optimizer.report();
+            } else if (op == CommandProgram.OP_PLACE) {
+                optimizer.place(code[pc], code[pc + 1], code[pc + 2]);
+                pc += 3;
+            } else if (op == CommandProgram.OP_REPEAT) {
+                optimizer.repeat(code[pc]);
+                blockEnds[openBlocks++] = code[pc + 1];
+                pc += 4;
+            } else {
+                throw new IllegalArgumentException("Unsupported robot command");
+            }
+        }
+        for (; openBlocks > 0; --openBlocks) {
+            optimizer.endRepeat();
+        }
+        optimizer.flush();
+    }
+
+    @Override
+    public void place(int x, int y, DirectionEnum direction) {
+        place(x, y, direction.ordinal());
+    }
+
+    private void place(int x, int y, int direction) {
+        commandCount++;
+        if (table.isOpen(x, y)) {
+            // Nothing since the last report can change a report after this placement
+            moves = 0;
+            turns = 0;
+            program.truncate(reportLength, reportCommands);
+            if (program.openBlocks() == 0) {
+                program.markSegment();
+            }
+        } else {
+            flush();
+        }
+        program.place(x, y, direction);
+    }
+
+    @Override
+    public void move() {
+        commandCount++;
+        if (turns > 0) {
+            flushTurns();
+        }
+        moves++;
+    }
+
+    @Override
+    public void left() {
+        turn(LEFT_QUARTERS, CommandProgram.OP_LEFT);
+    }
+
+    @Override
+    public void right() {
+        turn(RIGHT_QUARTERS, CommandProgram.OP_RIGHT);
+    }
+
+    @Override
+    public void report() {
+        commandCount++;
+        flush();
+        program.report();
+        reportLength = program.length();
+        reportCommands = program.commandCount();
+    }
+
+    @Override
+    public void repeat(int count) {
+        commandCount++;
+        flush();
+        program.repeat(count);
+        keepProgram();
+    }
+
+    @Override
+    public void endRepeat() {
+        flush();
+        program.endRepeat();
+        keepProgram();
+    }
+
+    /**
+     * Append the pending runs to the program, call before running it
+     */
+    public void flush() {
+        if (moves > 0) {
+            flushMoves();
+        }
+        if (turns > 0) {
+            flushTurns();
+        }
+    }
+
+    /**
+     * Clear the program and start folding a new one
+     */
+    public void clear() {
+        commandCount = 0;
+        moves = 0;
+        turns = 0;
+        program.clear();
+        reportLength = 0;
+        reportCommands = 0;
+    }
+
+    /**
+     * Number of commands folded
+     */
+    public int commandCount() {
+        return commandCount;
+    }
+
+    /**
+     * A later placement drops nothing before the end of the program
+     */
+    private void keepProgram() {
+        reportLength = program.length();
+        reportCommands = program.commandCount();
+    }
+
+    private void turn(int turnQuarters, int op) {
+        commandCount++;
+        if (moves > 0) {
+            flushMoves();
+        }
+        quarters = turns == 0 ? turnQuarters : (quarters + turnQuarters) & 3;
+        lastTurn = op;
+        turns++;
+    }
+
+    private void flushMoves() {
+        if (moves == 1) {
+            program.move();
+        } else {
+            program.moves(moves);
+        }
+        moves = 0;
+    }
+
+    private void flushTurns() {
+        if (turns == 1) {
+            // A single turn is kept as it was
+            if (lastTurn == CommandProgram.OP_LEFT) {
+                program.left();
+            } else {
+                program.right();
+            }
+        } else if (quarters != 0) {
+            program.turns(quarters);
+        }
+        turns = 0;
+    }
+
+}
@@ -0,0 +1,244 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.domain.CommandEnum;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+
+import java.util.Arrays;
+
+/**
+ * Compiled cli batch, a flat int array of op codes where PLACE is followed by its x, y and direction operands.
+ * <p>
+ * Programs folded by {@link CommandOptimizer} also hold MOVES (a run of moves) and TURNS (a net turn), each followed
+ * by its count, and mark the segments starting at a placement onto an open cell. A segment does not depend on the
+ * commands before it so segments can run independently.
+ * <p>
+ * A REPEAT block is a REPEAT followed by its count, the code offset after the block, the REPORT commands in the block
+ * and 1 when the block holds blocks (0 otherwise), then the commands of the block. Programs with blocks are run by the
+ * {@link RepeatInterpreter}.
+ */
+public final class CommandProgram implements CommandSink {
+
+    public static final int OP_PLACE = CommandEnum.PLACE.ordinal();
+    public static final int OP_MOVE = CommandEnum.MOVE.ordinal();
+    public static final int OP_LEFT = CommandEnum.LEFT.ordinal();
+    public static final int OP_RIGHT = CommandEnum.RIGHT.ordinal();
+    public static final int OP_REPORT = CommandEnum.REPORT.ordinal();
+    // Folded op codes, after the cli commands
+    public static final int OP_MOVES = CommandEnum.values().length;
+    public static final int OP_TURNS = OP_MOVES + 1;
+    public static final int OP_REPEAT = OP_TURNS + 1;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] code = new int[INITIAL_CAPACITY];
+    private int length;
+    private int reportCount;
+    private int commandCount;
+
+    // Offset and reports before each marked segment
+    private int[] segmentStarts = new int[INITIAL_CAPACITY];
+    private int[] segmentReports = new int[INITIAL_CAPACITY];
+    private int segmentCount;
+
+    // Offsets of the REPEATs of the blocks not yet ended, innermost last
+    private int[] openBlocks = new int[INITIAL_CAPACITY];
+    private int openCount;
+    private int blockCount;
+
+    @Override
+    public void place(int x, int y, DirectionEnum direction) {
+        place(x, y, direction.ordinal());
+    }
+
+    /**
+     * Place facing a direction ordinal
+     */
+    public void place(int x, int y, int direction) {
+        ensureCapacity(4);
+        code[length++] = OP_PLACE;
+        code[length++] = x;
+        code[length++] = y;
+        code[length++] = direction;
+        commandCount++;
+    }
+
+    @Override
+    public void move() {
+        append(OP_MOVE);
+    }
+
+    @Override
+    public void left() {
+        append(OP_LEFT);
+    }
+
+    @Override
+    public void right() {
+        append(OP_RIGHT);
+    }
+
+    @Override
+    public void report() {
+        append(OP_REPORT);
+        reportCount++;
+    }
+
+    /**
+     * Move forward count times
+     */
+    public void moves(int count) {
+        ensureCapacity(2);
+        code[length++] = OP_MOVES;
+        code[length++] = count;
+        commandCount++;
+    }
+
+    /**
+     * Turn right quarterTurns times
+     */
+    public void turns(int quarterTurns) {
+        ensureCapacity(2);
+        code[length++] = OP_TURNS;
+        code[length++] = quarterTurns;
+        commandCount++;
+    }
+
+    @Override
+    public void repeat(int count) {
+        if (openCount > 0) {
+            code[openBlocks[openCount - 1] + 4] = 1;
+        }
+        if (openCount == openBlocks.length) {
+            openBlocks = Arrays.copyOf(openBlocks, openCount << 1);
+        }
+        openBlocks[openCount++] = length;
+        ensureCapacity(5);
+        code[length++] = OP_REPEAT;
+        code[length++] = count;
+        // End and reports are filled in when the block ends
+        code[length++] = 0;
+        code[length++] = reportCount;
+        code[length++] = 0;
+        commandCount++;
+        blockCount++;
+    }
+
+    @Override
+    public void endRepeat() {
+        int start = openBlocks[--openCount];
+        code[start + 2] = length;
+        code[start + 3] = reportCount - code[start + 3];
+    }
+
+    /**
+     * Discard all commands so the program can be reused
+     */
+    public void clear() {
+        length = 0;
+        reportCount = 0;
+        commandCount = 0;
+        segmentCount = 0;
+        openCount = 0;
+        blockCount = 0;
+    }
+
+    /**
+     * Drop the commands after a point in the program which holds no REPORT
+     *
+     * @param length       program length at the point
+     * @param commandCount command count at the point
+     */
+    void truncate(int length, int commandCount) {
+        this.length = length;
+        this.commandCount = commandCount;
+        while (segmentCount > 0 && segmentStarts[segmentCount - 1] >= length) {
+            segmentCount--;
+        }
+    }
+
+    /**
+     * Start a segment at the end of the program, the next command must be a PLACE onto an open cell
+     */
+    void markSegment() {
+        if (segmentCount == segmentStarts.length) {
+            segmentStarts = Arrays.copyOf(segmentStarts, segmentCount << 1);
+            segmentReports = Arrays.copyOf(segmentReports, segmentCount << 1);
+        }
+        segmentStarts[segmentCount] = length;
+        segmentReports[segmentCount] = reportCount;
+        segmentCount++;
+    }
+
+    /**
+     * Number of marked segments, the commands before the first segment are not counted
+     */
+    public int segmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * Offset in the code of a marked segment
+     */
+    public int segmentStart(int segment) {
+        return segmentStarts[segment];
+    }
+
+    /**
+     * Reports of the program before a marked segment
+     */
+    public int segmentReports(int segment) {
+        return segmentReports[segment];
+    }
+
+    /**
+     * Op codes, only the first {@link #length()} entries are valid
+     */
+    public int[] code() {
+        return code;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Number of REPORT commands, the exact number of outputs the program produces when it has no blocks
+     */
+    public int reportCount() {
+        return reportCount;
+    }
+
+    /**
+     * Number of REPEAT blocks, ended or not
+     */
+    public int blockCount() {
+        return blockCount;
+    }
+
+    /**
+     * Number of REPEAT blocks started and not yet ended
+     */
+    public int openBlocks() {
+        return openCount;
+    }
+
+    /**
+     * Number of commands in the program, a block counts once
+     */
+    public int commandCount() {
+        return commandCount;
+    }
+
+    private void append(int op) {
+        ensureCapacity(1);
+        code[length++] = op;
+        commandCount++;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length << 1, length + extra));
+        }
+    }
+
+}
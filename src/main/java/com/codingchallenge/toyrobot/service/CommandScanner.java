@@ -0,0 +1,389 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.controller.UnknownCommandException;
+import com.codingchallenge.toyrobot.domain.CommandEnum;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+
+import java.util.Collections;
+
+/**
+ * Single pass, case insensitive scanner for the cli command language.
+ * <p>
+ * Input can be fed incrementally in chunks of any size, the scanner keeps its state between chunks and hands each
+ * complete command to a {@link CommandSink}. Nothing is allocated while scanning valid input, errors report the
+ * offset of the offending token from the start of the input.
+ * <p>
+ * Commands can be repeated as a block, {@code REPEAT count { commands }}, and blocks nest. Braces end the word before
+ * them so they need no surrounding whitespace.
+ */
+public final class CommandScanner {
+
+    private static final CommandEnum[] COMMANDS = CommandEnum.values();
+    private static final DirectionEnum[] DIRECTIONS = DirectionEnum.values();
+    private static final char[][] COMMAND_NAMES = names(COMMANDS);
+    private static final char[][] DIRECTION_NAMES = names(DIRECTIONS);
+    private static final char[] REPEAT = "REPEAT".toCharArray();
+
+    // Longest word kept for keyword matching and error messages
+    private static final int MAX_WORD = 32;
+    // Deepest nesting of REPEAT blocks
+    private static final int MAX_DEPTH = 64;
+
+    // Scanner states
+    private static final int BETWEEN_COMMANDS = 0;
+    private static final int COMMAND = 1;
+    private static final int PLACE_X_START = 2;
+    private static final int PLACE_X = 3;
+    private static final int PLACE_X_END = 4;
+    private static final int PLACE_Y_START = 5;
+    private static final int PLACE_Y = 6;
+    private static final int PLACE_Y_END = 7;
+    private static final int PLACE_DIRECTION_START = 8;
+    private static final int PLACE_DIRECTION = 9;
+    private static final int REPEAT_COUNT_START = 10;
+    private static final int REPEAT_COUNT = 11;
+    private static final int REPEAT_BLOCK_START = 12;
+
+    private final CommandSink sink;
+    private final char[] word = new char[MAX_WORD];
+
+    private int state = BETWEEN_COMMANDS;
+    private int wordLength;
+    private long offset;
+    private long tokenOffset;
+    private boolean negative;
+    private boolean hasDigits;
+    private long number;
+    private int placeX;
+    private int depth;
+
+    public CommandScanner(CommandSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Number of characters scanned so far
+     */
+    public long offset() {
+        return offset;
+    }
+
+    public void feed(CharSequence chars) {
+        for (int i = 0, length = chars.length(); i < length; ++i) {
+            accept(chars.charAt(i));
+        }
+    }
+
+    public void feed(char[] chars, int off, int len) {
+        for (int i = off, end = off + len; i < end; ++i) {
+            accept(chars[i]);
+        }
+    }
+
+    /**
+     * Feed single byte (ASCII) encoded input
+     */
+    public void feed(byte[] bytes, int off, int len) {
+        for (int i = off, end = off + len; i < end; ++i) {
+            accept((char) (bytes[i] & 0xFF));
+        }
+    }
+
+    /**
+     * Signal the end of the input, completing any pending command
+     */
+    public void finish() {
+        if (state == COMMAND) {
+            endCommand();
+        }
+        switch (state) {
+            case BETWEEN_COMMANDS:
+                if (depth > 0) {
+                    throw new IllegalArgumentException(String.format("%d REPEAT blocks not closed at offset %d",
+                            depth, offset));
+                }
+                break;
+            case PLACE_DIRECTION:
+                endPlacement();
+                break;
+            case PLACE_X_START:
+                throw new IllegalArgumentException(String.format("%s requires placement arguments at offset %d",
+                        CommandEnum.PLACE, tokenOffset));
+            case REPEAT_COUNT_START:
+            case REPEAT_COUNT:
+            case REPEAT_BLOCK_START:
+                throw invalidRepeat("REPEAT requires a count and a block");
+            default:
+                throw invalidPlacement("Incomplete placement arguments");
+        }
+        state = BETWEEN_COMMANDS;
+    }
+
+    private void accept(char c) {
+        boolean whitespace = Character.isWhitespace(c);
+        boolean brace = c == '{' || c == '}';
+        switch (state) {
+            case BETWEEN_COMMANDS:
+                if (brace) {
+                    brace(c);
+                } else if (!whitespace) {
+                    startWord();
+                    appendWord(c);
+                    state = COMMAND;
+                }
+                break;
+            case COMMAND:
+                if (whitespace || brace) {
+                    endCommand();
+                    if (brace) {
+                        afterWord(c);
+                    }
+                } else {
+                    appendWord(c);
+                }
+                break;
+            case PLACE_X_START:
+            case PLACE_Y_START:
+                if (!whitespace) {
+                    startNumber(c);
+                }
+                break;
+            case PLACE_X:
+            case PLACE_Y:
+                if (c == ',') {
+                    endNumber();
+                } else if (whitespace) {
+                    state++;
+                } else {
+                    appendDigit(c);
+                }
+                break;
+            case PLACE_X_END:
+            case PLACE_Y_END:
+                if (c == ',') {
+                    endNumber();
+                } else if (!whitespace) {
+                    throw invalidPlacement("Invalid placement arguments");
+                }
+                break;
+            case PLACE_DIRECTION_START:
+                if (!whitespace) {
+                    startWord();
+                    appendWord(c);
+                    state = PLACE_DIRECTION;
+                }
+                break;
+            case PLACE_DIRECTION:
+                if (whitespace || brace) {
+                    endPlacement();
+                    state = BETWEEN_COMMANDS;
+                    if (brace) {
+                        brace(c);
+                    }
+                } else {
+                    appendWord(c);
+                }
+                break;
+            case REPEAT_COUNT_START:
+                if (!whitespace) {
+                    tokenOffset = offset;
+                    number = 0;
+                    state = REPEAT_COUNT;
+                    appendCount(c);
+                }
+                break;
+            case REPEAT_COUNT:
+                if (whitespace) {
+                    state = REPEAT_BLOCK_START;
+                } else if (c == '{') {
+                    startBlock();
+                } else {
+                    appendCount(c);
+                }
+                break;
+            case REPEAT_BLOCK_START:
+                if (c == '{') {
+                    startBlock();
+                } else if (!whitespace) {
+                    throw invalidRepeat("REPEAT count must be followed by a block");
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown scanner state");
+        }
+        offset++;
+    }
+
+    private void endCommand() {
+        CommandEnum command = match(COMMAND_NAMES, COMMANDS);
+        if (command == null && wordLength == REPEAT.length && equalsWord(REPEAT)) {
+            state = REPEAT_COUNT_START;
+            return;
+        }
+        if (command == null) {
+            throw new UnknownCommandException(Collections.singletonList(
+                    String.format("Unsupported command [%s] at offset %d", word(), tokenOffset)));
+        }
+        state = BETWEEN_COMMANDS;
+        switch (command) {
+            case PLACE:
+                state = PLACE_X_START;
+                break;
+            case MOVE:
+                sink.move();
+                break;
+            case LEFT:
+                sink.left();
+                break;
+            case RIGHT:
+                sink.right();
+                break;
+            case REPORT:
+                sink.report();
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported robot command");
+        }
+    }
+
+    /**
+     * Brace ending a command word, only a command which takes no arguments can be followed by one
+     */
+    private void afterWord(char c) {
+        if (state == BETWEEN_COMMANDS) {
+            brace(c);
+        } else if (state == REPEAT_COUNT_START) {
+            throw invalidRepeat("REPEAT requires a count");
+        } else {
+            throw invalidPlacement("Invalid placement arguments");
+        }
+    }
+
+    private void brace(char c) {
+        if (c == '{') {
+            throw invalidRepeat("Block without REPEAT");
+        }
+        if (depth == 0) {
+            throw invalidRepeat("Block end without REPEAT");
+        }
+        depth--;
+        sink.endRepeat();
+    }
+
+    private void appendCount(char c) {
+        if (c < '0' || c > '9') {
+            throw invalidRepeat(String.format("Invalid REPEAT count [%s]", c));
+        }
+        number = number * 10 + c - '0';
+        if (number > Integer.MAX_VALUE) {
+            throw invalidRepeat("Invalid REPEAT count, more than " + Integer.MAX_VALUE);
+        }
+    }
+
+    private void startBlock() {
+        if (depth == MAX_DEPTH) {
+            throw invalidRepeat("REPEAT blocks nested more than " + MAX_DEPTH + " deep");
+        }
+        depth++;
+        state = BETWEEN_COMMANDS;
+        sink.repeat((int) number);
+    }
+
+    private void endPlacement() {
+        DirectionEnum direction = match(DIRECTION_NAMES, DIRECTIONS);
+        if (direction == null) {
+            throw invalidPlacement(String.format("Invalid placement value [%s]", word()));
+        }
+        sink.place(placeX, (int) number, direction);
+    }
+
+    private void startWord() {
+        wordLength = 0;
+        tokenOffset = offset;
+    }
+
+    private void appendWord(char c) {
+        if (wordLength < MAX_WORD) {
+            word[wordLength] = Character.toUpperCase(c);
+        }
+        wordLength++;
+    }
+
+    private void startNumber(char c) {
+        tokenOffset = offset;
+        negative = false;
+        hasDigits = false;
+        number = 0;
+        state++;
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+        } else if (c == ',') {
+            throw invalidPlacement("Invalid placement arguments");
+        } else {
+            appendDigit(c);
+        }
+    }
+
+    private void appendDigit(char c) {
+        if (c < '0' || c > '9') {
+            throw invalidPlacement(String.format("Invalid placement value [%s]", c));
+        }
+        hasDigits = true;
+        number = number * 10 + (negative ? -(c - '0') : c - '0');
+        if (number > Integer.MAX_VALUE || number < Integer.MIN_VALUE) {
+            throw invalidPlacement("Invalid placement value, co-ordinate out of range");
+        }
+    }
+
+    private void endNumber() {
+        if (!hasDigits) {
+            throw invalidPlacement("Invalid placement arguments");
+        }
+        if (state == PLACE_X || state == PLACE_X_END) {
+            placeX = (int) number;
+            state = PLACE_Y_START;
+        } else {
+            state = PLACE_DIRECTION_START;
+        }
+    }
+
+    private <T> T match(char[][] names, T[] values) {
+        for (int i = 0; i < names.length; ++i) {
+            char[] name = names[i];
+            if (name.length == wordLength && equalsWord(name)) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    private boolean equalsWord(char[] name) {
+        for (int i = 0; i < name.length; ++i) {
+            if (name[i] != word[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String word() {
+        return new String(word, 0, Math.min(wordLength, MAX_WORD)) + (wordLength > MAX_WORD ? "..." : "");
+    }
+
+    private IllegalArgumentException invalidPlacement(String message) {
+        return new IllegalArgumentException(String.format("%s at offset %d", message, offset));
+    }
+
+    private IllegalArgumentException invalidRepeat(String message) {
+        return new IllegalArgumentException(String.format("%s at offset %d", message, offset));
+    }
+
+    private static char[][] names(Enum<?>[] values) {
+        char[][] names = new char[values.length][];
+        for (int i = 0; i < values.length; ++i) {
+            names[i] = values[i].name().toCharArray();
+        }
+        return names;
+    }
+
+}
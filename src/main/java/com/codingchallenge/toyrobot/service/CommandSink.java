@@ -0,0 +1,44 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.controller.UnknownCommandException;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+
+import java.util.Collections;
+
+/**
+ * Receiver of the commands recognised by the {@link CommandScanner}
+ */
+public interface CommandSink {
+
+    void place(int x, int y, DirectionEnum direction);
+
+    void move();
+
+    void left();
+
+    void right();
+
+    void report();
+
+    /**
+     * Start a block of commands run count times, ended by {@link #endRepeat()}. Blocks are rejected by sinks which
+     * apply each command as it arrives
+     *
+     * @param count
+     */
+    default void repeat(int count) {
+        throw unsupportedRepeat();
+    }
+
+    /**
+     * End the innermost block started by {@link #repeat(int)}
+     */
+    default void endRepeat() {
+        throw unsupportedRepeat();
+    }
+
+    static UnknownCommandException unsupportedRepeat() {
+        return new UnknownCommandException(Collections.singletonList("Unsupported command [REPEAT]"));
+    }
+
+}
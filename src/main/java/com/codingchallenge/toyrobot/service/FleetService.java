@@ -0,0 +1,155 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.CommandPlace;
+import com.codingchallenge.toyrobot.domain.Fleet;
+import com.codingchallenge.toyrobot.domain.IRobotLocation;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.domain.TurnEnum;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fleets of robots driven by broadcast commands, keyed by fleet id.
+ * <p>
+ * A command is broadcast to every robot of a fleet or of one of its groups in a single call, split between the
+ * {@link BatchExecutor} pool threads for large fleets. Commands on a fleet are serialised by the fleet's monitor,
+ * different fleets never contend.
+ */
+@Service
+public class FleetService {
+
+    private final ConcurrentHashMap<String, Fleet> fleets = new ConcurrentHashMap<>();
+    private final CommandAudit audit;
+    private final RobotMetrics metrics;
+    private final BatchExecutor batchExecutor;
+    private final ReportFragments reportFragments;
+    private final int maxRobots;
+    private final int sliceLength;
+
+    public FleetService(CommandAudit audit, RobotMetrics metrics, BatchExecutor batchExecutor,
+                        ReportFragments reportFragments, RobotProperties robotProperties) {
+        this.audit = audit;
+        this.metrics = metrics;
+        this.batchExecutor = batchExecutor;
+        this.reportFragments = reportFragments;
+        this.maxRobots = robotProperties.getFleet().getMaxRobots();
+        this.sliceLength = robotProperties.getFleet().getSliceLength();
+    }
+
+    /**
+     * Create a fleet of robots (off the grid) on the table, replacing any fleet with the id
+     *
+     * @param fleetId
+     * @param table
+     * @param robots
+     * @param groups  number of groups of consecutive robots
+     * @return
+     */
+    public Fleet createFleet(String fleetId, Table table, int robots, int groups) {
+        if (robots > maxRobots) {
+            throw new IllegalArgumentException(String.format("Fleets are limited to %d robots", maxRobots));
+        }
+        Fleet fleet = new Fleet(fleetId, table, robots, groups);
+        fleets.put(fleetId, fleet);
+        return fleet;
+    }
+
+    /**
+     * Return the fleet for the id or null when no such fleet has been created
+     *
+     * @param fleetId
+     * @return
+     */
+    public Fleet findFleet(String fleetId) {
+        return fleets.get(fleetId);
+    }
+
+    /**
+     * Remove the fleet
+     *
+     * @param fleetId
+     * @return the removed fleet or null when it did not exist
+     */
+    public Fleet removeFleet(String fleetId) {
+        return fleets.remove(fleetId);
+    }
+
+    /**
+     * Place the robots of the fleet on the grid facing a direction
+     *
+     * @param fleet
+     * @param group group of the robots, every robot when null
+     * @param place
+     */
+    public void place(Fleet fleet, Integer group, CommandPlace place) {
+        broadcast(fleet, group, AuditEvent.FLEET_PLACE, (from, to) ->
+                fleet.place(from, to, place.getX(), place.getY(), place.getDirection()));
+    }
+
+    /**
+     * Move the robots of the fleet forward in the direction they are facing by one square
+     *
+     * @param fleet
+     * @param group group of the robots, every robot when null
+     */
+    public void move(Fleet fleet, Integer group) {
+        broadcast(fleet, group, AuditEvent.FLEET_MOVE, fleet::move);
+    }
+
+    /**
+     * Turn the robots of the fleet
+     *
+     * @param fleet
+     * @param group group of the robots, every robot when null
+     * @param turn
+     */
+    public void turn(Fleet fleet, Integer group, TurnEnum turn) {
+        broadcast(fleet, group, AuditEvent.FLEET_TURN, (from, to) -> fleet.turn(from, to, turn));
+    }
+
+    /**
+     * Place a single robot of the fleet on the grid facing a direction
+     *
+     * @param fleet
+     * @param robot number of the robot in the fleet
+     * @param place
+     */
+    public void placeRobot(Fleet fleet, int robot, CommandPlace place) {
+        long start = System.nanoTime();
+        synchronized (fleet) {
+            fleet.place(robot, robot + 1, place.getX(), place.getY(), place.getDirection());
+        }
+        metrics.command(RobotMetrics.Command.PLACE, start);
+    }
+
+    /**
+     * Report the location of a single robot of the fleet
+     *
+     * @param fleet
+     * @param robot number of the robot in the fleet
+     * @return
+     */
+    public IRobotLocation reportRobot(Fleet fleet, int robot) {
+        long start = System.nanoTime();
+        long state;
+        synchronized (fleet) {
+            state = fleet.state(robot);
+        }
+        metrics.command(RobotMetrics.Command.REPORT, start);
+        return reportFragments.location(state);
+    }
+
+    private void broadcast(Fleet fleet, Integer group, AuditEvent event, BatchExecutor.RangeAction command) {
+        long start = System.nanoTime();
+        int from = group != null ? fleet.groupStart(group) : 0;
+        int to = group != null ? fleet.groupStart(group + 1) : fleet.getSize();
+        synchronized (fleet) {
+            batchExecutor.executeRange(from, to, sliceLength, command);
+        }
+        audit.record(AuditChannel.FLEET, event, fleet.getId(), to - from);
+        metrics.command(RobotMetrics.Command.BROADCAST, start);
+    }
+
+}
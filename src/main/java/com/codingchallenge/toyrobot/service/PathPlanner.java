@@ -0,0 +1,320 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.domain.TurnEnum;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+
+/**
+ * Shortest MOVE, LEFT and RIGHT sequences taking a robot from one location and direction to another, every command
+ * counts as one step.
+ * <p>
+ * On a table without obstacles the moves are the distance along each axis, only the order of the two legs and the
+ * turns between them are chosen, so any size of table is planned in the length of the path. Around obstacles the
+ * planner searches the states of the table (every cell in every direction) breadth first back from the target,
+ * giving the distance of every state to the target. The path from any start is then a walk down the distances, so
+ * the distance field is cached per table layout and target and repeated targets skip the search. Fields are weighed
+ * by their states and evicted by Caffeine's W-TinyLFU policy, hit and miss counts are published as the
+ * {@code robot.path} cache metrics. Obstacle maps are compared by identity, as by the {@link BatchResultCache}. Paths
+ * of more than {@code robot.path.max-commands} commands are rejected before any command is handed on.
+ */
+@Service
+public class PathPlanner {
+
+    private static final int LEFT = TurnEnum.LEFT.ordinal();
+    private static final int RIGHT = TurnEnum.RIGHT.ordinal();
+    private static final int NONE = -1;
+    private static final DirectionEnum[] DIRECTIONS = DirectionEnum.values();
+
+    private final long maxStates;
+    private final long maxCommands;
+    private final Cache<FieldKey, int[]> fields;
+
+    public PathPlanner(RobotProperties robotProperties, MeterRegistry meterRegistry) {
+        RobotProperties.PathProperties properties = robotProperties.getPath();
+        this.maxStates = Math.min(properties.getMaxStates(), Integer.MAX_VALUE);
+        this.maxCommands = properties.getMaxCommands();
+        if (properties.getCacheStates() > 0) {
+            fields = Caffeine.newBuilder()
+                    .maximumWeight(properties.getCacheStates())
+                    .<FieldKey, int[]>weigher((key, distances) -> distances.length)
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, fields, "robot.path");
+        } else {
+            fields = null;
+        }
+    }
+
+    /**
+     * Cli script running the shortest path, placing the robot at the start and reporting it at the target
+     *
+     * @param table
+     * @param start  packed state of the start
+     * @param target packed state of the target
+     * @return null when there is no path, the start or target is not open or the target can not be reached
+     */
+    public String planScript(Table table, long start, long target) {
+        StringBuilder script = new StringBuilder("PLACE ").append(RobotState.x(start)).append(',')
+                .append(RobotState.y(start)).append(',').append(RobotState.direction(start));
+        boolean found = plan(table, start, target, new PathSteps() {
+            @Override
+            public void move() {
+                script.append(" MOVE");
+            }
+
+            @Override
+            public void left() {
+                script.append(" LEFT");
+            }
+
+            @Override
+            public void right() {
+                script.append(" RIGHT");
+            }
+        });
+        return found ? script.append(" REPORT").toString() : null;
+    }
+
+    /**
+     * Hand the commands of the shortest path from the start to the target to the steps, nothing when the robot is
+     * already at the target. Paths longer than the configured maximum commands are rejected before any step
+     *
+     * @param table
+     * @param start    packed state of the start
+     * @param target   packed state of the target
+     * @param commands receives the MOVE, LEFT and RIGHT commands
+     * @return false when there is no path, the start or target is not open or the target can not be reached
+     */
+    public boolean plan(Table table, long start, long target, PathSteps commands) {
+        if (!isOpen(table, start) || !isOpen(table, target)) {
+            return false;
+        }
+        // At least a move for every cell between the start and the target
+        checkLength((long) Math.abs(RobotState.x(target) - RobotState.x(start))
+                + Math.abs(RobotState.y(target) - RobotState.y(start)));
+        if (table.getObstacles() == null) {
+            planOpen(start, target, commands);
+            return true;
+        }
+        if ((long) table.getWidth() * table.getHeight() * DIRECTIONS.length > maxStates) {
+            throw new IllegalArgumentException(String.format("Table [%dx%d] has too many states to plan around obstacles",
+                    table.getWidth(), table.getHeight()));
+        }
+        int[] distances = fields != null ? fields.get(new FieldKey(table, target), key -> distanceField(table, target)) :
+                distanceField(table, target);
+        return walk(table, distances, start, commands);
+    }
+
+    /**
+     * Receiver of the commands of a planned path
+     */
+    public interface PathSteps {
+
+        void move();
+
+        void left();
+
+        void right();
+
+    }
+
+    private void checkLength(long commands) {
+        if (commands > maxCommands) {
+            throw new IllegalArgumentException(String.format("Path of at least %d commands is longer than %d commands",
+                    commands, maxCommands));
+        }
+    }
+
+    /**
+     * Both legs along the axes, in the order needing the fewest turns
+     */
+    private static void planOpen(long start, long target, PathSteps commands) {
+        int x = RobotState.x(start);
+        int y = RobotState.y(start);
+        int toX = RobotState.x(target);
+        int toY = RobotState.y(target);
+        int alongX = toX > x ? DirectionEnum.EAST.ordinal() : toX < x ? DirectionEnum.WEST.ordinal() : NONE;
+        int alongY = toY > y ? DirectionEnum.NORTH.ordinal() : toY < y ? DirectionEnum.SOUTH.ordinal() : NONE;
+        int direction = RobotState.directionOrdinal(start);
+        int toDirection = RobotState.directionOrdinal(target);
+        boolean xFirst = turns(direction, alongX, alongY, toDirection) <= turns(direction, alongY, alongX, toDirection);
+        direction = leg(direction, xFirst ? alongX : alongY, xFirst ? Math.abs(toX - x) : Math.abs(toY - y), commands);
+        direction = leg(direction, xFirst ? alongY : alongX, xFirst ? Math.abs(toY - y) : Math.abs(toX - x), commands);
+        turn(direction, toDirection, commands);
+    }
+
+    /**
+     * Turns to face the first leg, then the second, then the final direction, legs which are not needed are NONE
+     */
+    private static int turns(int direction, int first, int second, int toDirection) {
+        int turns = 0;
+        if (first != NONE) {
+            turns += quarterTurns(direction, first);
+            direction = first;
+        }
+        if (second != NONE) {
+            turns += quarterTurns(direction, second);
+            direction = second;
+        }
+        return turns + quarterTurns(direction, toDirection);
+    }
+
+    private static int leg(int direction, int legDirection, int moves, PathSteps commands) {
+        if (legDirection == NONE) {
+            return direction;
+        }
+        turn(direction, legDirection, commands);
+        for (int i = 0; i < moves; ++i) {
+            commands.move();
+        }
+        return legDirection;
+    }
+
+    private static void turn(int direction, int toDirection, PathSteps commands) {
+        if (RobotState.turnDirection(direction, LEFT) == toDirection) {
+            commands.left();
+        } else if (direction != toDirection) {
+            commands.right();
+            if (RobotState.turnDirection(direction, RIGHT) != toDirection) {
+                commands.right();
+            }
+        }
+    }
+
+    private static int quarterTurns(int direction, int toDirection) {
+        return direction == toDirection ? 0 : RobotState.turnDirection(direction, LEFT) == toDirection
+                || RobotState.turnDirection(direction, RIGHT) == toDirection ? 1 : 2;
+    }
+
+    /**
+     * Steps from every state to the target, -1 for states which can not reach it. A state is indexed by its cell in
+     * row major order and its direction ordinal
+     */
+    private static int[] distanceField(Table table, long target) {
+        int width = table.getWidth();
+        int[] distances = new int[width * table.getHeight() * DIRECTIONS.length];
+        Arrays.fill(distances, -1);
+        int[] queue = new int[distances.length];
+        int head = 0;
+        int tail = 0;
+        int targetIndex = index(width, RobotState.x(target), RobotState.y(target), RobotState.directionOrdinal(target));
+        distances[targetIndex] = 0;
+        queue[tail++] = targetIndex;
+        while (head < tail) {
+            int state = queue[head++];
+            int distance = distances[state] + 1;
+            int cell = state >>> 2;
+            int direction = state & 3;
+            // Turned into the state by a LEFT from the direction to its right and by a RIGHT from the direction to its left
+            int turnedFrom = cell << 2 | RobotState.turnDirection(direction, RIGHT);
+            if (distances[turnedFrom] < 0) {
+                distances[turnedFrom] = distance;
+                queue[tail++] = turnedFrom;
+            }
+            turnedFrom = cell << 2 | RobotState.turnDirection(direction, LEFT);
+            if (distances[turnedFrom] < 0) {
+                distances[turnedFrom] = distance;
+                queue[tail++] = turnedFrom;
+            }
+            // Moved into the state from the cell behind it
+            int fromX = cell % width - RobotState.dx(direction);
+            int fromY = cell / width - RobotState.dy(direction);
+            if (table.isOpen(fromX, fromY)) {
+                int movedFrom = index(width, fromX, fromY, direction);
+                if (distances[movedFrom] < 0) {
+                    distances[movedFrom] = distance;
+                    queue[tail++] = movedFrom;
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Follow the distances down to the target, preferring moves to turns
+     */
+    private boolean walk(Table table, int[] distances, long start, PathSteps commands) {
+        int width = table.getWidth();
+        int x = RobotState.x(start);
+        int y = RobotState.y(start);
+        int direction = RobotState.directionOrdinal(start);
+        int distance = distances[index(width, x, y, direction)];
+        if (distance < 0) {
+            return false;
+        }
+        checkLength(distance);
+        while (distance > 0) {
+            int nextX = x + RobotState.dx(direction);
+            int nextY = y + RobotState.dy(direction);
+            if (table.isOpen(nextX, nextY) && distances[index(width, nextX, nextY, direction)] == distance - 1) {
+                commands.move();
+                x = nextX;
+                y = nextY;
+            } else if (distances[index(width, x, y, RobotState.turnDirection(direction, LEFT))] == distance - 1) {
+                commands.left();
+                direction = RobotState.turnDirection(direction, LEFT);
+            } else if (distances[index(width, x, y, RobotState.turnDirection(direction, RIGHT))] == distance - 1) {
+                commands.right();
+                direction = RobotState.turnDirection(direction, RIGHT);
+            } else {
+                throw new IllegalStateException("Distance field does not match the table");
+            }
+            distance--;
+        }
+        return true;
+    }
+
+    private static int index(int width, int x, int y, int direction) {
+        return (y * width + x) << 2 | direction;
+    }
+
+    private static boolean isOpen(Table table, long state) {
+        return RobotState.isPlaced(state) && table.isOpen(RobotState.x(state), RobotState.y(state));
+    }
+
+    /**
+     * Target and the layout of the table it is on, obstacles by their layout version so replaced maps are not held by
+     * the cache
+     */
+    private static final class FieldKey {
+        private final int maxX;
+        private final int maxY;
+        private final long layoutVersion;
+        private final long target;
+
+        FieldKey(Table table, long target) {
+            this.maxX = table.getMaxX();
+            this.maxY = table.getMaxY();
+            this.layoutVersion = table.getLayoutVersion();
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FieldKey)) {
+                return false;
+            }
+            FieldKey other = (FieldKey) o;
+            return maxX == other.maxX && maxY == other.maxY && layoutVersion == other.layoutVersion
+                    && target == other.target;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * (31 * maxX + maxY) + Long.hashCode(layoutVersion)) + Long.hashCode(target);
+        }
+    }
+
+}
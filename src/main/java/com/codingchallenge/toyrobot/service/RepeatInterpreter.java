@@ -0,0 +1,119 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.domain.Table;
+
+/**
+ * Executes a {@link CommandProgram} with REPEAT blocks for a private robot.
+ * <p>
+ * The commands between blocks run on the {@link CommandInterpreter}. A block is a function of the robot state, and a
+ * table has a finite number of states, so the states after each iteration of a block end in a cycle. The iterations
+ * run one by one while Brent's algorithm looks for the cycle in constant memory. Once a state repeats the remaining
+ * iterations are whole cycles, which only repeat the cycle's reports and leave the robot where it is, and less than a
+ * cycle, which run. A block therefore runs for at most a few times the length of its cycle and its lead-in, whatever
+ * its count. Reports are collected as {@link ReportRuns}, the reports of a cycle once as a repeated block.
+ */
+public final class RepeatInterpreter {
+
+    private final CommandProgram program;
+    private final Table table;
+
+    private RepeatInterpreter(CommandProgram program, Table table) {
+        this.program = program;
+        this.table = table;
+    }
+
+    /**
+     * Run the program on a table
+     *
+     * @param program
+     * @param state   robot state the program starts from
+     * @param table
+     * @param reports
+     * @return robot state at the end of the program
+     */
+    public static long execute(CommandProgram program, long state, Table table, ReportRuns reports) {
+        return new RepeatInterpreter(program, table).run(0, program.length(), state, reports);
+    }
+
+    /**
+     * Run the commands from one code offset to another, the offsets must not be inside a block
+     */
+    private long run(int from, int to, long state, ReportRuns reports) {
+        int[] code = program.code();
+        int straight = from;
+        int pc = from;
+        while (pc < to) {
+            int op = code[pc];
+            if (op == CommandProgram.OP_REPEAT) {
+                state = CommandInterpreter.execute(program, straight, pc, state, table, reports);
+                int end = code[pc + 2];
+                state = repeat(code[pc + 1], pc + 5, end, code[pc + 3] > 0, code[pc + 4] > 0, state, reports);
+                pc = end;
+                straight = end;
+            } else if (op == CommandProgram.OP_PLACE) {
+                pc += 4;
+            } else if (op == CommandProgram.OP_MOVES || op == CommandProgram.OP_TURNS) {
+                pc += 2;
+            } else {
+                pc++;
+            }
+        }
+        return CommandInterpreter.execute(program, straight, to, state, table, reports);
+    }
+
+    /**
+     * Run a block count times
+     *
+     * @param count
+     * @param from    code offset of the first command of the block
+     * @param to      code offset after the block
+     * @param reports whether the block holds a REPORT
+     * @param nested  whether the block holds blocks
+     * @param state   robot state before the first iteration
+     * @param runs
+     * @return robot state after the last iteration
+     */
+    private long repeat(long count, int from, int to, boolean reports, boolean nested, long state, ReportRuns runs) {
+        // Brent's cycle detection, the tortoise waits at powers of two for the iterations to come back to it
+        long tortoise = state;
+        long power = 1;
+        long period = 0;
+        for (long iteration = 1; iteration <= count; ++iteration) {
+            state = iterate(from, to, nested, state, runs);
+            period++;
+            if (state == tortoise) {
+                return fastForward(count - iteration, period, from, to, reports, nested, state, runs);
+            }
+            if (period == power) {
+                tortoise = state;
+                power <<= 1;
+                period = 0;
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Remaining iterations of a block from a state on a cycle of period iterations
+     */
+    private long fastForward(long remaining, long period, int from, int to, boolean reports, boolean nested,
+                             long state, ReportRuns runs) {
+        long cycles = remaining / period;
+        if (cycles > 0 && reports) {
+            ReportRuns cycle = new ReportRuns();
+            for (long iteration = 0; iteration < period; ++iteration) {
+                state = iterate(from, to, nested, state, cycle);
+            }
+            runs.repeat(cycle, cycles);
+        }
+        for (long iteration = remaining % period; iteration > 0; --iteration) {
+            state = iterate(from, to, nested, state, runs);
+        }
+        return state;
+    }
+
+    private long iterate(int from, int to, boolean nested, long state, ReportRuns runs) {
+        return nested ? run(from, to, state, runs) : CommandInterpreter.execute(program, from, to, state, table, runs);
+    }
+
+}
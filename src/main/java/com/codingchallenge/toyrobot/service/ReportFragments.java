@@ -0,0 +1,174 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.config.ApplicationExceptionHandler;
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.IRobotLocation;
+import com.codingchallenge.toyrobot.domain.RobotLocationDTO;
+import com.codingchallenge.toyrobot.domain.RobotLocationMessageDTO;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+
+/**
+ * Report DTOs interned for every location of the default table, with their JSON pre-encoded as UTF-8.
+ * <p>
+ * A report on the default table returns the shared DTO of its location and writes its bytes straight into the JSON
+ * output buffer, so a REPORT allocates nothing. Locations off the default table, or every location when the default
+ * table has more than {@code robot.report.interned-cells} cells, get a new DTO written field by field with pre-encoded
+ * names. Either way the JSON is the same as Jackson writes for the DTO.
+ */
+@Service
+public class ReportFragments {
+
+    public static final RobotLocationMessageDTO MISSING_ROBOT =
+            new RobotLocationMessageDTO(ApplicationExceptionHandler.MISSING_ROBOT_MESSAGE);
+
+    private static final DirectionEnum[] DIRECTIONS = DirectionEnum.values();
+    private static final SerializableString X = preEncoded("x");
+    private static final SerializableString Y = preEncoded("y");
+    private static final SerializableString DIRECTION = preEncoded("direction");
+    private static final SerializableString MESSAGE = preEncoded("message");
+    private static final SerializableString[] DIRECTION_NAMES = new SerializableString[DIRECTIONS.length];
+    private static final SerializableString MISSING_ROBOT_JSON =
+            preEncoded("{\"message\":\"" + ApplicationExceptionHandler.MISSING_ROBOT_MESSAGE + "\"}");
+
+    static {
+        for (DirectionEnum direction : DIRECTIONS) {
+            DIRECTION_NAMES[direction.ordinal()] = preEncoded(direction.name());
+        }
+    }
+
+    private final int width;
+    private final int height;
+    // Indexed by (x * height + y) * 4 + direction ordinal
+    private final RobotLocationDTO[] locations;
+    private final SerializableString[] fragments;
+
+    public ReportFragments(RobotProperties robotProperties) {
+        RobotProperties.TableProperties table = robotProperties.getTable();
+        boolean interned = (long) table.getWidth() * table.getHeight() <= robotProperties.getReport().getInternedCells();
+        this.width = interned ? table.getWidth() : 0;
+        this.height = interned ? table.getHeight() : 0;
+        this.locations = new RobotLocationDTO[width * height * DIRECTIONS.length];
+        this.fragments = new SerializableString[locations.length];
+        for (int x = 0; x < width; ++x) {
+            for (int y = 0; y < height; ++y) {
+                for (DirectionEnum direction : DIRECTIONS) {
+                    int index = index(x, y, direction.ordinal());
+                    locations[index] = new RobotLocationDTO(x, y, direction);
+                    fragments[index] = preEncoded("{\"x\":" + x + ",\"y\":" + y + ",\"direction\":\""
+                            + direction.name() + "\"}");
+                }
+            }
+        }
+    }
+
+    /**
+     * DTO of a packed robot state
+     *
+     * @param state
+     * @return the shared DTO on the default table, the shared missing robot message when not on the grid
+     */
+    public IRobotLocation location(long state) {
+        return RobotState.isPlaced(state) ?
+                location(RobotState.x(state), RobotState.y(state), RobotState.direction(state)) : MISSING_ROBOT;
+    }
+
+    /**
+     * DTO of a location
+     *
+     * @param x
+     * @param y
+     * @param direction
+     * @return the shared DTO on the default table
+     */
+    public RobotLocationDTO location(int x, int y, DirectionEnum direction) {
+        return isInterned(x, y) ? locations[index(x, y, direction.ordinal())] : new RobotLocationDTO(x, y, direction);
+    }
+
+    /**
+     * Write the JSON of a location DTO
+     *
+     * @param location
+     * @param generator
+     * @throws IOException
+     */
+    public void write(RobotLocationDTO location, JsonGenerator generator) throws IOException {
+        int x = location.getX();
+        int y = location.getY();
+        DirectionEnum direction = location.getDirection();
+        if (direction != null && isInterned(x, y)) {
+            generator.writeRawValue(fragments[index(x, y, direction.ordinal())]);
+            return;
+        }
+        generator.writeStartObject(location);
+        generator.writeFieldName(X);
+        generator.writeNumber(x);
+        generator.writeFieldName(Y);
+        generator.writeNumber(y);
+        generator.writeFieldName(DIRECTION);
+        if (direction != null) {
+            generator.writeString(DIRECTION_NAMES[direction.ordinal()]);
+        } else {
+            generator.writeNull();
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Write the JSON of a message DTO
+     *
+     * @param message
+     * @param generator
+     * @throws IOException
+     */
+    public void write(RobotLocationMessageDTO message, JsonGenerator generator) throws IOException {
+        if (message == MISSING_ROBOT) {
+            generator.writeRawValue(MISSING_ROBOT_JSON);
+            return;
+        }
+        generator.writeStartObject(message);
+        generator.writeFieldName(MESSAGE);
+        generator.writeString(message.getMessage());
+        generator.writeEndObject();
+    }
+
+    /**
+     * Write the JSON of a report DTO
+     *
+     * @param location
+     * @param generator
+     * @throws IOException
+     */
+    public void write(IRobotLocation location, JsonGenerator generator) throws IOException {
+        if (location instanceof RobotLocationDTO) {
+            write((RobotLocationDTO) location, generator);
+        } else if (location instanceof RobotLocationMessageDTO) {
+            write((RobotLocationMessageDTO) location, generator);
+        } else {
+            generator.writeObject(location);
+        }
+    }
+
+    private boolean isInterned(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    private int index(int x, int y, int direction) {
+        return (x * height + y) * DIRECTIONS.length + direction;
+    }
+
+    private static SerializableString preEncoded(String json) {
+        SerializedString string = new SerializedString(json);
+        // Encoded once here, not on first use
+        string.asUnquotedUTF8();
+        string.asQuotedUTF8();
+        return string;
+    }
+
+}
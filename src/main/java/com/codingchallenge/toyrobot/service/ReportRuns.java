@@ -0,0 +1,133 @@
+package com.codingchallenge.toyrobot.service;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Reports of a program with REPEAT blocks, run-length encoded.
+ * <p>
+ * Each entry is either a run of identical reports, a packed {@link com.codingchallenge.toyrobot.domain.RobotState}
+ * and its count, or a block of entries repeated a number of times. A report identical to the last run extends it, so
+ * a robot stuck at a table edge or in a cycle reports in a constant number of entries however often it reports.
+ */
+public final class ReportRuns implements LongConsumer {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] states = new long[INITIAL_CAPACITY];
+    private long[] counts = new long[INITIAL_CAPACITY];
+    // Null for a run of identical reports
+    private ReportRuns[] blocks = new ReportRuns[INITIAL_CAPACITY];
+    private int size;
+    private long reports;
+
+    @Override
+    public void accept(long state) {
+        add(state, 1);
+    }
+
+    /**
+     * Append the entries of a block repeated a number of times
+     *
+     * @param block
+     * @param times
+     */
+    public void repeat(ReportRuns block, long times) {
+        if (block.size == 0 || times == 0) {
+            return;
+        }
+        if (times == 1) {
+            for (int i = 0; i < block.size; ++i) {
+                if (block.blocks[i] == null) {
+                    add(block.states[i], block.counts[i]);
+                } else {
+                    addBlock(block.blocks[i], block.counts[i]);
+                }
+            }
+        } else if (block.size == 1 && block.blocks[0] == null) {
+            add(block.states[0], multiply(block.counts[0], times));
+        } else {
+            addBlock(block, times);
+        }
+    }
+
+    /**
+     * Number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Reported state of a run of identical reports
+     */
+    public long state(int entry) {
+        return states[entry];
+    }
+
+    /**
+     * Reports in a run or repetitions of a block
+     */
+    public long count(int entry) {
+        return counts[entry];
+    }
+
+    /**
+     * Repeated block of an entry, null for a run of identical reports
+     */
+    public ReportRuns block(int entry) {
+        return blocks[entry];
+    }
+
+    /**
+     * Number of reports of all the entries
+     */
+    public long reports() {
+        return reports;
+    }
+
+    private void add(long state, long count) {
+        reports = sum(reports, count);
+        if (size > 0 && blocks[size - 1] == null && states[size - 1] == state) {
+            counts[size - 1] += count;
+            return;
+        }
+        ensureCapacity();
+        states[size] = state;
+        counts[size] = count;
+        blocks[size] = null;
+        size++;
+    }
+
+    private void addBlock(ReportRuns block, long times) {
+        reports = sum(reports, multiply(block.reports, times));
+        ensureCapacity();
+        counts[size] = times;
+        blocks[size] = block;
+        size++;
+    }
+
+    private void ensureCapacity() {
+        if (size == states.length) {
+            states = Arrays.copyOf(states, size << 1);
+            counts = Arrays.copyOf(counts, size << 1);
+            blocks = Arrays.copyOf(blocks, size << 1);
+        }
+    }
+
+    private static long sum(long reports, long count) {
+        long sum = reports + count;
+        if (sum < 0) {
+            throw new IllegalArgumentException("Program reports more than " + Long.MAX_VALUE + " times");
+        }
+        return sum;
+    }
+
+    private static long multiply(long count, long times) {
+        if (count > Long.MAX_VALUE / times) {
+            throw new IllegalArgumentException("Program reports more than " + Long.MAX_VALUE + " times");
+        }
+        return count * times;
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.controller.UnknownCommandException;
+import com.codingchallenge.toyrobot.domain.CommandAckDTO;
+import com.codingchallenge.toyrobot.domain.CommandPlace;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.IRobotLocation;
+import com.codingchallenge.toyrobot.domain.Robot;
+import com.codingchallenge.toyrobot.domain.RobotState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cli commands for a stateful robot arriving over a persistent connection.
+ * <p>
+ * Each message holds any number of whole commands. Commands are executed in order as they are scanned, exactly as
+ * the separate robot endpoints would execute them, and are acknowledged once per message together with the reports
+ * they produced. Messages in the {@link BinaryProtocol} encoding are answered by the encoded reports. Not thread safe,
+ * a connection delivers its messages one at a time.
+ */
+public final class RobotCommandChannel implements CommandSink {
+
+    private final RobotCommandService robotCommandService;
+    private final RobotRegistry robotRegistry;
+    private final String robotId;
+
+    // Packed robot states of the reports of the current message
+    private long[] reports = new long[16];
+    private int reportCount;
+    private long commands;
+
+    public RobotCommandChannel(RobotCommandService robotCommandService, RobotRegistry robotRegistry, String robotId) {
+        this.robotCommandService = robotCommandService;
+        this.robotRegistry = robotRegistry;
+        this.robotId = robotId;
+    }
+
+    /**
+     * Execute the commands of a message
+     *
+     * @param message
+     * @return acknowledgement of the commands executed, a rejected command discards the rest of the message
+     */
+    public CommandAckDTO execute(CharSequence message) {
+        String error = null;
+        // Offsets of rejected commands are from the start of the message
+        CommandScanner scanner = new CommandScanner(this);
+        try {
+            scanner.feed(message);
+            scanner.finish();
+        } catch (UnknownCommandException e) {
+            error = String.join(", ", e.getInfos());
+        } catch (IllegalArgumentException e) {
+            error = e.getMessage();
+        }
+        List<IRobotLocation> locations = new ArrayList<>(reportCount);
+        for (int i = 0; i < reportCount; ++i) {
+            locations.add(robotCommandService.convertStateToDTO(reports[i]));
+        }
+        CommandAckDTO ack = new CommandAckDTO(commands, locations, error);
+        reportCount = 0;
+        commands = 0;
+        return ack;
+    }
+
+    /**
+     * Execute the commands of a message in the binary encoding
+     *
+     * @param message
+     * @return reports in the binary encoding, a malformed message is rejected before any command is executed
+     */
+    public byte[] execute(byte[] message) {
+        try {
+            BinaryProtocol.decodeCommands(message, 0, message.length, this);
+            return BinaryProtocol.encodeReports(reports, reportCount);
+        } finally {
+            reportCount = 0;
+            commands = 0;
+        }
+    }
+
+    @Override
+    public void place(int x, int y, DirectionEnum direction) {
+        commands++;
+        robotCommandService.placeRobot(robotRegistry.getOrCreate(robotId), new CommandPlace(x, y, direction));
+    }
+
+    @Override
+    public void move() {
+        commands++;
+        Robot robot = robotRegistry.find(robotId);
+        if (robot != null) {
+            robotCommandService.moveForward(robot);
+        }
+    }
+
+    @Override
+    public void left() {
+        commands++;
+        Robot robot = robotRegistry.find(robotId);
+        if (robot != null) {
+            robotCommandService.turnLeft(robot);
+        }
+    }
+
+    @Override
+    public void right() {
+        commands++;
+        Robot robot = robotRegistry.find(robotId);
+        if (robot != null) {
+            robotCommandService.turnRight(robot);
+        }
+    }
+
+    @Override
+    public void report() {
+        commands++;
+        Robot robot = robotRegistry.find(robotId);
+        if (reportCount == reports.length) {
+            reports = Arrays.copyOf(reports, reportCount << 1);
+        }
+        reports[reportCount++] = robot != null ? robotCommandService.reportState(robot) : RobotState.EMPTY;
+    }
+
+}
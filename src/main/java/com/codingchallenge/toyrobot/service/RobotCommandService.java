@@ -1,57 +1,60 @@
 package com.codingchallenge.toyrobot.service;
 
-import com.codingchallenge.toyrobot.config.ApplicationExceptionHandler;
 import com.codingchallenge.toyrobot.controller.UnknownCommandException;
-import com.codingchallenge.toyrobot.domain.CommandEnum;
-import com.codingchallenge.toyrobot.domain.CommandLeft;
-import com.codingchallenge.toyrobot.domain.CommandMove;
+import com.codingchallenge.toyrobot.domain.CellClaims;
 import com.codingchallenge.toyrobot.domain.CommandPlace;
-import com.codingchallenge.toyrobot.domain.CommandReport;
-import com.codingchallenge.toyrobot.domain.CommandRight;
-import com.codingchallenge.toyrobot.domain.DirectionEnum;
-import com.codingchallenge.toyrobot.domain.ICommand;
 import com.codingchallenge.toyrobot.domain.IRobotLocation;
+import com.codingchallenge.toyrobot.domain.Robot;
+import com.codingchallenge.toyrobot.domain.RobotHistory;
+import com.codingchallenge.toyrobot.domain.RobotHistoryDTO;
 import com.codingchallenge.toyrobot.domain.RobotLocation;
-import com.codingchallenge.toyrobot.domain.RobotLocationDTO;
-import com.codingchallenge.toyrobot.domain.RobotLocationMessageDTO;
+import com.codingchallenge.toyrobot.domain.RobotPositionDTO;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.codingchallenge.toyrobot.domain.RepeatedReportsDTO;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.domain.TrajectoryDTO;
 import com.codingchallenge.toyrobot.domain.TurnEnum;
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StringUtils;
 
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
-import java.util.StringTokenizer;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 @Service
-@Slf4j
 public class RobotCommandService {
 
-    // Robot grid size
-    protected static final int MIN_Y = 0;
-    protected static final int MIN_X = 0;
-    protected static final int MAX_Y = 4;
-    protected static final int MAX_X = 4;
+    // Endpoint names of batch audit events
+    private static final String BATCH_ENDPOINT = "batch";
+    private static final String STREAM_ENDPOINT = "stream";
+    private static final String ANALYSIS_ENDPOINT = "analysis";
 
-    // Logging template messages
-    private static final String TURN_COMMAND_MESSAGE = "Robot turning [{}][currentLocation={}]";
-    private static final String MOVE_COMMAND_MESSAGE = "Robot moving [{}][currentLocation={}]";
-    private static final String MOVE_COMMAND_IGNORED_MESSAGE = "Move command ignored [currentLocation={}]";
+    // Bytes of a streamed batch read and executed at a time
+    private static final int STREAM_BUFFER_SIZE = 8192;
 
-    // Stateful robot location - Use atomic reference to keep this thread safe
-    private static final AtomicReference<RobotLocation> stateFulRobotLocation = new AtomicReference<>();
+    private final TableRegistry tableRegistry;
+    private final CommandAudit audit;
+    private final RobotMetrics metrics;
+    private final RobotJournal journal;
+    private final BatchResultCache batchResults;
+    private final BatchExecutor batchExecutor;
+    private final ReportFragments reportFragments;
 
-
-    /**
-     * Accessor for stateful robot location/state
-     * @return
-     */
-    public static AtomicReference<RobotLocation> getStateFulRobotLocation() {
-        return stateFulRobotLocation;
+    public RobotCommandService(TableRegistry tableRegistry, CommandAudit audit, RobotMetrics metrics,
+                               RobotJournal journal, BatchResultCache batchResults, BatchExecutor batchExecutor,
+                               ReportFragments reportFragments) {
+        this.tableRegistry = tableRegistry;
+        this.audit = audit;
+        this.metrics = metrics;
+        this.journal = journal;
+        this.batchResults = batchResults;
+        this.batchExecutor = batchExecutor;
+        this.reportFragments = reportFragments;
     }
 
     /**
@@ -59,88 +62,192 @@ public class RobotCommandService {
      *
      * @param place
      */
-    public void placeRobot(AtomicReference<RobotLocation> robotLocationInstance, CommandPlace place) {
-        if (place.getX() >= MIN_X && place.getX() <= MAX_X && place.getY() >= MIN_Y && place.getY() <= MAX_Y) {
-            RobotLocation location = new RobotLocation(place.getX(), place.getY(), place.getDirection());
-            robotLocationInstance.set(location);
-            log.info("New robot location [currentLocation={}", location);
-        }
+    public void placeRobot(Robot robot, CommandPlace place) {
+        long start = System.nanoTime();
+        place(robot, place, AuditChannel.ROBOT);
+        recordHistory(robot);
+        metrics.command(RobotMetrics.Command.PLACE, start);
     }
 
     /**
      * Move robot forward in the direction its facing by one square
      */
-    public void moveForward(AtomicReference<RobotLocation> robotLocationInstance) {
-        robotLocationInstance.getAndUpdate(location -> {
-            if (location != null) {
-                switch (location.getDirection()) {
-                    case NORTH:
-                        if (location.getY() + 1 <= MAX_Y) {
-                            location.setY(location.getY() + 1);
-                            log.info(MOVE_COMMAND_MESSAGE, location.getDirection(), location);
-                        } else {
-                            log.warn(MOVE_COMMAND_IGNORED_MESSAGE, location);
-                        }
-                        break;
-                    case SOUTH:
-                        if (location.getY() - 1 >= MIN_Y) {
-                            location.setY(location.getY() - 1);
-                            log.info(MOVE_COMMAND_MESSAGE, location.getDirection(), location);
-                        } else {
-                            log.warn(MOVE_COMMAND_IGNORED_MESSAGE, location);
-                        }
-                        break;
-                    case EAST:
-                        if (location.getX() + 1 <= MAX_X) {
-                            location.setX(location.getX() + 1);
-                            log.info(MOVE_COMMAND_MESSAGE, location.getDirection(), location);
-                        } else {
-                            log.warn(MOVE_COMMAND_IGNORED_MESSAGE, location);
-                        }
-                        break;
-                    case WEST:
-                        if (location.getX() - 1 >= MIN_X) {
-                            location.setX(location.getX() - 1);
-                            log.info(MOVE_COMMAND_MESSAGE, location.getDirection(), location);
-                        } else {
-                            log.warn(MOVE_COMMAND_IGNORED_MESSAGE, location);
-                        }
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Unsupported robot direction");
-                }
-            }
-            return location;
-        });
+    public void moveForward(Robot robot) {
+        long start = System.nanoTime();
+        forward(robot, AuditChannel.ROBOT);
+        recordHistory(robot);
+        metrics.command(RobotMetrics.Command.MOVE, start);
     }
 
     /**
      * Turn robot left
      */
-    public void turnLeft(AtomicReference<RobotLocation> robotLocationInstance) {
-        turn(robotLocationInstance, TurnEnum.LEFT);
+    public void turnLeft(Robot robot) {
+        long start = System.nanoTime();
+        turn(robot, TurnEnum.LEFT, AuditChannel.ROBOT);
+        recordHistory(robot);
+        metrics.command(RobotMetrics.Command.LEFT, start);
     }
 
     /**
      * Turn robot right
      */
-    public void turnRight(AtomicReference<RobotLocation> robotLocationInstance) {
-        turn(robotLocationInstance, TurnEnum.RIGHT);
+    public void turnRight(Robot robot) {
+        long start = System.nanoTime();
+        turn(robot, TurnEnum.RIGHT, AuditChannel.ROBOT);
+        recordHistory(robot);
+        metrics.command(RobotMetrics.Command.RIGHT, start);
     }
 
     /**
      * Return robots current location
      */
-    public RobotLocation reportLocation(AtomicReference<RobotLocation> robotLocationInstance) {
-        return robotLocationInstance.get();
+    public RobotLocation reportLocation(Robot robot) {
+        return RobotState.toLocation(reportState(robot));
+    }
+
+    /**
+     * Return robots current packed state, {@link RobotState#EMPTY} when it is not on the grid
+     */
+    public long reportState(Robot robot) {
+        long start = System.nanoTime();
+        long state = robot.getState().get();
+        metrics.command(RobotMetrics.Command.REPORT, start);
+        return state;
     }
 
     /**
      * Remove the robot from the grid
      */
-    public void deleteRobot(AtomicReference<RobotLocation> robotLocationInstance) {
-        robotLocationInstance.set(null);
-        log.info("Robot deleted");
+    public void deleteRobot(Robot robot) {
+        long start = System.nanoTime();
+        long removed = robot.getState().getAndSet(RobotState.EMPTY);
+        if (robot.getTable().hasCollisions() && RobotState.isPlaced(removed)) {
+            robot.getTable().getCells().release(removed, robot);
+        }
+        updateOccupancy(robot);
+        journal.state(robot);
+        audit.record(AuditChannel.ROBOT, AuditEvent.DELETE, robot.getId(), removed);
+        recordHistory(robot);
+        metrics.command(RobotMetrics.Command.DELETE, start);
+    }
+
+    /**
+     * Place the robot as a step of a simulation tick, as {@link #placeRobot} without timing the command
+     *
+     * @param robot
+     * @param place
+     */
+    void simulatePlace(Robot robot, CommandPlace place) {
+        place(robot, place, AuditChannel.SIMULATION);
+        recordHistory(robot);
+    }
+
+    /**
+     * Move the robot as a step of a simulation tick, as {@link #moveForward} without timing the command
+     *
+     * @param robot
+     * @return false when the robot is not on the grid or the move was ignored
+     */
+    boolean simulateMove(Robot robot) {
+        boolean moved = forward(robot, AuditChannel.SIMULATION);
+        recordHistory(robot);
+        return moved;
+    }
+
+    /**
+     * Turn the robot as a step of a simulation tick, as {@link #turnLeft} and {@link #turnRight} without timing the
+     * command
+     *
+     * @param robot
+     * @param turnDirection
+     */
+    void simulateTurn(Robot robot, TurnEnum turnDirection) {
+        turn(robot, turnDirection, AuditChannel.SIMULATION);
+        recordHistory(robot);
+    }
+
+    private void place(Robot robot, CommandPlace place, AuditChannel channel) {
+        Table table = robot.getTable();
+        if (table.isOpen(place.getX(), place.getY())) {
+            long state = RobotState.of(place.getX(), place.getY(), place.getDirection());
+            if (table.hasCollisions()) {
+                if (!placeOnFreeCell(robot, state)) {
+                    audit.record(channel, AuditEvent.PLACE_IGNORED, robot.getId(), state);
+                    return;
+                }
+            } else {
+                robot.getState().set(state);
+            }
+            updateOccupancy(robot);
+            journal.state(robot);
+            audit.record(channel, AuditEvent.PLACE, robot.getId(), state);
+        }
+    }
+
+    private boolean forward(Robot robot, AuditChannel channel) {
+        AtomicLong robotState = robot.getState();
+        CellClaims cells = robot.getTable().getCells();
+        long current;
+        long next;
+        for (int attempt = 0; ; ++attempt) {
+            current = robotState.get();
+            if (!RobotState.isPlaced(current)) {
+                metrics.retries(RobotMetrics.Operation.MOVE, attempt);
+                return false;
+            }
+            next = forwardState(current, robot.getTable());
+            int claim = next == current ? CellClaims.OCCUPIED : cells != null ? cells.claim(next, robot) : CellClaims.CLAIMED;
+            if (claim == CellClaims.OCCUPIED) {
+                // Off the table or into another robot
+                metrics.retries(RobotMetrics.Operation.MOVE, attempt);
+                metrics.ignoredMove();
+                audit.record(channel, AuditEvent.MOVE_IGNORED, robot.getId(), current);
+                return false;
+            }
+            if (claim == CellClaims.CLAIMED) {
+                if (robotState.compareAndSet(current, next)) {
+                    metrics.retries(RobotMetrics.Operation.MOVE, attempt);
+                    break;
+                }
+                if (cells != null) {
+                    cells.release(next, robot);
+                }
+            }
+            // Claim HELD by another command on this robot which has not released it yet, retry from its state
+        }
+        if (cells != null) {
+            cells.release(current, robot);
+        }
+        updateOccupancy(robot);
+        journal.state(robot);
+        audit.record(channel, AuditEvent.MOVE, robot.getId(), next);
+        return true;
+    }
+
+    /**
+     * Robots on a shared table inside the rectangle from minX,minY to maxX,maxY inclusive
+     *
+     * @param table
+     * @param minX
+     * @param minY
+     * @param maxX
+     * @param maxY
+     * @return
+     */
+    public List<IRobotLocation> findRobots(Table table, int minX, int minY, int maxX, int maxY) {
+        if (!table.isShared()) {
+            throw new IllegalArgumentException("Occupancy is only indexed for shared tables");
+        }
+        List<IRobotLocation> found = new ArrayList<>();
+        for (Robot robot : table.getOccupancy().within(minX, minY, maxX, maxY)) {
+            long state = robot.getState().get();
+            // Robot may have been moved or removed since it was found
+            if (RobotState.isPlaced(state)) {
+                found.add(new RobotPositionDTO(robot.getId(), RobotState.x(state), RobotState.y(state), RobotState.direction(state)));
+            }
+        }
+        return found;
     }
 
     /**
@@ -150,40 +257,171 @@ public class RobotCommandService {
      * @return
      */
     public List<IRobotLocation> executeBatchCommandsForRobot(String batchCommands) {
-        AtomicReference<RobotLocation> robotLocationInstance = new AtomicReference<>();
-        // Create a new grid
-        return parseCommands(batchCommands).stream()
-                .map(cmd -> {
-                    IRobotLocation robotLocation = null;
-                    CommandEnum cmdType = cmd.getCommand();
-                    robotLocation = exeuteCommand(robotLocationInstance, cmd, robotLocation, cmdType);
-                    return robotLocation;
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-    }
-
-    private IRobotLocation exeuteCommand(AtomicReference<RobotLocation> robotLocationInstance, ICommand cmd, IRobotLocation robotLocation, CommandEnum cmdType) {
-        switch (cmdType) {
-            case PLACE:
-                placeRobot(robotLocationInstance, (CommandPlace)cmd);
-                break;
-            case MOVE:
-                moveForward(robotLocationInstance);
-                break;
-            case LEFT:
-                turnLeft(robotLocationInstance);
-                break;
-            case RIGHT:
-                turnRight(robotLocationInstance);
-                break;
-            case REPORT:
-                robotLocation = convertLocationToDTO(reportLocation(robotLocationInstance));
-                break;
-            default:
-                throw new IllegalArgumentException("Unsupported robot command");
+        return executeBatchCommandsForRobot(batchCommands, tableRegistry.getDefaultTable());
+    }
+
+    /**
+     * Execute a list of robot commands atomically on a table. The commands are folded by the {@link CommandOptimizer}
+     * as they are parsed and the reports of a batch already run on the same table layout are reused. Batches with
+     * REPEAT blocks are run by the {@link RepeatInterpreter}, identical reports in a row are returned as one
+     * {@link RepeatedReportsDTO}, as are the reports of a cycle of a block
+     *
+     * @param batchCommands
+     * @param table
+     * @return
+     */
+    public List<IRobotLocation> executeBatchCommandsForRobot(String batchCommands, Table table) {
+        long start = System.nanoTime();
+        CommandProgram program = new CommandProgram();
+        CommandOptimizer optimizer = new CommandOptimizer(table, program);
+        parseCommands(batchCommands, optimizer);
+        List<IRobotLocation> reports;
+        if (program.blockCount() > 0) {
+            recordBatch(optimizer);
+            ReportRuns runs = new ReportRuns();
+            RepeatInterpreter.execute(program, RobotState.EMPTY, table, runs);
+            reports = convertRunsToDTO(runs);
+        } else {
+            long[] states = execute(program, optimizer, table);
+            reports = new ArrayList<>(states.length);
+            for (long state : states) {
+                reports.add(convertStateToDTO(state));
+            }
         }
-        return robotLocation;
+        metrics.command(RobotMetrics.Command.BATCH, start);
+        return reports;
+    }
+
+    /**
+     * Execute a list of robot commands in the {@link BinaryProtocol} encoding atomically on a table, as the text
+     * batch is executed
+     *
+     * @param batchCommands
+     * @param table
+     * @return reports in the binary encoding
+     */
+    public byte[] executeBinaryBatchForRobot(byte[] batchCommands, Table table) {
+        long start = System.nanoTime();
+        CommandProgram program = new CommandProgram();
+        CommandOptimizer optimizer = new CommandOptimizer(table, program);
+        scan(() -> BinaryProtocol.decodeCommands(batchCommands, 0, batchCommands.length, optimizer));
+        optimizer.flush();
+        long[] states = execute(program, optimizer, table);
+        byte[] reports = BinaryProtocol.encodeReports(states, states.length);
+        metrics.command(RobotMetrics.Command.BATCH, start);
+        return reports;
+    }
+
+    /**
+     * Execute each of the scripts atomically on a table, scripts run in parallel
+     *
+     * @param batches
+     * @param table
+     * @return reports of each script in order
+     */
+    public List<List<IRobotLocation>> executeBatchesForRobots(List<String> batches, Table table) {
+        return batchExecutor.executeAll(batches, batchCommands -> executeBatchCommandsForRobot(batchCommands, table));
+    }
+
+    private long[] execute(CommandProgram program, CommandOptimizer optimizer, Table table) {
+        recordBatch(optimizer);
+        // The program runs on its own private robot, long programs in parallel segments
+        return batchResults.get(program, table, compiled -> batchExecutor.execute(compiled, table));
+    }
+
+    private void recordBatch(CommandOptimizer optimizer) {
+        audit.record(AuditChannel.BATCH, AuditEvent.BATCH, BATCH_ENDPOINT, optimizer.commandCount());
+        metrics.batchSize(optimizer.commandCount());
+    }
+
+    /**
+     * Execute a stream of robot commands as it is read, memory use is constant regardless of the stream size.
+     * Reports are handed to the consumer as they are produced and flushed after each chunk of input which
+     * produced a report. A REPEAT block runs once it has been read to its end, so memory use grows with the size of
+     * the blocks.
+     *
+     * @param batchCommands
+     * @param table
+     * @param reports
+     * @param flushable
+     * @throws IOException
+     */
+    public void streamBatchCommandsForRobot(InputStream batchCommands, Table table, Consumer<IRobotLocation> reports,
+                                            Flushable flushable) throws IOException {
+        long start = System.nanoTime();
+        CommandProgram program = new CommandProgram();
+        CommandOptimizer optimizer = new CommandOptimizer(table, program);
+        CommandScanner scanner = new CommandScanner(optimizer);
+        LongConsumer reportConsumer = state -> reports.accept(convertStateToDTO(state));
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        // The stream runs on its own private robot, carried from chunk to chunk
+        long robotState = RobotState.EMPTY;
+        long commands = 0;
+        int read;
+        while ((read = batchCommands.read(buffer)) != -1) {
+            int chunk = read;
+            scan(() -> scanner.feed(buffer, 0, chunk));
+            if (program.openBlocks() > 0) {
+                continue;
+            }
+            audit.record(AuditChannel.STREAM, AuditEvent.BATCH, STREAM_ENDPOINT, optimizer.commandCount());
+            commands += optimizer.commandCount();
+            optimizer.flush();
+            robotState = executeStreamed(program, robotState, table, reportConsumer, reports);
+            if (program.reportCount() > 0) {
+                flushable.flush();
+            }
+            optimizer.clear();
+        }
+        scan(scanner::finish);
+        commands += optimizer.commandCount();
+        optimizer.flush();
+        executeStreamed(program, robotState, table, reportConsumer, reports);
+        flushable.flush();
+        metrics.batchSize((int) Math.min(commands, Integer.MAX_VALUE));
+        metrics.command(RobotMetrics.Command.STREAM, start);
+    }
+
+    private long executeStreamed(CommandProgram program, long state, Table table, LongConsumer reportConsumer,
+                                 Consumer<IRobotLocation> reports) {
+        if (program.blockCount() == 0) {
+            return CommandInterpreter.execute(program, state, table, reportConsumer);
+        }
+        ReportRuns runs = new ReportRuns();
+        state = RepeatInterpreter.execute(program, state, table, runs);
+        convertRunsToDTO(runs).forEach(reports);
+        return state;
+    }
+
+    /**
+     * Run a stream of robot commands on a private robot as it is read and summarise the robot's trajectory, memory use
+     * depends on the cells visited and not on the size of the stream
+     *
+     * @param batchCommands
+     * @param table
+     * @return
+     * @throws IOException
+     */
+    public TrajectoryDTO analyseBatchCommandsForRobot(InputStream batchCommands, Table table) throws IOException {
+        long start = System.nanoTime();
+        TrajectoryAnalysis analysis = new TrajectoryAnalysis(table);
+        CommandScanner scanner = new CommandScanner(analysis);
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        int read;
+        while ((read = batchCommands.read(buffer)) != -1) {
+            int chunk = read;
+            scan(() -> scanner.feed(buffer, 0, chunk));
+        }
+        scan(scanner::finish);
+        audit.record(AuditChannel.BATCH, AuditEvent.BATCH, ANALYSIS_ENDPOINT, analysis.getCommands());
+        metrics.batchSize((int) Math.min(analysis.getCommands(), Integer.MAX_VALUE));
+        List<int[]> visited = new ArrayList<>();
+        analysis.getVisited().forEachRun((x, y, length) -> visited.add(new int[]{x, y, length}));
+        TrajectoryDTO trajectory = new TrajectoryDTO(analysis.getCommands(), analysis.getMoves(),
+                analysis.getIgnoredMoves(), analysis.getIgnoredPlacements(), analysis.getReports(), analysis.getVisits(),
+                analysis.getVisited().size(), visited, convertStateToDTO(analysis.state()));
+        metrics.command(RobotMetrics.Command.ANALYSIS, start);
+        return trajectory;
     }
 
     /**
@@ -191,134 +429,177 @@ public class RobotCommandService {
      *
      * @param turnDirection
      */
-    private void turn(AtomicReference<RobotLocation> robotLocationInstance, TurnEnum turnDirection) {
-        robotLocationInstance.getAndUpdate(rl -> {
-            if (rl != null) {
-                switch (rl.getDirection()) {
-                    case NORTH:
-                        if (turnDirection == TurnEnum.LEFT) {
-                            rl.setDirection(DirectionEnum.WEST);
-                        } else if (turnDirection == TurnEnum.RIGHT) {
-                            rl.setDirection(DirectionEnum.EAST);
-                        }
-                        log.info(TURN_COMMAND_MESSAGE, turnDirection, rl);
-                        break;
-                    case SOUTH:
-                        if (turnDirection == TurnEnum.LEFT) {
-                            rl.setDirection(DirectionEnum.EAST);
-                        } else if (turnDirection == TurnEnum.RIGHT) {
-                            rl.setDirection(DirectionEnum.WEST);
-                        }
-                        log.info(TURN_COMMAND_MESSAGE, turnDirection, rl);
-                        break;
-                    case EAST:
-                        if (turnDirection == TurnEnum.LEFT) {
-                            rl.setDirection(DirectionEnum.NORTH);
-                        } else if (turnDirection == TurnEnum.RIGHT) {
-                            rl.setDirection(DirectionEnum.SOUTH);
-                        }
-                        log.info(TURN_COMMAND_MESSAGE, turnDirection, rl);
-                        break;
-                    case WEST:
-                        if (turnDirection == TurnEnum.LEFT) {
-                            rl.setDirection(DirectionEnum.SOUTH);
-                        } else if (turnDirection == TurnEnum.RIGHT) {
-                            rl.setDirection(DirectionEnum.NORTH);
-                        }
-                        log.info(TURN_COMMAND_MESSAGE, turnDirection, rl);
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Unknown robot direction");
-                }
+    private void turn(Robot robot, TurnEnum turnDirection, AuditChannel channel) {
+        AtomicLong robotState = robot.getState();
+        long current;
+        long next;
+        int attempt = -1;
+        do {
+            attempt++;
+            current = robotState.get();
+            if (!RobotState.isPlaced(current)) {
+                metrics.retries(RobotMetrics.Operation.TURN, attempt);
+                return;
             }
-            return rl;
-        });
+            next = RobotState.turn(current, turnDirection.ordinal());
+        } while (!robotState.compareAndSet(current, next));
+        metrics.retries(RobotMetrics.Operation.TURN, attempt);
+        journal.state(robot);
+        audit.record(channel, AuditEvent.TURN, robot.getId(), next);
     }
 
     /**
-     * Parse a batch of commands that have been passed in
+     * State after moving one square forward, the same state when the move would fall off the grid
      *
-     * @param batchCliCommands
+     * @param state
      * @return
      */
-    private List<ICommand> parseCommands(String batchCliCommands) {
-        List<ICommand> commandRet = new ArrayList<>();
-        if (StringUtils.hasText(batchCliCommands)) {
-            // Cleanup whitespace so we can parse nicely
-            batchCliCommands = batchCliCommands.replaceAll("\\s*,\\s*", ",").replaceAll("\\s+", " ");
-            log.info("batchCliCommands={}", batchCliCommands);
-            StringTokenizer st = new StringTokenizer(batchCliCommands);
-            while (st.hasMoreTokens()) {
-                String cmd = st.nextToken().trim().toUpperCase();
-                if (CommandEnum.PLACE.name().equals(cmd)) {
-                    // Intialize and loop around for the next arg
-                    CommandPlace commandHolder = new CommandPlace(-1, -1, null);
-                    if (st.hasMoreTokens()) {
-                        setPlacementParameters(st.nextToken(), commandHolder);
-                    } else {
-                        throw new IllegalArgumentException(String.format("%s requires placement arguments", CommandEnum.PLACE));
+    private static long forwardState(long state, Table table) {
+        int direction = RobotState.directionOrdinal(state);
+        int x = RobotState.x(state) + RobotState.dx(direction);
+        int y = RobotState.y(state) + RobotState.dy(direction);
+        return table.isOpen(x, y) ? RobotState.of(x, y, direction) : state;
+    }
+
+    /**
+     * Place the robot on a table with collisions when no other robot holds the cell
+     *
+     * @param robot
+     * @param state
+     * @return false when the cell is occupied by another robot
+     */
+    private boolean placeOnFreeCell(Robot robot, long state) {
+        AtomicLong robotState = robot.getState();
+        CellClaims cells = robot.getTable().getCells();
+        for (int attempt = 0; ; ++attempt) {
+            long current = robotState.get();
+            boolean sameCell = RobotState.isPlaced(current) && RobotState.cell(current) == RobotState.cell(state);
+            int claim = sameCell ? CellClaims.CLAIMED : cells.claim(state, robot);
+            if (claim == CellClaims.OCCUPIED) {
+                metrics.retries(RobotMetrics.Operation.PLACE, attempt);
+                return false;
+            }
+            if (claim == CellClaims.CLAIMED) {
+                if (robotState.compareAndSet(current, state)) {
+                    metrics.retries(RobotMetrics.Operation.PLACE, attempt);
+                    if (RobotState.isPlaced(current) && !sameCell) {
+                        cells.release(current, robot);
                     }
-                    commandRet.add(commandHolder);
-                } else if (CommandEnum.MOVE.name().equals(cmd)) {
-                    CommandMove commandHolder = new CommandMove();
-                    commandRet.add(commandHolder);
-                } else if (CommandEnum.LEFT.name().equals(cmd)) {
-                    CommandLeft commandHolder = new CommandLeft();
-                    commandRet.add(commandHolder);
-                } else if (CommandEnum.RIGHT.name().equals(cmd)) {
-                    CommandRight commandHolder = new CommandRight();
-                    commandRet.add(commandHolder);
-                } else if (CommandEnum.REPORT.name().equals(cmd)) {
-                    CommandReport commandHolder = new CommandReport();
-                    commandRet.add(commandHolder);
-                } else {
-                    throw new UnknownCommandException(Arrays.asList(String.format("Unsupported command [%s]", cmd)));
+                    return true;
+                }
+                if (!sameCell) {
+                    cells.release(state, robot);
                 }
             }
         }
-        return commandRet;
     }
 
     /**
-     * Parses and sets the placement parameters following a PLACE command
+     * Robot after a command of its history, at a command number or the last command at or before a time
      *
-     * @param placement
-     * @param commandHolder
+     * @param robot
+     * @param command number of commands applied, 0 for the robot before its first command
+     * @param time    epoch milliseconds, used when no command number is given
+     * @return null when the robot's history is not recorded
      */
-    private void setPlacementParameters(String placement, CommandPlace commandHolder) {
-        placement = placement.trim().toUpperCase();
-        // Parse the placements
-        StringTokenizer placementSt = new StringTokenizer(placement, ",");
-        if (placementSt.countTokens() != 3) {
-            throw new IllegalArgumentException(String.format("Invalid placement arguments [%s]", placement));
+    public RobotHistoryDTO historyAt(Robot robot, Long command, Long time) {
+        RobotHistory history = robot.getHistory();
+        if (history == null) {
+            return null;
         }
-        String placementValue = null;
-        try {
-            placementValue = placementSt.nextToken();
-            int x = Integer.parseInt(placementValue);
-            placementValue = placementSt.nextToken();
-            int y = Integer.parseInt(placementValue);
-            placementValue = placementSt.nextToken().toUpperCase();
-            DirectionEnum direction = DirectionEnum.valueOf(placementValue);
-            commandHolder.setX(x);
-            commandHolder.setY(y);
-            commandHolder.setDirection(direction);
-        } catch (Exception parseEx) {
-            throw new IllegalArgumentException(String.format("Invalid placement value [%s]", placementValue));
+        RobotHistory.Point point = command != null || time == null ?
+                history.atCommand(command != null ? command : Long.MAX_VALUE) : history.atTime(time);
+        return new RobotHistoryDTO(point.getCommand(), point.getTime(), history.getCommands(),
+                history.isTruncated(), convertStateToDTO(point.getState()));
+    }
+
+    private static void recordHistory(Robot robot) {
+        RobotHistory history = robot.getHistory();
+        if (history != null) {
+            history.record(robot.getState(), System.currentTimeMillis());
         }
+    }
 
+    private static void updateOccupancy(Robot robot) {
+        if (robot.getTable().isShared()) {
+            robot.getTable().getOccupancy().update(robot);
+        }
+    }
+
+    /**
+     * Parse a batch of commands that have been passed in
+     *
+     * @param batchCliCommands
+     * @param optimizer        folds the commands into its program
+     */
+    private void parseCommands(String batchCliCommands, CommandOptimizer optimizer) {
+        if (batchCliCommands != null) {
+            audit.record(AuditChannel.BATCH, AuditEvent.BATCH_SCRIPT, batchCliCommands, batchCliCommands.length());
+            CommandScanner scanner = new CommandScanner(optimizer);
+            scan(() -> {
+                scanner.feed(batchCliCommands);
+                scanner.finish();
+            });
+        }
+        optimizer.flush();
+    }
+
+    /**
+     * Run the scanner, counting rejected input
+     *
+     * @param scan
+     */
+    private void scan(Runnable scan) {
+        try {
+            scan.run();
+        } catch (UnknownCommandException | IllegalArgumentException e) {
+            metrics.parseError();
+            throw e;
+        }
     }
 
     /**
-     * Convert location to DTO for output
+     * Convert location to DTO for output, DTOs on the default table are shared
      *
      * @param robotLocation
      * @return
      */
     public IRobotLocation convertLocationToDTO(RobotLocation robotLocation) {
         return robotLocation != null ?
-                new RobotLocationDTO(robotLocation.getX(), robotLocation.getY(), robotLocation.getDirection()) :
-                new RobotLocationMessageDTO(ApplicationExceptionHandler.MISSING_ROBOT_MESSAGE);
+                reportFragments.location(robotLocation.getX(), robotLocation.getY(), robotLocation.getDirection()) :
+                ReportFragments.MISSING_ROBOT;
+    }
+
+    /**
+     * Convert run-length encoded reports to DTOs for output, a single report is not wrapped
+     *
+     * @param runs
+     * @return
+     */
+    public List<IRobotLocation> convertRunsToDTO(ReportRuns runs) {
+        List<IRobotLocation> reports = new ArrayList<>(runs.size());
+        for (int entry = 0; entry < runs.size(); ++entry) {
+            ReportRuns block = runs.block(entry);
+            if (block != null) {
+                reports.add(new RepeatedReportsDTO(runs.count(entry), convertRunsToDTO(block)));
+            } else if (runs.count(entry) == 1) {
+                reports.add(convertStateToDTO(runs.state(entry)));
+            } else {
+                reports.add(new RepeatedReportsDTO(runs.count(entry),
+                        Collections.singletonList(convertStateToDTO(runs.state(entry)))));
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * Convert packed robot state to DTO for output, DTOs on the default table are shared
+     *
+     * @param state
+     * @return
+     */
+    public IRobotLocation convertStateToDTO(long state) {
+        return reportFragments.location(state);
     }
 
 }
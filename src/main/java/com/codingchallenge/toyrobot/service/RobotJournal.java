@@ -0,0 +1,426 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.Robot;
+import com.codingchallenge.toyrobot.domain.Table;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append only journal of the registered robots and shared tables.
+ * <p>
+ * Records are appended to an in-memory buffer and a writer thread swaps it for a second buffer and writes it to the
+ * current journal segment, so a single write (and sync) commits every record appended since the last one. A state
+ * record holds the robot state read when it is appended under the journal lock, so the last record of a robot is
+ * always its latest state whatever order concurrent commands finished their compare-and-swap in.
+ * <p>
+ * The journal is split into numbered segments, {@link RobotPersistence} starts a new segment when it takes a
+ * snapshot so older segments can be deleted.
+ * <p>
+ * A failed write stops the journal, every later record and rotation throws rather than reporting a change as journaled
+ * when it is not.
+ */
+@Service
+@Slf4j
+public class RobotJournal {
+
+    /**
+     * When appended records are synced to the storage device
+     */
+    public enum Fsync {
+        // Written to the file system, synced by the operating system
+        NEVER,
+        // Synced once per group of records written, commands do not wait for it
+        GROUP,
+        // Commands wait until their record is synced, one sync commits every waiting command
+        ALWAYS
+    }
+
+    // Record types, END terminates a snapshot
+    static final byte END = 0;
+    static final byte TABLE = 1;
+    static final byte ROBOT = 2;
+    static final byte STATE = 3;
+    static final byte DELETE = 4;
+
+    private static final int STATE_RECORD_BYTES = 1 + Integer.BYTES + Long.BYTES;
+    private static final int DELETE_RECORD_BYTES = 1 + Integer.BYTES;
+    private static final int MIN_BUFFER_BYTES = 64 * 1024;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final Fsync fsync;
+    private final AtomicInteger handles = new AtomicInteger();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Signalled when there are records to write or a new segment is requested
+    private final Condition pending = lock.newCondition();
+    // Signalled when the writer has taken the buffer, made records durable or started a new segment
+    private final Condition written = lock.newCondition();
+    private ByteBuffer active;
+    private ByteBuffer flushing;
+    private long appended;
+    private long durable;
+    private long segment;
+    private long segmentRecords;
+    private long rotations;
+    private boolean rotateRequested;
+    private FileChannel channel;
+    private Thread writer;
+    private volatile boolean open;
+    // Set by the writer when a write fails, nothing is journaled after it
+    private volatile boolean failed;
+
+    public RobotJournal(RobotProperties robotProperties) {
+        RobotProperties.JournalProperties journal = robotProperties.getJournal();
+        this.enabled = journal.isEnabled();
+        this.directory = Paths.get(journal.getDirectory()).toAbsolutePath().normalize();
+        this.fsync = journal.getFsync();
+        int bufferSize = Math.max(journal.getBufferSize(), MIN_BUFFER_BYTES);
+        this.active = ByteBuffer.allocateDirect(bufferSize);
+        this.flushing = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(String.format("journal-%019d.log", segment));
+    }
+
+    /**
+     * Start appending to a new journal segment
+     *
+     * @param firstSegment number of the segment
+     * @throws IOException
+     */
+    public void open(long firstSegment) throws IOException {
+        lock.lock();
+        try {
+            segment = firstSegment;
+            channel = FileChannel.open(segmentPath(directory, segment), StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE);
+            open = true;
+            writer = new Thread(this::write, "robot-journal");
+            writer.setDaemon(true);
+            writer.start();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Give the robot a journal handle and append its registration without waiting for it to be durable, so it can be
+     * appended under a lock ordering the registrations of an id and waited for with {@link #awaitDurable(long)} after
+     *
+     * @param robot
+     * @return sequence of the appended record, 0 when nothing was appended
+     */
+    public long register(Robot robot) {
+        if (!enabled) {
+            return 0;
+        }
+        robot.setJournalHandle(handles.incrementAndGet());
+        if (!open) {
+            return 0;
+        }
+        Table table = robot.getTable();
+        byte[] id = bytes(robot.getId());
+        byte[] tableId = table.isShared() ? bytes(table.getId()) : null;
+        int size = 1 + Integer.BYTES + stringBytes(id) + stringBytes(tableId) + 2 * Integer.BYTES;
+        lock.lock();
+        try {
+            ByteBuffer buffer = reserve(size);
+            if (buffer == null) {
+                return 0;
+            }
+            buffer.put(ROBOT).putInt(robot.getJournalHandle());
+            putString(buffer, id);
+            putString(buffer, tableId);
+            buffer.putInt(table.getWidth()).putInt(table.getHeight());
+            return commit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Journal the creation of a shared table
+     *
+     * @param table
+     */
+    public void table(Table table) {
+        if (!open) {
+            return;
+        }
+        byte[] id = bytes(table.getId());
+        int size = 1 + stringBytes(id) + 2 * Integer.BYTES + 1;
+        lock.lock();
+        try {
+            ByteBuffer buffer = reserve(size);
+            if (buffer == null) {
+                return;
+            }
+            buffer.put(TABLE);
+            putString(buffer, id);
+            buffer.putInt(table.getWidth()).putInt(table.getHeight()).put((byte) (table.hasCollisions() ? 1 : 0));
+            awaitDurable(commit());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Journal the latest state of a registered robot, called after every change of its state
+     *
+     * @param robot
+     */
+    public void state(Robot robot) {
+        int handle = robot.getJournalHandle();
+        if (!open || handle == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            ByteBuffer buffer = reserve(STATE_RECORD_BYTES);
+            if (buffer == null) {
+                return;
+            }
+            // Read under the lock so the last record of the robot always holds its latest state
+            buffer.put(STATE).putInt(handle).putLong(robot.getState().get());
+            awaitDurable(commit());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Journal the removal of a registered robot
+     *
+     * @param robot
+     */
+    public void delete(Robot robot) {
+        int handle = robot.getJournalHandle();
+        if (!open || handle == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            ByteBuffer buffer = reserve(DELETE_RECORD_BYTES);
+            if (buffer == null) {
+                return;
+            }
+            buffer.put(DELETE).putInt(handle);
+            awaitDurable(commit());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records appended to the current segment
+     */
+    public long getSegmentRecords() {
+        lock.lock();
+        try {
+            return segmentRecords;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write everything appended so far and start a new segment
+     *
+     * @return number of the new segment, every later record is appended to it
+     */
+    public long rotate() {
+        lock.lock();
+        try {
+            long target = rotations + 1;
+            rotateRequested = true;
+            pending.signal();
+            while (open && !failed && rotations < target) {
+                written.awaitUninterruptibly();
+            }
+            checkFailed();
+            return segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException, IOException {
+        Thread stopping;
+        lock.lock();
+        try {
+            if (!open) {
+                return;
+            }
+            open = false;
+            pending.signal();
+            stopping = writer;
+        } finally {
+            lock.unlock();
+        }
+        stopping.join();
+        channel.close();
+    }
+
+    /**
+     * Space for a record in the active buffer, called holding the lock
+     *
+     * @param size
+     * @return the active buffer or null when the journal is not open
+     */
+    private ByteBuffer reserve(int size) {
+        if (size > active.capacity()) {
+            throw new IllegalArgumentException("Journal record is larger than the journal buffer");
+        }
+        while (open && !failed && active.remaining() < size) {
+            // Wait for the writer to take the full buffer
+            pending.signal();
+            written.awaitUninterruptibly();
+        }
+        checkFailed();
+        return open ? active : null;
+    }
+
+    private long commit() {
+        segmentRecords++;
+        pending.signal();
+        return ++appended;
+    }
+
+    /**
+     * Wait until an appended record is synced when commands wait for their records
+     *
+     * @param sequence sequence of the record, 0 returns at once
+     */
+    public void awaitDurable(long sequence) {
+        if (fsync != Fsync.ALWAYS || sequence == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (open && !failed && durable < sequence) {
+                written.awaitUninterruptibly();
+            }
+            if (durable < sequence) {
+                checkFailed();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkFailed() {
+        if (failed) {
+            throw new IllegalStateException("Robot journal write failed, changes are no longer journaled");
+        }
+    }
+
+    private void write() {
+        for (;;) {
+            long sequence;
+            boolean rotate;
+            ByteBuffer buffer;
+            lock.lock();
+            try {
+                while (open && active.position() == 0 && !rotateRequested) {
+                    pending.awaitUninterruptibly();
+                }
+                if (!open && active.position() == 0) {
+                    written.signalAll();
+                    return;
+                }
+                buffer = active;
+                active = flushing;
+                flushing = buffer;
+                sequence = appended;
+                rotate = rotateRequested;
+                if (rotate) {
+                    segmentRecords = 0;
+                }
+                written.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            IOException failure = null;
+            try {
+                ((Buffer) buffer).flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (fsync != Fsync.NEVER) {
+                    channel.force(false);
+                }
+                if (rotate) {
+                    channel.close();
+                    channel = FileChannel.open(segmentPath(directory, segment + 1), StandardOpenOption.CREATE_NEW,
+                            StandardOpenOption.WRITE);
+                }
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                ((Buffer) buffer).clear();
+            }
+            lock.lock();
+            try {
+                if (failure != null) {
+                    // The channel is closed by close(), records waiting on the write throw
+                    log.error("Robot journal write failed, journaling is stopped", failure);
+                    failed = true;
+                    written.signalAll();
+                    return;
+                }
+                durable = sequence;
+                if (rotate) {
+                    segment++;
+                    rotations++;
+                    rotateRequested = false;
+                }
+                written.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int stringBytes(byte[] value) {
+        return Integer.BYTES + (value != null ? value.length : 0);
+    }
+
+    // Strings are a length (-1 for null) followed by the UTF-8 bytes
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length).put(value);
+        }
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters of the robot commands.
+ * <p>
+ * Every meter is registered up front and held in arrays indexed by ordinal, so recording is a timer or counter update
+ * without any meter lookup or tag allocation on the command path.
+ */
+@Service
+public class RobotMetrics {
+
+    /**
+     * Timed commands
+     */
+    public enum Command {
+        PLACE,
+        MOVE,
+        LEFT,
+        RIGHT,
+        REPORT,
+        DELETE,
+        BATCH,
+        STREAM,
+        BROADCAST,
+        ANALYSIS
+    }
+
+    /**
+     * Operations retrying their compare and set
+     */
+    public enum Operation {
+        MOVE,
+        TURN,
+        PLACE
+    }
+
+    private final Timer[] commands = new Timer[Command.values().length];
+    private final Counter[] retries = new Counter[Operation.values().length];
+    private final Counter ignoredMoves;
+    private final Counter parseErrors;
+    private final DistributionSummary batchSize;
+    private final Timer simulationTicks;
+    private final Timer simulationLag;
+    private final Counter simulationSteps;
+
+    public RobotMetrics(MeterRegistry meterRegistry, RobotRegistry robotRegistry, CommandAudit audit,
+                        RobotProperties robotProperties) {
+        double[] percentiles = robotProperties.getMetrics().getPercentiles();
+        for (Command command : Command.values()) {
+            commands[command.ordinal()] = Timer.builder("robot.command")
+                    .description("Robot command latency")
+                    .tag("command", name(command))
+                    .publishPercentileHistogram()
+                    .publishPercentiles(percentiles)
+                    .register(meterRegistry);
+        }
+        for (Operation operation : Operation.values()) {
+            retries[operation.ordinal()] = Counter.builder("robot.cas.retries")
+                    .description("Robot state updates retried after losing a race with another command")
+                    .tag("operation", name(operation))
+                    .register(meterRegistry);
+        }
+        ignoredMoves = Counter.builder("robot.move.ignored")
+                .description("Moves ignored at the table edge, an obstacle or another robot")
+                .register(meterRegistry);
+        parseErrors = Counter.builder("robot.batch.parse.errors")
+                .description("Cli batches rejected by the command scanner")
+                .register(meterRegistry);
+        batchSize = DistributionSummary.builder("robot.batch.size")
+                .description("Commands per cli batch, a streamed batch is one sample once the stream ends")
+                .baseUnit("commands")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        simulationTicks = Timer.builder("robot.simulation.tick")
+                .description("Time to advance every simulated robot by one tick")
+                .publishPercentileHistogram()
+                .publishPercentiles(percentiles)
+                .register(meterRegistry);
+        simulationLag = Timer.builder("robot.simulation.lag")
+                .description("Delay of the start of a simulation tick after its scheduled time")
+                .publishPercentileHistogram()
+                .publishPercentiles(percentiles)
+                .register(meterRegistry);
+        simulationSteps = Counter.builder("robot.simulation.steps")
+                .description("Commands applied to simulated robots")
+                .register(meterRegistry);
+        Gauge.builder("robot.active", robotRegistry, RobotRegistry::size)
+                .description("Robots registered by id")
+                .register(meterRegistry);
+        FunctionCounter.builder("robot.audit.dropped", audit, CommandAudit::getDropped)
+                .description("Audit events dropped because the audit writer fell behind")
+                .register(meterRegistry);
+        Gauge.builder("robot.audit.pending", audit, CommandAudit::getPending)
+                .description("Audit events waiting for the audit writer")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Record a command which started at the nano time
+     *
+     * @param command
+     * @param startNanos {@link System#nanoTime()} at the start of the command
+     */
+    public void command(Command command, long startNanos) {
+        commands[command.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void retries(Operation operation, int count) {
+        if (count > 0) {
+            retries[operation.ordinal()].increment(count);
+        }
+    }
+
+    public void ignoredMove() {
+        ignoredMoves.increment();
+    }
+
+    public void parseError() {
+        parseErrors.increment();
+    }
+
+    public void batchSize(int commands) {
+        batchSize.record(commands);
+    }
+
+    /**
+     * Record a simulation tick which started at the nano time
+     *
+     * @param startNanos {@link System#nanoTime()} at the start of the tick
+     * @param steps      commands applied to simulated robots by the tick
+     */
+    public void simulationTick(long startNanos, long steps) {
+        simulationTicks.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        simulationSteps.increment(steps);
+    }
+
+    public void simulationLag(long lagNanos) {
+        simulationLag.record(lagNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String name(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+
+}
@@ -0,0 +1,337 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.CellClaims;
+import com.codingchallenge.toyrobot.domain.Robot;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.codingchallenge.toyrobot.domain.Table;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Recovers the registered robots and shared tables from the latest snapshot and the journal written since, and
+ * takes snapshots so the journal can be truncated.
+ * <p>
+ * A snapshot is written in the journal record format, so recovery reads the snapshot and then replays every later
+ * journal segment with the same reader. A snapshot named after journal segment N holds everything journaled before
+ * segment N. Obstacle maps are not journaled and are loaded again after a restart.
+ */
+@Service
+@Slf4j
+public class RobotPersistence {
+
+    // "TRSN" snapshot file marker
+    private static final int SNAPSHOT_MAGIC = 0x5452534E;
+    private static final int READ_BUFFER_BYTES = 1024 * 1024;
+    private static final Pattern SNAPSHOT = Pattern.compile("snapshot-(\\d+)\\.bin");
+    private static final Pattern SEGMENT = Pattern.compile("journal-(\\d+)\\.log");
+
+    private final RobotJournal journal;
+    private final TableRegistry tableRegistry;
+    private final RobotRegistry robotRegistry;
+    private final long snapshotRecords;
+    private final long snapshotCheckMillis;
+    private ScheduledExecutorService snapshots;
+
+    public RobotPersistence(RobotProperties robotProperties, RobotJournal journal, TableRegistry tableRegistry,
+                            RobotRegistry robotRegistry) {
+        this.journal = journal;
+        this.tableRegistry = tableRegistry;
+        this.robotRegistry = robotRegistry;
+        this.snapshotRecords = robotProperties.getJournal().getSnapshotRecords();
+        this.snapshotCheckMillis = robotProperties.getJournal().getSnapshotCheckMillis();
+    }
+
+    /**
+     * Recover from the journal directory, then snapshot the recovered state and start journaling to a new segment
+     *
+     * @throws IOException
+     */
+    @PostConstruct
+    public void recover() throws IOException {
+        if (!journal.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        Path directory = journal.getDirectory();
+        Files.createDirectories(directory);
+        Map<Integer, Robot> handles = new HashMap<>();
+        long firstSegment = 0;
+        Path snapshot = latest(directory, SNAPSHOT);
+        if (snapshot != null) {
+            firstSegment = number(snapshot, SNAPSHOT);
+            replay(snapshot, true, handles);
+        }
+        long nextSegment = firstSegment;
+        for (Path segment : files(directory, SEGMENT)) {
+            long number = number(segment, SEGMENT);
+            if (number >= firstSegment) {
+                replay(segment, false, handles);
+                nextSegment = number + 1;
+            }
+        }
+        restoreTables();
+        journal.open(nextSegment);
+        snapshot(nextSegment);
+        log.info("Recovered {} robots and {} shared tables in {} ms", robotRegistry.size(),
+                tableRegistry.getSharedTables().size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "robot-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshots.scheduleWithFixedDelay(this::snapshotWhenDue, snapshotCheckMillis, snapshotCheckMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Start a new journal segment and snapshot everything journaled before it
+     *
+     * @throws IOException
+     */
+    public void snapshot() throws IOException {
+        snapshot(journal.rotate());
+    }
+
+    @PreDestroy
+    public void close() {
+        if (snapshots != null) {
+            snapshots.shutdownNow();
+        }
+    }
+
+    private void snapshotWhenDue() {
+        try {
+            if (journal.getSegmentRecords() >= snapshotRecords) {
+                snapshot();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Robot snapshot failed", e);
+        }
+    }
+
+    /**
+     * Write a snapshot covering the journal before the segment and delete the files it replaces
+     *
+     * @param segment
+     * @throws IOException
+     */
+    private void snapshot(long segment) throws IOException {
+        Path directory = journal.getDirectory();
+        Path snapshot = directory.resolve(String.format("snapshot-%019d.bin", segment));
+        Path temporary = directory.resolve(snapshot.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, READ_BUFFER_BYTES));
+            out.writeInt(SNAPSHOT_MAGIC);
+            for (Table table : tableRegistry.getSharedTables()) {
+                writeTable(out, table);
+            }
+            try {
+                robotRegistry.forEach(robot -> writeRobot(out, robot));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.writeByte(RobotJournal.END);
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+        for (Path old : files(directory, SNAPSHOT)) {
+            if (number(old, SNAPSHOT) < segment) {
+                Files.delete(old);
+            }
+        }
+        for (Path old : files(directory, SEGMENT)) {
+            if (number(old, SEGMENT) < segment) {
+                Files.delete(old);
+            }
+        }
+    }
+
+    private static void writeTable(DataOutputStream out, Table table) throws IOException {
+        out.writeByte(RobotJournal.TABLE);
+        writeString(out, table.getId());
+        out.writeInt(table.getWidth());
+        out.writeInt(table.getHeight());
+        out.writeByte(table.hasCollisions() ? 1 : 0);
+    }
+
+    private static void writeRobot(DataOutputStream out, Robot robot) {
+        try {
+            Table table = robot.getTable();
+            out.writeByte(RobotJournal.ROBOT);
+            out.writeInt(robot.getJournalHandle());
+            writeString(out, robot.getId());
+            writeString(out, table.isShared() ? table.getId() : null);
+            out.writeInt(table.getWidth());
+            out.writeInt(table.getHeight());
+            out.writeByte(RobotJournal.STATE);
+            out.writeInt(robot.getJournalHandle());
+            out.writeLong(robot.getState().get());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Apply the records of a snapshot or journal segment, a journal segment may end in a partly written record
+     *
+     * @param path
+     * @param snapshot
+     * @param handles  robots by the journal handle they were recorded under
+     * @throws IOException
+     */
+    private void replay(Path path, boolean snapshot, Map<Integer, Robot> handles) throws IOException {
+        try (InputStream file = Files.newInputStream(path)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(file, READ_BUFFER_BYTES));
+            if (snapshot && in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a robot snapshot " + path);
+            }
+            for (;;) {
+                int type = in.read();
+                if (type == -1) {
+                    if (snapshot) {
+                        throw new EOFException("Robot snapshot is truncated " + path);
+                    }
+                    return;
+                }
+                switch (type) {
+                    case RobotJournal.END:
+                        return;
+                    case RobotJournal.TABLE:
+                        tableRegistry.createSharedTable(readString(in), in.readInt(), in.readInt(), in.readByte() != 0);
+                        break;
+                    case RobotJournal.ROBOT:
+                        int handle = in.readInt();
+                        String robotId = readString(in);
+                        String tableId = readString(in);
+                        Table table = table(tableId, in.readInt(), in.readInt());
+                        robotRegistry.register(robotId, table);
+                        handles.put(handle, robotRegistry.find(robotId));
+                        break;
+                    case RobotJournal.STATE:
+                        Robot robot = handles.get(in.readInt());
+                        long state = in.readLong();
+                        if (robot != null) {
+                            robot.getState().set(state);
+                        }
+                        break;
+                    case RobotJournal.DELETE:
+                        Robot deleted = handles.remove(in.readInt());
+                        if (deleted != null && robotRegistry.find(deleted.getId()) == deleted) {
+                            robotRegistry.remove(deleted.getId());
+                        }
+                        break;
+                    default:
+                        throw new IOException(String.format("Unknown record type %d in %s", type, path));
+                }
+            }
+        } catch (EOFException e) {
+            if (snapshot) {
+                throw e;
+            }
+            // Crashed while appending, everything before the partly written record is recovered
+            log.warn("Journal segment {} ends in an incomplete record", path.getFileName());
+        }
+    }
+
+    private Table table(String tableId, int width, int height) {
+        if (tableId == null) {
+            Table defaultTable = tableRegistry.getDefaultTable();
+            return width == defaultTable.getWidth() && height == defaultTable.getHeight() ?
+                    defaultTable : tableRegistry.privateTable(width, height);
+        }
+        Table table = tableRegistry.findSharedTable(tableId);
+        return table != null ? table : tableRegistry.createSharedTable(tableId, width, height, false);
+    }
+
+    /**
+     * Rebuild the occupancy index and cell claims of shared tables from the recovered robot states
+     */
+    private void restoreTables() {
+        robotRegistry.forEach(robot -> {
+            long state = robot.getState().get();
+            Table table = robot.getTable();
+            if (!RobotState.isPlaced(state) || !table.isShared()) {
+                return;
+            }
+            if (table.hasCollisions() && table.getCells().claim(state, robot) != CellClaims.CLAIMED) {
+                log.warn("Recovered robot {} collides with another robot and is removed from the table", robot.getId());
+                robot.getState().set(RobotState.EMPTY);
+            }
+            table.getOccupancy().update(robot);
+        });
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Path latest(Path directory, Pattern pattern) throws IOException {
+        List<Path> files = files(directory, pattern);
+        return files.isEmpty() ? null : files.get(files.size() - 1);
+    }
+
+    /**
+     * Files of the directory matching the pattern ordered by number
+     */
+    private static List<Path> files(Path directory, Pattern pattern) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> list = Files.list(directory)) {
+            list.filter(path -> pattern.matcher(path.getFileName().toString()).matches()).forEach(files::add);
+        }
+        files.sort((left, right) -> Long.compare(number(left, pattern), number(right, pattern)));
+        return files;
+    }
+
+    private static long number(Path path, Pattern pattern) {
+        Matcher matcher = pattern.matcher(path.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Unexpected journal file " + path);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+}
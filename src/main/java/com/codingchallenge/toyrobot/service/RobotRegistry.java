@@ -0,0 +1,128 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.Robot;
+import com.codingchallenge.toyrobot.domain.RobotHistory;
+import com.codingchallenge.toyrobot.domain.Table;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Registry of stateful robots keyed by robot id.
+ * <p>
+ * Each robot owns its own atomic state so independent robots never contend with each other, the map itself
+ * only serialises on robot creation/removal within a single hash bin.
+ */
+@Service
+public class RobotRegistry {
+
+    // Robot used by the original single robot endpoints
+    public static final String DEFAULT_ROBOT_ID = "default";
+
+    private final ConcurrentHashMap<String, Robot> robots = new ConcurrentHashMap<>();
+    private final TableRegistry tableRegistry;
+    private final RobotJournal journal;
+    private final RobotProperties.HistoryProperties history;
+
+    public RobotRegistry(TableRegistry tableRegistry, RobotJournal journal, RobotProperties robotProperties) {
+        this.tableRegistry = tableRegistry;
+        this.journal = journal;
+        this.history = robotProperties.getHistory();
+    }
+
+    /**
+     * Return the robot for the id, registering a new robot (not yet on the grid) on the default table when it does
+     * not exist
+     *
+     * @param robotId
+     * @return
+     */
+    public Robot getOrCreate(String robotId) {
+        // Plain get first so the hot path never takes the bin lock used by computeIfAbsent
+        Robot robot = robots.get(robotId);
+        if (robot != null) {
+            return robot;
+        }
+        long[] sequence = new long[1];
+        robot = robots.computeIfAbsent(robotId, id -> {
+            Robot created = newRobot(id, tableRegistry.getDefaultTable());
+            sequence[0] = journal.register(created);
+            return created;
+        });
+        journal.awaitDurable(sequence[0]);
+        return robot;
+    }
+
+    /**
+     * Register a new robot (not yet on the grid) on the table, replacing any robot with the same id
+     *
+     * @param robotId
+     * @param table
+     * @return the replaced robot or null when it did not exist
+     */
+    public Robot register(String robotId, Table table) {
+        Robot[] replaced = new Robot[1];
+        long[] sequence = new long[1];
+        // Appended inside the map update so registrations of an id are journaled in the order they are made, the sync
+        // is waited for after it so the bin lock is never held over a sync
+        robots.compute(robotId, (id, existing) -> {
+            replaced[0] = existing;
+            Robot robot = newRobot(id, table);
+            sequence[0] = journal.register(robot);
+            return robot;
+        });
+        journal.awaitDurable(sequence[0]);
+        return replaced[0];
+    }
+
+    /**
+     * Return the robot for the id or null when no such robot has been registered
+     *
+     * @param robotId
+     * @return
+     */
+    public Robot find(String robotId) {
+        return robots.get(robotId);
+    }
+
+    /**
+     * Remove the robot from the registry
+     *
+     * @param robotId
+     * @return the removed robot or null when it did not exist
+     */
+    public Robot remove(String robotId) {
+        Robot removed = robots.remove(robotId);
+        if (removed != null) {
+            journal.delete(removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Number of registered robots
+     */
+    public int size() {
+        return robots.size();
+    }
+
+    /**
+     * Visit every registered robot
+     *
+     * @param action
+     */
+    public void forEach(Consumer<Robot> action) {
+        robots.values().forEach(action);
+    }
+
+    private Robot newRobot(String robotId, Table table) {
+        Robot robot = new Robot(robotId, table);
+        if (history.isEnabled()) {
+            robot.setHistory(new RobotHistory(history.getCheckpointInterval(), System.currentTimeMillis()));
+        }
+        return robot;
+    }
+
+}
@@ -0,0 +1,314 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.controller.UnknownCommandException;
+import com.codingchallenge.toyrobot.domain.BehaviourEnum;
+import com.codingchallenge.toyrobot.domain.CommandPlace;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.Robot;
+import com.codingchallenge.toyrobot.domain.TurnEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Advances robots driven by the server in fixed ticks, a simulated robot applies one command each tick.
+ * <p>
+ * A simulated robot is a registered stateful robot following a queued cli program or a {@link BehaviourEnum}. Its
+ * commands are applied by the {@link RobotCommandService} as the command endpoints apply them, so simulated robots
+ * collide, journal and record history like any other robot and can still be commanded and reported by clients. Each
+ * tick splits the simulated robots into slices on the {@link BatchExecutor} pool, pool threads which run out of robots
+ * steal the halves still waiting on other threads. Ticks run one at a time on a scheduler thread at the tick rate, a
+ * tick running longer than the tick period delays the ticks after it and the delay is published as the tick lag.
+ */
+@Service
+@Slf4j
+public class SimulationScheduler {
+
+    private static final DirectionEnum[] DIRECTIONS = DirectionEnum.values();
+
+    private final ConcurrentHashMap<String, SimulatedRobot> robots = new ConcurrentHashMap<>();
+    private final RobotCommandService robotCommandService;
+    private final BatchExecutor batchExecutor;
+    private final RobotMetrics metrics;
+    private final int tickRate;
+    private final int sliceLength;
+    private final int maxTicksPerRequest;
+    private final LongAdder steps = new LongAdder();
+    private final ScheduledExecutorService ticker;
+
+    // Robots stepped by each tick, taken from the map by the first tick after it changes
+    private SimulatedRobot[] stepped = new SimulatedRobot[0];
+    private volatile boolean changed;
+    private volatile long ticks;
+    // Scheduled time of the next tick, only used by the scheduler thread
+    private long nextTickNanos;
+
+    public SimulationScheduler(RobotCommandService robotCommandService, BatchExecutor batchExecutor,
+                               RobotMetrics metrics, RobotProperties robotProperties) {
+        RobotProperties.SimulationProperties simulation = robotProperties.getSimulation();
+        if (simulation.getTickRate() < 0 || simulation.getSliceLength() < 1 || simulation.getMaxTicksPerRequest() < 1) {
+            throw new IllegalArgumentException(
+                    "Simulation tick rate must not be negative, slice length and ticks per request must be positive");
+        }
+        this.robotCommandService = robotCommandService;
+        this.batchExecutor = batchExecutor;
+        this.metrics = metrics;
+        this.tickRate = simulation.getTickRate();
+        this.sliceLength = simulation.getSliceLength();
+        this.maxTicksPerRequest = simulation.getMaxTicksPerRequest();
+        if (tickRate > 0) {
+            long period = TimeUnit.SECONDS.toNanos(1) / tickRate;
+            ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "robot-simulation");
+                thread.setDaemon(true);
+                return thread;
+            });
+            nextTickNanos = System.nanoTime() + period;
+            ticker.scheduleAtFixedRate(() -> scheduledTick(period), period, period, TimeUnit.NANOSECONDS);
+        } else {
+            ticker = null;
+        }
+    }
+
+    /**
+     * Drive the robot by a cli program from the next tick, one command a tick, replacing anything driving it. A
+     * REPORT takes a tick without changing the robot, the robot is reported by the robot endpoints
+     *
+     * @param robot
+     * @param batchCommands
+     * @param repeat        start the program again once it has finished, otherwise the robot stops being simulated
+     */
+    public void runProgram(Robot robot, String batchCommands, boolean repeat) {
+        CommandProgram program = new CommandProgram();
+        CommandScanner scanner = new CommandScanner(program);
+        try {
+            scanner.feed(batchCommands);
+            scanner.finish();
+            // A robot is stepped one command a tick, blocks are not stepped into
+            if (program.blockCount() > 0) {
+                throw CommandSink.unsupportedRepeat();
+            }
+        } catch (UnknownCommandException | IllegalArgumentException e) {
+            metrics.parseError();
+            throw e;
+        }
+        simulate(new SimulatedRobot(robot, null, Arrays.copyOf(program.code(), program.length()), repeat));
+    }
+
+    /**
+     * Drive the robot by a behaviour from the next tick, replacing anything driving it
+     *
+     * @param robot
+     * @param behaviour
+     */
+    public void runBehaviour(Robot robot, BehaviourEnum behaviour) {
+        simulate(new SimulatedRobot(robot, behaviour, null, false));
+    }
+
+    /**
+     * Stop driving the robot from the next tick
+     *
+     * @param robotId
+     * @return false when the robot was not simulated
+     */
+    public boolean stop(String robotId) {
+        if (robots.remove(robotId) == null) {
+            return false;
+        }
+        changed = true;
+        return true;
+    }
+
+    /**
+     * Advance every simulated robot by one command, returning once every robot has been stepped. Ticks are also
+     * advanced by the scheduler thread unless the tick rate is 0
+     *
+     * @return commands applied by the tick
+     */
+    public synchronized long tick() {
+        long start = System.nanoTime();
+        if (changed) {
+            changed = false;
+            stepped = robots.values().toArray(new SimulatedRobot[0]);
+        }
+        SimulatedRobot[] tickRobots = stepped;
+        long before = steps.sum();
+        batchExecutor.executeRange(0, tickRobots.length, sliceLength, (from, to) -> {
+            int sliceSteps = 0;
+            for (int i = from; i < to; ++i) {
+                if (step(tickRobots[i])) {
+                    sliceSteps++;
+                } else if (robots.remove(tickRobots[i].robot.getId(), tickRobots[i])) {
+                    changed = true;
+                }
+            }
+            steps.add(sliceSteps);
+        });
+        ticks++;
+        long tickSteps = steps.sum() - before;
+        metrics.simulationTick(start, tickSteps);
+        return tickSteps;
+    }
+
+    /**
+     * Advance the simulation by a number of ticks on request, between 1 and the maximum ticks per request so a request
+     * can not hold the ticks for long
+     *
+     * @param count
+     * @return commands applied by the ticks
+     */
+    public long tick(int count) {
+        if (count < 1 || count > maxTicksPerRequest) {
+            throw new IllegalArgumentException(String.format("Tick count must be between 1 and %d", maxTicksPerRequest));
+        }
+        long ticksSteps = 0;
+        for (int i = 0; i < count; ++i) {
+            ticksSteps += tick();
+        }
+        return ticksSteps;
+    }
+
+    /**
+     * Number of simulated robots
+     */
+    public int size() {
+        return robots.size();
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Commands applied to simulated robots by every tick so far
+     */
+    public long getSteps() {
+        return steps.sum();
+    }
+
+    /**
+     * Ticks a second, 0 when ticks are only advanced on request
+     */
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (ticker != null) {
+            ticker.shutdown();
+            ticker.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private void simulate(SimulatedRobot simulated) {
+        robots.put(simulated.robot.getId(), simulated);
+        changed = true;
+    }
+
+    private void scheduledTick(long period) {
+        long lag = System.nanoTime() - nextTickNanos;
+        nextTickNanos += period;
+        if (robots.isEmpty() && stepped.length == 0) {
+            return;
+        }
+        metrics.simulationLag(Math.max(lag, 0));
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            // Thrown out of the scheduled task it would cancel every later tick
+            log.error("Simulation tick failed", e);
+        }
+    }
+
+    /**
+     * Apply the next command of the robot
+     *
+     * @param simulated
+     * @return false when the robot's program has finished
+     */
+    private boolean step(SimulatedRobot simulated) {
+        Robot robot = simulated.robot;
+        if (simulated.behaviour == BehaviourEnum.PATROL) {
+            if (simulated.pendingTurns > 0) {
+                simulated.pendingTurns--;
+                robotCommandService.simulateTurn(robot, TurnEnum.RIGHT);
+            } else if (!robotCommandService.simulateMove(robot)) {
+                // Turned around by the next two ticks
+                simulated.pendingTurns = 2;
+            }
+            return true;
+        }
+        if (simulated.behaviour == BehaviourEnum.RANDOM_WALK) {
+            int choice = simulated.nextRandom() >>> 30;
+            if (choice < 2) {
+                robotCommandService.simulateMove(robot);
+            } else {
+                robotCommandService.simulateTurn(robot, choice == 2 ? TurnEnum.LEFT : TurnEnum.RIGHT);
+            }
+            return true;
+        }
+        int[] code = simulated.code;
+        if (simulated.pc == code.length) {
+            if (!simulated.repeat || code.length == 0) {
+                return false;
+            }
+            simulated.pc = 0;
+        }
+        int op = code[simulated.pc++];
+        if (op == CommandProgram.OP_MOVE) {
+            robotCommandService.simulateMove(robot);
+        } else if (op == CommandProgram.OP_LEFT) {
+            robotCommandService.simulateTurn(robot, TurnEnum.LEFT);
+        } else if (op == CommandProgram.OP_RIGHT) {
+            robotCommandService.simulateTurn(robot, TurnEnum.RIGHT);
+        } else if (op == CommandProgram.OP_PLACE) {
+            int x = code[simulated.pc++];
+            int y = code[simulated.pc++];
+            robotCommandService.simulatePlace(robot, new CommandPlace(x, y, DIRECTIONS[code[simulated.pc++]]));
+        }
+        return true;
+    }
+
+    /**
+     * A robot and what drives it, stepped by one pool thread at a time
+     */
+    private static final class SimulatedRobot {
+        private final Robot robot;
+        // Null when driven by the program
+        private final BehaviourEnum behaviour;
+        private final int[] code;
+        private final boolean repeat;
+        private int pc;
+        // Right turns of a patrol still to apply, one a tick
+        private int pendingTurns;
+        // Xorshift state of a random walk, never 0
+        private int random = ThreadLocalRandom.current().nextInt() | 1;
+
+        SimulatedRobot(Robot robot, BehaviourEnum behaviour, int[] code, boolean repeat) {
+            this.robot = robot;
+            this.behaviour = behaviour;
+            this.code = code;
+            this.repeat = repeat;
+        }
+
+        int nextRandom() {
+            int next = random;
+            next ^= next << 13;
+            next ^= next >>> 17;
+            next ^= next << 5;
+            random = next;
+            return next;
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.ObstacleMap;
+import com.codingchallenge.toyrobot.domain.Table;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the tables robots can be placed on.
+ * <p>
+ * Robots use a private table of the configured default size unless they are registered on a named shared table.
+ */
+@Service
+public class TableRegistry {
+
+    private final Table defaultTable;
+    private final Path obstacleDirectory;
+    private final RobotJournal journal;
+    private final ConcurrentHashMap<String, Table> sharedTables = new ConcurrentHashMap<>();
+
+    public TableRegistry(RobotProperties robotProperties, RobotJournal journal) {
+        this.journal = journal;
+        this.defaultTable = new Table(null, robotProperties.getTable().getWidth(), robotProperties.getTable().getHeight(), false);
+        this.obstacleDirectory = robotProperties.getObstacleDirectory() != null ?
+                Paths.get(robotProperties.getObstacleDirectory()).toAbsolutePath().normalize() : null;
+    }
+
+    /**
+     * Private table of the configured default size
+     */
+    public Table getDefaultTable() {
+        return defaultTable;
+    }
+
+    /**
+     * Private table of the given size, the default table when no size is given
+     *
+     * @param width
+     * @param height
+     * @return
+     */
+    public Table privateTable(Integer width, Integer height) {
+        if (width == null && height == null) {
+            return defaultTable;
+        }
+        return new Table(null, width != null ? width : defaultTable.getWidth(), height != null ? height : defaultTable.getHeight(), false);
+    }
+
+    /**
+     * Private table with the size and obstacles of another table
+     *
+     * @param layout
+     * @return
+     */
+    public Table privateTable(Table layout) {
+        Table table = new Table(null, layout.getWidth(), layout.getHeight(), false);
+        table.copyObstacles(layout);
+        return table;
+    }
+
+    /**
+     * Create (or replace) a named table shared by the robots registered on it
+     *
+     * @param tableId
+     * @param width
+     * @param height
+     * @param collisions robots can not move into or be placed on a cell held by another robot
+     * @return
+     */
+    public Table createSharedTable(String tableId, int width, int height, boolean collisions) {
+        Table table = new Table(tableId, width, height, true, collisions);
+        // Journaled inside the map update so replacements of a table are journaled in the order they are made
+        sharedTables.compute(tableId, (id, existing) -> {
+            journal.table(table);
+            return table;
+        });
+        return table;
+    }
+
+    /**
+     * Return the named shared table or null when it does not exist
+     *
+     * @param tableId
+     * @return
+     */
+    public Table findSharedTable(String tableId) {
+        return sharedTables.get(tableId);
+    }
+
+    /**
+     * Named shared tables
+     */
+    public Collection<Table> getSharedTables() {
+        return sharedTables.values();
+    }
+
+    /**
+     * Memory map an obstacle map file from the configured obstacle directory onto the table
+     *
+     * @param table
+     * @param mapName file name inside the obstacle directory
+     * @return
+     * @throws IOException
+     */
+    public ObstacleMap loadObstacles(Table table, String mapName) throws IOException {
+        if (obstacleDirectory == null) {
+            throw new IllegalStateException("Obstacle directory is not configured");
+        }
+        Path path = obstacleDirectory.resolve(mapName).normalize();
+        if (!obstacleDirectory.equals(path.getParent())) {
+            throw new IllegalArgumentException(String.format("Invalid obstacle map name [%s]", mapName));
+        }
+        ObstacleMap obstacles = ObstacleMap.map(path);
+        table.setObstacles(obstacles);
+        return obstacles;
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.ObstacleMap;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.domain.TurnEnum;
+import com.codingchallenge.toyrobot.domain.VisitedCells;
+import lombok.Getter;
+
+/**
+ * Runs cli commands on a private robot as the {@link CommandScanner} recognises them, summarising the trajectory.
+ * <p>
+ * Commands are not compiled or folded, each moves the robot (held in primitive fields) as the
+ * {@link CommandInterpreter} would and the cells the robot is placed on or moves into are added to
+ * {@link VisitedCells}, so a script of any length is analysed in one pass and in the memory of the cells it visits.
+ * Nothing is allocated per command.
+ */
+public final class TrajectoryAnalysis implements CommandSink {
+
+    private static final int LEFT = TurnEnum.LEFT.ordinal();
+    private static final int RIGHT = TurnEnum.RIGHT.ordinal();
+
+    @Getter
+    private final VisitedCells visited = new VisitedCells();
+    @Getter
+    private long commands;
+    // Moves applied and moves ignored at the table edge or an obstacle, moves before the first placement are neither
+    @Getter
+    private long moves;
+    @Getter
+    private long ignoredMoves;
+    @Getter
+    private long ignoredPlacements;
+    @Getter
+    private long reports;
+    // Cells entered by a placement or a move, a cell entered again counts again
+    @Getter
+    private long visits;
+
+    private final int maxX;
+    private final int maxY;
+    private final ObstacleMap obstacles;
+    private boolean placed;
+    private int x;
+    private int y;
+    private int direction;
+
+    public TrajectoryAnalysis(Table table) {
+        this.maxX = table.getMaxX();
+        this.maxY = table.getMaxY();
+        this.obstacles = table.getObstacles();
+    }
+
+    @Override
+    public void place(int placeX, int placeY, DirectionEnum placeDirection) {
+        commands++;
+        if (!isOpen(placeX, placeY)) {
+            ignoredPlacements++;
+            return;
+        }
+        placed = true;
+        x = placeX;
+        y = placeY;
+        direction = placeDirection.ordinal();
+        visit();
+    }
+
+    @Override
+    public void move() {
+        commands++;
+        if (!placed) {
+            return;
+        }
+        int nextX = x + RobotState.dx(direction);
+        int nextY = y + RobotState.dy(direction);
+        if (!isOpen(nextX, nextY)) {
+            ignoredMoves++;
+            return;
+        }
+        x = nextX;
+        y = nextY;
+        moves++;
+        visit();
+    }
+
+    @Override
+    public void left() {
+        commands++;
+        direction = RobotState.turnDirection(direction, LEFT);
+    }
+
+    @Override
+    public void right() {
+        commands++;
+        direction = RobotState.turnDirection(direction, RIGHT);
+    }
+
+    @Override
+    public void report() {
+        commands++;
+        reports++;
+    }
+
+    /**
+     * Packed state of the robot after the commands so far, {@link RobotState#EMPTY} when it has not been placed
+     */
+    public long state() {
+        return placed ? RobotState.of(x, y, direction) : RobotState.EMPTY;
+    }
+
+    private void visit() {
+        visits++;
+        visited.add(x, y);
+    }
+
+    private boolean isOpen(int cellX, int cellY) {
+        return cellX >= 0 && cellX <= maxX && cellY >= 0 && cellY <= maxY
+                && (obstacles == null || !obstacles.isBlocked(cellX, cellY));
+    }
+
+}
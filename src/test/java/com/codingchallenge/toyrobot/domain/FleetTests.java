@@ -0,0 +1,90 @@
+package com.codingchallenge.toyrobot.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FleetTests {
+
+    private static final int ROBOTS = 257;
+    private static final int COMMANDS = 2000;
+
+    @Test
+    void broadcastTest() {
+        commands(new Table(null, 7, 4, false), 1);
+    }
+
+    @Test
+    void broadcastAroundObstaclesTest() {
+        Table table = new Table(null, 6, 6, false);
+        ObstacleMap obstacles = ObstacleMap.allocate(6, 6);
+        obstacles.block(2, 2);
+        obstacles.block(3, 2);
+        obstacles.block(0, 5);
+        table.setObstacles(obstacles);
+        commands(table, 2);
+    }
+
+    @Test
+    void groupsTest() {
+        Fleet fleet = new Fleet("groups", new Table(null, 5, 5, false), 10, 3);
+        assertEquals(0, fleet.groupStart(0));
+        assertEquals(3, fleet.groupStart(1));
+        assertEquals(6, fleet.groupStart(2));
+        assertEquals(10, fleet.groupStart(3));
+    }
+
+    /**
+     * Random broadcasts to random ranges of the fleet, compared with each robot commanded on its own
+     */
+    private static void commands(Table table, long seed) {
+        Random random = new Random(seed);
+        Fleet fleet = new Fleet("fleet", table, ROBOTS, 1);
+        long[] expected = new long[ROBOTS];
+        Arrays.fill(expected, RobotState.EMPTY);
+        for (int command = 0; command < COMMANDS; ++command) {
+            int from = random.nextInt(ROBOTS);
+            int to = from + random.nextInt(ROBOTS - from + 1);
+            int op = random.nextInt(6);
+            if (op == 0) {
+                // Off the table and onto obstacles too
+                int x = random.nextInt(table.getWidth() + 2) - 1;
+                int y = random.nextInt(table.getHeight() + 2) - 1;
+                DirectionEnum direction = DirectionEnum.values()[random.nextInt(4)];
+                fleet.place(from, to, x, y, direction);
+                if (table.isOpen(x, y)) {
+                    Arrays.fill(expected, from, to, RobotState.of(x, y, direction));
+                }
+            } else if (op < 4) {
+                fleet.move(from, to);
+                for (int i = from; i < to; ++i) {
+                    expected[i] = move(expected[i], table);
+                }
+            } else {
+                TurnEnum turn = op == 4 ? TurnEnum.LEFT : TurnEnum.RIGHT;
+                fleet.turn(from, to, turn);
+                for (int i = from; i < to; ++i) {
+                    expected[i] = RobotState.isPlaced(expected[i]) ? RobotState.turn(expected[i], turn.ordinal()) :
+                            RobotState.EMPTY;
+                }
+            }
+            for (int i = 0; i < ROBOTS; ++i) {
+                assertEquals(expected[i], fleet.state(i), "Robot " + i + " after command " + command);
+            }
+        }
+    }
+
+    private static long move(long state, Table table) {
+        if (!RobotState.isPlaced(state)) {
+            return state;
+        }
+        int direction = RobotState.directionOrdinal(state);
+        int x = RobotState.x(state) + RobotState.dx(direction);
+        int y = RobotState.y(state) + RobotState.dy(direction);
+        return table.isOpen(x, y) ? RobotState.of(x, y, direction) : state;
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.codingchallenge.toyrobot.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OccupancyIndexTests {
+
+    private static final int ROUNDS = 2000;
+    private static final int MOVES = 200;
+
+    /**
+     * Threads move one robot back and forth across a bucket edge, the robot is then found where it ends up
+     */
+    @Test
+    void bucketEdgeTest() throws InterruptedException {
+        OccupancyIndex index = new OccupancyIndex();
+        Robot robot = new Robot("edge", null);
+        for (int round = 0; round < ROUNDS; ++round) {
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; ++t) {
+                threads[t] = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int move = 0; move < MOVES; ++move) {
+                        // Cells 63 and 64 are in neighbouring buckets
+                        robot.getState().set(RobotState.of(63 + random.nextInt(2), 10, 0));
+                        index.update(robot);
+                    }
+                });
+                threads[t].start();
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long state = robot.getState().get();
+            assertEquals(Collections.singletonList(robot), index.at(RobotState.x(state), RobotState.y(state)));
+            assertEquals(Collections.singletonList(robot), index.within(0, 0, 127, 127));
+        }
+    }
+
+}
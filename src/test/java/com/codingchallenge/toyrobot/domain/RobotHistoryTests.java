@@ -0,0 +1,109 @@
+package com.codingchallenge.toyrobot.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RobotHistoryTests {
+
+    private static final int COMMANDS = 5000;
+    private static final long CREATED = 1_000_000L;
+
+    @Test
+    void atCommandTest() {
+        long[] states = new long[COMMANDS + 1];
+        long[] times = new long[COMMANDS + 1];
+        RobotHistory history = record(states, times);
+        assertEquals(COMMANDS, history.getCommands());
+        for (int command = 0; command <= COMMANDS; ++command) {
+            RobotHistory.Point point = history.atCommand(command);
+            assertEquals(command, point.getCommand());
+            assertEquals(states[command], point.getState());
+            assertEquals(times[command], point.getTime());
+        }
+        assertEquals(states[COMMANDS], history.atCommand(Long.MAX_VALUE).getState());
+    }
+
+    @Test
+    void atTimeTest() {
+        long[] states = new long[COMMANDS + 1];
+        long[] times = new long[COMMANDS + 1];
+        RobotHistory history = record(states, times);
+        for (long time = CREATED; time <= times[COMMANDS] + 1; ++time) {
+            // Last command at or before the time
+            int expected = 0;
+            while (expected < COMMANDS && times[expected + 1] <= time) {
+                expected++;
+            }
+            RobotHistory.Point point = history.atTime(time);
+            assertEquals(expected, point.getCommand());
+            assertEquals(states[expected], point.getState());
+        }
+        assertEquals(0, history.atTime(CREATED - 1).getCommand());
+    }
+
+    @Test
+    void truncatedTest() {
+        // Room for 100 two byte entries, a move and no elapsed time
+        RobotHistory history = new RobotHistory(7, CREATED, 200);
+        AtomicLong state = new AtomicLong(RobotState.of(0, 0, 0));
+        history.record(state, CREATED);
+        long recorded = RobotState.EMPTY;
+        for (int command = 1; command < 1000; ++command) {
+            state.set(RobotState.turn(state.get(), command % 2));
+            history.record(state, CREATED);
+            if (!history.isTruncated()) {
+                recorded = state.get();
+            }
+        }
+        assertTrue(history.isTruncated());
+        // Recording stopped when the next entry could not fit, later commands are not recorded
+        long commands = history.getCommands();
+        assertTrue(commands > 0 && commands < 100);
+        assertEquals(commands, history.atCommand(Long.MAX_VALUE).getCommand());
+        assertEquals(recorded, history.atCommand(Long.MAX_VALUE).getState());
+        assertEquals(recorded, history.atTime(Long.MAX_VALUE).getState());
+        assertFalse(new RobotHistory(7, CREATED).isTruncated());
+    }
+
+    /**
+     * Random walk of places, moves, turns, ignored commands and removals, several commands share a millisecond
+     */
+    private static RobotHistory record(long[] states, long[] times) {
+        Random random = new Random(13);
+        RobotHistory history = new RobotHistory(7, CREATED);
+        AtomicLong state = new AtomicLong(RobotState.EMPTY);
+        states[0] = RobotState.EMPTY;
+        times[0] = CREATED;
+        long time = CREATED;
+        for (int command = 1; command <= COMMANDS; ++command) {
+            long current = state.get();
+            int action = random.nextInt(10);
+            if (!RobotState.isPlaced(current) || action == 0) {
+                state.set(RobotState.of(random.nextInt(5), random.nextInt(5), random.nextInt(4)));
+            } else if (action < 5) {
+                int direction = RobotState.directionOrdinal(current);
+                int x = RobotState.x(current) + RobotState.dx(direction);
+                int y = RobotState.y(current) + RobotState.dy(direction);
+                if (x >= 0 && x < 5 && y >= 0 && y < 5) {
+                    state.set(RobotState.of(x, y, direction));
+                }
+            } else if (action < 9) {
+                state.set(RobotState.turn(current, random.nextInt(2)));
+            } else {
+                state.set(RobotState.EMPTY);
+            }
+            time += random.nextInt(3) == 0 ? random.nextInt(1000) : 0;
+            history.record(state, time);
+            states[command] = state.get();
+            times[command] = time;
+        }
+        return history;
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.codingchallenge.toyrobot.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VisitedCellsTests {
+
+    private static final int CELLS = 200_000;
+
+    @Test
+    void smallTableTest() {
+        cells(new Random(24), 150);
+    }
+
+    @Test
+    void largeTableTest() {
+        cells(new Random(42), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Random walks and jumps compared with a set of cells, the runs must give back the set in row major order
+     */
+    private static void cells(Random random, int size) {
+        VisitedCells visited = new VisitedCells();
+        Set<Long> expected = new HashSet<>();
+        int x = 0;
+        int y = 0;
+        for (int cell = 0; cell < CELLS; ++cell) {
+            if (random.nextInt(100) == 0) {
+                x = random.nextInt(size);
+                y = random.nextInt(size);
+            } else {
+                // Walk along and across the tiles
+                x = Math.min(Math.max(x + random.nextInt(3) - 1, 0), size - 1);
+                y = Math.min(Math.max(y + random.nextInt(3) - 1, 0), size - 1);
+            }
+            assertEquals(expected.add(cell(x, y)), visited.add(x, y));
+            int probeX = random.nextInt(size);
+            int probeY = random.nextInt(size);
+            assertEquals(expected.contains(cell(probeX, probeY)), visited.contains(probeX, probeY));
+        }
+        assertEquals(expected.size(), visited.size());
+        long[] last = {-1};
+        long[] cells = {0};
+        visited.forEachRun((runX, runY, length) -> {
+            assertTrue(length > 0);
+            long first = cell(runX, runY);
+            // Runs are in order and adjacent runs are merged
+            assertTrue(first > last[0] + 1 || last[0] < 0, runX + "," + runY);
+            for (int i = 0; i < length; ++i) {
+                assertTrue(expected.contains(cell(runX + i, runY)));
+            }
+            last[0] = cell(runX + length - 1, runY);
+            cells[0] += length;
+        });
+        assertEquals(expected.size(), cells[0]);
+    }
+
+    private static long cell(int x, int y) {
+        return (long) y << 32 | x;
+    }
+
+}
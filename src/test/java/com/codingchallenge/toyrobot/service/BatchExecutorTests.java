@@ -0,0 +1,71 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.codingchallenge.toyrobot.domain.Table;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BatchExecutorTests {
+
+    private final BatchExecutor executor = newExecutor();
+
+    @AfterEach
+    void close() throws InterruptedException {
+        executor.close();
+    }
+
+    /**
+     * Programs split into tiny segments must report as the interpreter does running them whole
+     */
+    @Test
+    void segmentedMatchesInterpreterTest() {
+        Random random = new Random(16);
+        CommandProgram folded = new CommandProgram();
+        for (int i = 0; i < 5_000; ++i) {
+            Table table = CommandOptimizerTests.randomTable(random);
+            CommandProgram program = CommandOptimizerTests.randomProgram(random, table);
+            CommandOptimizer.optimize(program, table, folded);
+            List<Long> expected = new ArrayList<>();
+            CommandInterpreter.execute(program, RobotState.EMPTY, table, expected::add);
+            long[] reports = executor.execute(folded, table);
+            assertEquals(expected.toString(), Arrays.toString(reports),
+                    Arrays.toString(Arrays.copyOf(program.code(), program.length())));
+        }
+    }
+
+    @Test
+    void executeAllTest() {
+        List<String> scripts = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            scripts.add("script" + i);
+        }
+        assertEquals(scripts, executor.executeAll(scripts, script -> script));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () ->
+                executor.executeAll(scripts, script -> {
+                    if (script.endsWith("7")) {
+                        throw new IllegalArgumentException(script);
+                    }
+                    return script;
+                }));
+        assertEquals("script7", e.getMessage());
+        assertArrayEquals(new Object[]{"a"}, executor.executeAll(Arrays.asList("a"), script -> script).toArray());
+    }
+
+    private static BatchExecutor newExecutor() {
+        RobotProperties robotProperties = new RobotProperties();
+        robotProperties.getParallel().setParallelism(4);
+        robotProperties.getParallel().setSegmentLength(4);
+        return new BatchExecutor(robotProperties);
+    }
+
+}
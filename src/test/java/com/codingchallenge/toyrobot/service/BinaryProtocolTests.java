@@ -0,0 +1,76 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.domain.CommandEnum;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class BinaryProtocolTests {
+
+    @Autowired
+    private RobotCommandService robotCommandService;
+
+    @Autowired
+    private TableRegistry tableRegistry;
+
+    @Test
+    void reportsTest() {
+        long[] states = {RobotState.of(4, 4, DirectionEnum.WEST), RobotState.EMPTY, RobotState.of(0, 3, DirectionEnum.SOUTH)};
+        byte[] encoded = BinaryProtocol.encodeReports(states, states.length);
+        // A byte per report on the 5x5 table
+        assertEquals(BinaryProtocol.HEADER_BYTES + 3, encoded.length);
+        assertArrayEquals(states, BinaryProtocol.decodeReports(encoded));
+        long[] large = {RobotState.of(Integer.MAX_VALUE - 1, Integer.MAX_VALUE - 1, DirectionEnum.EAST), RobotState.EMPTY,
+                RobotState.of(70000, 0, DirectionEnum.NORTH)};
+        encoded = BinaryProtocol.encodeReports(large, large.length);
+        assertEquals(BinaryProtocol.HEADER_BYTES + 3 * 8, encoded.length);
+        assertArrayEquals(large, BinaryProtocol.decodeReports(encoded));
+    }
+
+    @Test
+    void batchTest() {
+        byte[] commands = new BinaryCommands().op(CommandEnum.REPORT).place(1, 2, DirectionEnum.EAST).op(CommandEnum.MOVE)
+                .op(CommandEnum.MOVE).op(CommandEnum.LEFT).op(CommandEnum.MOVE).op(CommandEnum.REPORT).toByteArray();
+        long[] reports = BinaryProtocol.decodeReports(robotCommandService.executeBinaryBatchForRobot(commands,
+                tableRegistry.getDefaultTable()));
+        assertEquals(RobotState.EMPTY, reports[0]);
+        assertEquals(RobotState.of(3, 3, DirectionEnum.NORTH), reports[1]);
+    }
+
+    /**
+     * Commands in the {@link BinaryProtocol} encoding
+     */
+    static final class BinaryCommands {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        BinaryCommands op(CommandEnum command) {
+            return op(command.ordinal());
+        }
+
+        BinaryCommands op(int op) {
+            bytes.write(op);
+            return this;
+        }
+
+        BinaryCommands place(int x, int y, DirectionEnum direction) {
+            byte[] place = ByteBuffer.allocate(BinaryProtocol.PLACE_BYTES).put((byte) CommandEnum.PLACE.ordinal())
+                    .putInt(x).putInt(y).put((byte) direction.ordinal()).array();
+            bytes.write(place, 0, place.length);
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+
+}
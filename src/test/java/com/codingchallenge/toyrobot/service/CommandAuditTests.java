@@ -0,0 +1,67 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandAuditTests {
+
+    @Test
+    void levelPerEndpointTest() throws InterruptedException {
+        RobotProperties robotProperties = new RobotProperties();
+        robotProperties.getAudit().getLevels().put(AuditChannel.ROBOT, AuditLevel.WARN);
+        robotProperties.getAudit().getLevels().put(AuditChannel.STREAM, AuditLevel.OFF);
+        CommandAudit audit = new CommandAudit(robotProperties);
+        try {
+            assertTrue(audit.isEnabled(AuditChannel.ROBOT, AuditLevel.WARN));
+            assertFalse(audit.isEnabled(AuditChannel.ROBOT, AuditLevel.INFO));
+            assertTrue(audit.isEnabled(AuditChannel.BATCH, AuditLevel.INFO));
+            assertFalse(audit.isEnabled(AuditChannel.BATCH, AuditLevel.DEBUG));
+            assertFalse(audit.isEnabled(AuditChannel.STREAM, AuditLevel.WARN));
+        } finally {
+            audit.close();
+        }
+    }
+
+    @Test
+    void concurrentRecordsAreDrainedTest() throws Exception {
+        RobotProperties robotProperties = new RobotProperties();
+        robotProperties.getAudit().setBufferSize(64);
+        CommandAudit audit = new CommandAudit(robotProperties);
+        long state = RobotState.of(1, 2, DirectionEnum.EAST);
+        int threads = 4;
+        int records = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] recorders = new Future<?>[threads];
+            for (int t = 0; t < threads; ++t) {
+                String robotId = "robot" + t;
+                recorders[t] = executor.submit(() -> {
+                    for (int i = 0; i < records; ++i) {
+                        audit.record(AuditChannel.ROBOT, AuditEvent.MOVE, robotId, state);
+                    }
+                });
+            }
+            for (Future<?> recorder : recorders) {
+                recorder.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+            audit.close();
+        }
+        // Recording never blocks, whatever did not fit in the ring was dropped and everything else was written
+        assertEquals(0, audit.getPending());
+        assertTrue(audit.getDropped() <= (long) threads * records);
+    }
+
+}
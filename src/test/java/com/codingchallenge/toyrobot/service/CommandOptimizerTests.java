@@ -0,0 +1,178 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.ObstacleMap;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.codingchallenge.toyrobot.domain.Table;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandOptimizerTests {
+
+    private static final int PROGRAMS = 20_000;
+
+    /**
+     * Random programs on random tables must report the same locations and end in the same state folded or not
+     */
+    @Test
+    void optimizedMatchesInterpreterTest() {
+        Random random = new Random(15);
+        CommandProgram optimized = new CommandProgram();
+        for (int i = 0; i < PROGRAMS; ++i) {
+            Table table = randomTable(random);
+            CommandProgram program = randomProgram(random, table);
+            long start = random.nextBoolean() ? RobotState.EMPTY :
+                    RobotState.of(random.nextInt(table.getWidth()), random.nextInt(table.getHeight()), random.nextInt(4));
+            CommandOptimizer.optimize(program, table, optimized);
+            assertTrue(optimized.length() <= program.length());
+            List<Long> expected = new ArrayList<>();
+            List<Long> actual = new ArrayList<>();
+            long expectedState = CommandInterpreter.execute(program, start, table, expected::add);
+            long actualState = CommandInterpreter.execute(optimized, start, table, actual::add);
+            String message = Arrays.toString(Arrays.copyOf(program.code(), program.length()));
+            assertEquals(expected, actual, message);
+            assertEquals(expectedState, actualState, message);
+            assertEquals(program.reportCount(), optimized.reportCount());
+        }
+    }
+
+    /**
+     * Programs folded and run a chunk at a time as the stream endpoint does, the state carried between chunks
+     */
+    @Test
+    void chunkedMatchesInterpreterTest() {
+        Random random = new Random(16);
+        CommandProgram optimized = new CommandProgram();
+        for (int i = 0; i < PROGRAMS; ++i) {
+            Table table = randomTable(random);
+            CommandProgram program = randomProgram(random, table);
+            List<Long> expected = new ArrayList<>();
+            List<Long> actual = new ArrayList<>();
+            long expectedState = CommandInterpreter.execute(program, RobotState.EMPTY, table, expected::add);
+            CommandOptimizer optimizer = new CommandOptimizer(table, optimized);
+            long actualState = RobotState.EMPTY;
+            int[] code = program.code();
+            int pc = 0;
+            while (pc < program.length()) {
+                for (int commands = random.nextInt(10); commands >= 0 && pc < program.length(); --commands) {
+                    pc = feed(code, pc, optimizer);
+                }
+                optimizer.flush();
+                actualState = CommandInterpreter.execute(optimized, actualState, table, actual::add);
+                optimizer.clear();
+            }
+            assertEquals(expected, actual);
+            assertEquals(expectedState, actualState);
+        }
+    }
+
+    @Test
+    void foldRunsTest() {
+        Table table = new Table(null, 5, 5, false);
+        CommandProgram program = new CommandProgram();
+        // Dropped by the placement that follows
+        program.place(0, 0, DirectionEnum.NORTH);
+        program.move();
+        program.place(1, 1, DirectionEnum.NORTH);
+        for (int i = 0; i < 1_000_000; ++i) {
+            program.move();
+        }
+        program.left();
+        program.right();
+        program.right();
+        program.right();
+        program.report();
+        CommandProgram optimized = new CommandProgram();
+        CommandOptimizer.optimize(program, table, optimized);
+
+        CommandProgram expected = new CommandProgram();
+        expected.place(1, 1, DirectionEnum.NORTH);
+        expected.moves(1_000_000);
+        expected.turns(2);
+        expected.report();
+        assertEquals(Arrays.toString(Arrays.copyOf(expected.code(), expected.length())),
+                Arrays.toString(Arrays.copyOf(optimized.code(), optimized.length())));
+        List<Long> reports = new ArrayList<>();
+        CommandInterpreter.execute(optimized, RobotState.EMPTY, table, reports::add);
+        assertEquals(RobotState.of(1, 4, DirectionEnum.SOUTH), reports.get(0));
+    }
+
+    private static int feed(int[] code, int pc, CommandOptimizer optimizer) {
+        int op = code[pc++];
+        if (op == CommandProgram.OP_PLACE) {
+            optimizer.place(code[pc], code[pc + 1], DirectionEnum.values()[code[pc + 2]]);
+            return pc + 3;
+        }
+        if (op == CommandProgram.OP_MOVE) {
+            optimizer.move();
+        } else if (op == CommandProgram.OP_LEFT) {
+            optimizer.left();
+        } else if (op == CommandProgram.OP_RIGHT) {
+            optimizer.right();
+        } else {
+            optimizer.report();
+        }
+        return pc;
+    }
+
+    static Table randomTable(Random random) {
+        Table table = new Table(null, 1 + random.nextInt(8), 1 + random.nextInt(8), false);
+        if (random.nextBoolean()) {
+            ObstacleMap obstacles = ObstacleMap.allocate(table.getWidth(), table.getHeight());
+            for (int cells = random.nextInt(table.getWidth() * table.getHeight()); cells > 0; --cells) {
+                obstacles.block(random.nextInt(table.getWidth()), random.nextInt(table.getHeight()));
+            }
+            table.setObstacles(obstacles);
+        }
+        return table;
+    }
+
+    /**
+     * Runs of moves and turns, reports and placements some of which are off the table
+     */
+    static CommandProgram randomProgram(Random random, Table table) {
+        CommandProgram program = new CommandProgram();
+        for (int runs = random.nextInt(20); runs > 0; --runs) {
+            int run = random.nextInt(4) == 0 ? random.nextInt(50) : 1 + random.nextInt(3);
+            switch (random.nextInt(5)) {
+                case 0:
+                    for (int i = 0; i < run; ++i) {
+                        program.move();
+                    }
+                    break;
+                case 1:
+                    for (int i = 0; i < run; ++i) {
+                        if (random.nextBoolean()) {
+                            program.left();
+                        } else {
+                            program.right();
+                        }
+                    }
+                    break;
+                case 2:
+                    program.report();
+                    break;
+                case 3:
+                    program.place(random.nextInt(table.getWidth() + 2) - 1, random.nextInt(table.getHeight() + 2) - 1,
+                            random.nextInt(4));
+                    break;
+                default:
+                    for (int i = 0; i < run; ++i) {
+                        program.move();
+                        if (random.nextInt(3) == 0) {
+                            program.report();
+                        }
+                    }
+            }
+        }
+        return program;
+    }
+
+}
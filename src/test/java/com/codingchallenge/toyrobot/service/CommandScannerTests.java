@@ -0,0 +1,111 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.controller.UnknownCommandException;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.Table;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandScannerTests {
+
+    private static final String COMMANDS = " place 1 , 2,east\tMove\n\nLEFT right Report PLACE -1,+3,North ";
+
+    @Test
+    void scanCommandsTest() {
+        CommandProgram program = scan(COMMANDS);
+        CommandProgram expected = new CommandProgram();
+        expected.place(1, 2, DirectionEnum.EAST);
+        expected.move();
+        expected.left();
+        expected.right();
+        expected.report();
+        expected.place(-1, 3, DirectionEnum.NORTH);
+        assertProgram(expected, program);
+    }
+
+    @Test
+    void incrementalFeedTest() {
+        CommandProgram program = new CommandProgram();
+        CommandScanner scanner = new CommandScanner(program);
+        char[] chars = COMMANDS.toCharArray();
+        for (int i = 0; i < chars.length; ++i) {
+            scanner.feed(chars, i, 1);
+        }
+        scanner.finish();
+        assertProgram(scan(COMMANDS), program);
+    }
+
+    @Test
+    void unknownCommandOffsetTest() {
+        UnknownCommandException e = assertThrows(UnknownCommandException.class, () -> scan("MOVE  JUMP REPORT"));
+        assertEquals("Unsupported command [JUMP] at offset 6", e.getInfos().get(0));
+    }
+
+    @Test
+    void invalidPlacementTest() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> scan("PLACE 1,x,NORTH"));
+        assertTrue(e.getMessage().endsWith("at offset 8"), e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> scan("PLACE 1,2,UP"));
+        assertThrows(IllegalArgumentException.class, () -> scan("PLACE 1 2,NORTH"));
+        assertThrows(IllegalArgumentException.class, () -> scan("PLACE 1,2"));
+        assertThrows(IllegalArgumentException.class, () -> scan("PLACE"));
+        assertThrows(IllegalArgumentException.class, () -> scan("PLACE 99999999999,0,NORTH"));
+    }
+
+    @Test
+    void repeatTest() {
+        CommandProgram expected = new CommandProgram();
+        expected.repeat(3);
+        expected.move();
+        expected.repeat(0);
+        expected.place(1, 2, DirectionEnum.EAST);
+        expected.endRepeat();
+        expected.endRepeat();
+        expected.report();
+        assertProgram(expected, scan("REPEAT 3 { MOVE REPEAT 0 { PLACE 1,2,EAST } } REPORT"));
+        // Braces end words
+        assertProgram(expected, scan("repeat 3{move repeat 0{place 1,2,east}}report"));
+        assertEquals(2, expected.blockCount());
+
+        assertThrows(IllegalArgumentException.class, () -> scan("REPEAT 3 { MOVE"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> scan("MOVE } MOVE"));
+        assertTrue(e.getMessage().endsWith("at offset 5"), e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> scan("MOVE { MOVE }"));
+        assertThrows(IllegalArgumentException.class, () -> scan("REPEAT { MOVE }"));
+        assertThrows(IllegalArgumentException.class, () -> scan("REPEAT -1 { MOVE }"));
+        assertThrows(IllegalArgumentException.class, () -> scan("REPEAT 2147483648 { MOVE }"));
+        assertThrows(IllegalArgumentException.class, () -> scan("REPEAT 3 MOVE"));
+        assertThrows(IllegalArgumentException.class, () -> scan("REPEAT 3"));
+        assertThrows(IllegalArgumentException.class, () -> scan("PLACE{ }"));
+        StringBuilder deep = new StringBuilder();
+        for (int i = 0; i < 65; ++i) {
+            deep.append("REPEAT 1 {");
+        }
+        assertThrows(IllegalArgumentException.class, () -> scan(deep.toString()));
+        // Sinks applying each command as it arrives have no blocks
+        UnknownCommandException unsupported = assertThrows(UnknownCommandException.class, () -> {
+            CommandScanner scanner = new CommandScanner(new TrajectoryAnalysis(new Table(null, 5, 5, false)));
+            scanner.feed("REPEAT 2 { MOVE }");
+        });
+        assertEquals("Unsupported command [REPEAT]", unsupported.getInfos().get(0));
+    }
+
+    private CommandProgram scan(String commands) {
+        CommandProgram program = new CommandProgram();
+        CommandScanner scanner = new CommandScanner(program);
+        scanner.feed(commands);
+        scanner.finish();
+        return program;
+    }
+
+    private void assertProgram(CommandProgram expected, CommandProgram actual) {
+        assertArrayEquals(Arrays.copyOf(expected.code(), expected.length()), Arrays.copyOf(actual.code(), actual.length()));
+    }
+
+}
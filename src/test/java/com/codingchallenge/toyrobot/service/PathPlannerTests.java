@@ -0,0 +1,197 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.ObstacleMap;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.domain.TurnEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PathPlannerTests {
+
+    private static final int PATHS = 5_000;
+
+    /**
+     * Planned scripts must reach the target in as few commands as a search forward from the start
+     */
+    @Test
+    void shortestPathTest() {
+        Random random = new Random(23);
+        PathPlanner planner = new PathPlanner(new RobotProperties(), new SimpleMeterRegistry());
+        int found = 0;
+        for (int i = 0; i < PATHS; ++i) {
+            Table table = new Table(null, 1 + random.nextInt(7), 1 + random.nextInt(7), false);
+            if (random.nextBoolean()) {
+                ObstacleMap obstacles = ObstacleMap.allocate(table.getWidth(), table.getHeight());
+                for (int blocked = random.nextInt(table.getWidth() * table.getHeight()); blocked > 0; --blocked) {
+                    obstacles.block(random.nextInt(table.getWidth()), random.nextInt(table.getHeight()));
+                }
+                table.setObstacles(obstacles);
+            }
+            long start = randomState(random, table);
+            long target = randomState(random, table);
+            String script = planner.planScript(table, start, target);
+            int expected = distance(table, start, target);
+            if (expected < 0) {
+                assertNull(script);
+                continue;
+            }
+            assertNotNull(script, table + " " + RobotState.toLocation(start) + " " + RobotState.toLocation(target));
+            found++;
+            CommandProgram program = new CommandProgram();
+            CommandScanner scanner = new CommandScanner(program);
+            scanner.feed(script);
+            scanner.finish();
+            List<Long> reports = new ArrayList<>();
+            CommandInterpreter.execute(program, RobotState.EMPTY, table, reports::add);
+            // Without the PLACE and REPORT
+            assertEquals(expected, program.commandCount() - 2, script);
+            assertEquals(1, reports.size());
+            assertEquals(target, (long) reports.get(0), script);
+        }
+        assertTrue(found > PATHS / 2);
+    }
+
+    @Test
+    void distanceFieldCacheTest() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PathPlanner planner = new PathPlanner(new RobotProperties(), meterRegistry);
+        Table table = new Table(null, 5, 5, false);
+        ObstacleMap obstacles = ObstacleMap.allocate(5, 5);
+        // Wall across the table with a gap at x 4
+        for (int x = 0; x < 4; ++x) {
+            obstacles.block(x, 2);
+        }
+        table.setObstacles(obstacles);
+        long target = RobotState.of(0, 4, DirectionEnum.NORTH);
+        // Moves are preferred to turns among paths of the same length
+        assertEquals("PLACE 0,0,NORTH MOVE RIGHT MOVE MOVE MOVE MOVE LEFT MOVE MOVE MOVE LEFT MOVE MOVE MOVE MOVE RIGHT REPORT",
+                planner.planScript(table, RobotState.of(0, 0, DirectionEnum.NORTH), target));
+        assertEquals("PLACE 4,4,WEST MOVE MOVE MOVE MOVE RIGHT REPORT",
+                planner.planScript(table, RobotState.of(4, 4, DirectionEnum.WEST), target));
+        assertEquals(1, cacheGets(meterRegistry, "miss"));
+        assertEquals(1, cacheGets(meterRegistry, "hit"));
+        // Blocked and enclosed targets
+        assertNull(planner.planScript(table, RobotState.of(0, 0, DirectionEnum.NORTH), RobotState.of(1, 2, DirectionEnum.NORTH)));
+        // A new map, cached fields are keyed by the layout version of the table
+        ObstacleMap wall = ObstacleMap.allocate(5, 5);
+        for (int x = 0; x < 5; ++x) {
+            wall.block(x, 2);
+        }
+        Table walled = new Table(null, 5, 5, false);
+        walled.setObstacles(wall);
+        assertNull(planner.planScript(walled, RobotState.of(0, 0, DirectionEnum.NORTH), target));
+        assertEquals(2, cacheGets(meterRegistry, "miss"));
+        // Setting the obstacles again is a new layout version
+        table.setObstacles(obstacles);
+        planner.planScript(table, RobotState.of(4, 4, DirectionEnum.WEST), target);
+        assertEquals(3, cacheGets(meterRegistry, "miss"));
+    }
+
+    @Test
+    void largeTableTest() {
+        PathPlanner planner = new PathPlanner(new RobotProperties(), new SimpleMeterRegistry());
+        Table table = new Table(null, Integer.MAX_VALUE, Integer.MAX_VALUE, false);
+        int[] commands = new int[2];
+        assertTrue(planner.plan(table, RobotState.of(0, 0, DirectionEnum.SOUTH),
+                RobotState.of(100_000, 200_000, DirectionEnum.WEST), new PathPlanner.PathSteps() {
+                    @Override
+                    public void move() {
+                        commands[0]++;
+                    }
+
+                    @Override
+                    public void left() {
+                        commands[1]++;
+                    }
+
+                    @Override
+                    public void right() {
+                        commands[1]++;
+                    }
+                }));
+        assertEquals(300_000, commands[0]);
+        // LEFT to EAST, LEFT to NORTH then LEFT to WEST
+        assertEquals(3, commands[1]);
+    }
+
+    @Test
+    void maxCommandsTest() {
+        RobotProperties properties = new RobotProperties();
+        properties.getPath().setMaxCommands(10);
+        PathPlanner planner = new PathPlanner(properties, new SimpleMeterRegistry());
+        Table table = new Table(null, Integer.MAX_VALUE, 1, false);
+        // Rejected before the script is built
+        assertThrows(IllegalArgumentException.class, () -> new PathPlanner(new RobotProperties(), new SimpleMeterRegistry())
+                .planScript(table, RobotState.of(0, 0, DirectionEnum.EAST), RobotState.of(Integer.MAX_VALUE - 1, 0, DirectionEnum.EAST)));
+        assertEquals("PLACE 0,0,EAST MOVE MOVE MOVE MOVE MOVE MOVE MOVE MOVE MOVE MOVE REPORT",
+                planner.planScript(table, RobotState.of(0, 0, DirectionEnum.EAST), RobotState.of(10, 0, DirectionEnum.EAST)));
+        assertThrows(IllegalArgumentException.class, () -> planner.planScript(table, RobotState.of(0, 0, DirectionEnum.EAST),
+                RobotState.of(11, 0, DirectionEnum.EAST)));
+        // Around obstacles the path is longer than the distance between the cells
+        Table walled = new Table(null, 5, 5, false);
+        ObstacleMap wall = ObstacleMap.allocate(5, 5);
+        for (int x = 0; x < 4; ++x) {
+            wall.block(x, 2);
+        }
+        walled.setObstacles(wall);
+        assertThrows(IllegalArgumentException.class, () -> planner.planScript(walled, RobotState.of(0, 0, DirectionEnum.NORTH),
+                RobotState.of(0, 4, DirectionEnum.NORTH)));
+    }
+
+    private static long randomState(Random random, Table table) {
+        return RobotState.of(random.nextInt(table.getWidth()), random.nextInt(table.getHeight()), random.nextInt(4));
+    }
+
+    /**
+     * Fewest commands from the start to the target searched forward, -1 when there is no path
+     */
+    private static int distance(Table table, long start, long target) {
+        if (!table.isOpen(RobotState.x(start), RobotState.y(start)) || !table.isOpen(RobotState.x(target), RobotState.y(target))) {
+            return -1;
+        }
+        Map<Long, Integer> distances = new HashMap<>();
+        ArrayDeque<Long> queue = new ArrayDeque<>();
+        distances.put(start, 0);
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            long state = queue.poll();
+            int distance = distances.get(state);
+            if (state == target) {
+                return distance;
+            }
+            int direction = RobotState.directionOrdinal(state);
+            int x = RobotState.x(state) + RobotState.dx(direction);
+            int y = RobotState.y(state) + RobotState.dy(direction);
+            long[] next = {table.isOpen(x, y) ? RobotState.of(x, y, direction) : state,
+                    RobotState.turn(state, TurnEnum.LEFT.ordinal()), RobotState.turn(state, TurnEnum.RIGHT.ordinal())};
+            for (long candidate : next) {
+                if (!distances.containsKey(candidate)) {
+                    distances.put(candidate, distance + 1);
+                    queue.add(candidate);
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static double cacheGets(SimpleMeterRegistry meterRegistry, String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "robot.path").tag("result", result).functionCounter().count();
+    }
+
+}
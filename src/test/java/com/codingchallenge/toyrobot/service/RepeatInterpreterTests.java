@@ -0,0 +1,166 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.codingchallenge.toyrobot.domain.Table;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RepeatInterpreterTests {
+
+    private static final int SCRIPTS = 3_000;
+    private static final int MAX_DEPTH = 3;
+
+    /**
+     * Random scripts with nested blocks, folded or not, must report the same locations and end in the same state as
+     * every iteration of every block run in turn
+     */
+    @Test
+    void fastForwardMatchesIterationTest() {
+        Random random = new Random(25);
+        for (int i = 0; i < SCRIPTS; ++i) {
+            Table table = CommandOptimizerTests.randomTable(random);
+            StringBuilder script = new StringBuilder();
+            randomCommands(random, table, 0, script);
+            CommandProgram program = scan(script.toString(), null);
+            List<Long> expected = new ArrayList<>();
+            long expectedState = iterate(program, 0, program.length(), RobotState.EMPTY, table, expected);
+
+            CommandProgram folded = new CommandProgram();
+            if (random.nextBoolean()) {
+                folded = scan(script.toString(), table);
+            } else {
+                CommandOptimizer.optimize(program, table, folded);
+            }
+            for (CommandProgram run : new CommandProgram[]{program, folded}) {
+                ReportRuns runs = new ReportRuns();
+                long state = RepeatInterpreter.execute(run, RobotState.EMPTY, table, runs);
+                List<Long> actual = new ArrayList<>();
+                expand(runs, actual);
+                assertEquals(expected, actual, script.toString());
+                assertEquals(expected.size(), runs.reports());
+                assertEquals(expectedState, state, script.toString());
+            }
+        }
+    }
+
+    @Test
+    void largeCountTest() {
+        Table table = new Table(null, 5, 5, false);
+        // Stuck at the north edge after 4 iterations
+        ReportRuns runs = new ReportRuns();
+        long state = RepeatInterpreter.execute(scan("PLACE 0,0,NORTH REPEAT 1000000000 { MOVE LEFT MOVE RIGHT REPORT }",
+                table), RobotState.EMPTY, table, runs);
+        assertEquals(RobotState.of(0, 4, DirectionEnum.NORTH), state);
+        assertEquals(1_000_000_000L, runs.reports());
+        assertEquals(4, runs.size());
+        assertEquals(RobotState.of(0, 4, DirectionEnum.NORTH), runs.state(3));
+        assertEquals(1_000_000_000L - 3, runs.count(3));
+
+        // A cycle of 4 reports, repeated inside a cycle of 4 iterations
+        runs = new ReportRuns();
+        state = RepeatInterpreter.execute(scan("PLACE 1,1,EAST REPEAT 2147483647 { REPEAT 2147483647 { RIGHT REPORT } }",
+                table), RobotState.EMPTY, table, runs);
+        assertEquals((long) Integer.MAX_VALUE * Integer.MAX_VALUE, runs.reports());
+        assertTrue(runs.size() < 64, "" + runs.size());
+        // 2147483647^2 right turns are a whole number of full turns and one more
+        assertEquals(RobotState.of(1, 1, DirectionEnum.SOUTH), state);
+
+        // Walking the length of a table is not a cycle, every iteration runs
+        Table wide = new Table(null, 1_000_000, 1, false);
+        runs = new ReportRuns();
+        state = RepeatInterpreter.execute(scan("PLACE 0,0,EAST REPEAT 2000000 { MOVE } REPORT", wide), RobotState.EMPTY,
+                wide, runs);
+        assertEquals(RobotState.of(999_999, 0, DirectionEnum.EAST), state);
+        assertEquals(1, runs.reports());
+
+        assertThrows(IllegalArgumentException.class, () -> RepeatInterpreter.execute(
+                scan("PLACE 0,0,EAST REPEAT 2147483647 { REPEAT 2147483647 { REPEAT 2147483647 { REPORT } } }", table),
+                RobotState.EMPTY, table, new ReportRuns()));
+    }
+
+    /**
+     * Commands and blocks, placements are sometimes off the table
+     */
+    private static void randomCommands(Random random, Table table, int depth, StringBuilder script) {
+        for (int commands = random.nextInt(depth == 0 ? 8 : 5); commands >= 0; --commands) {
+            int command = random.nextInt(depth < MAX_DEPTH ? 9 : 8);
+            if (command < 3) {
+                script.append("MOVE ");
+            } else if (command == 3) {
+                script.append("LEFT ");
+            } else if (command == 4) {
+                script.append("RIGHT ");
+            } else if (command < 7) {
+                script.append("REPORT ");
+            } else if (command == 7) {
+                script.append("PLACE ").append(random.nextInt(table.getWidth() + 1)).append(',')
+                        .append(random.nextInt(table.getHeight() + 1)).append(',')
+                        .append(DirectionEnum.values()[random.nextInt(4)]).append(' ');
+            } else {
+                // Iterations of nested blocks multiply, the outer block runs the most
+                script.append("REPEAT ").append(random.nextInt(depth == 0 ? 300 : 12)).append(" {");
+                randomCommands(random, table, depth + 1, script);
+                script.append("} ");
+            }
+        }
+    }
+
+    /**
+     * Scanned into a program, folded when a table is given
+     */
+    private static CommandProgram scan(String script, Table table) {
+        CommandProgram program = new CommandProgram();
+        CommandOptimizer optimizer = table != null ? new CommandOptimizer(table, program) : null;
+        CommandScanner scanner = new CommandScanner(optimizer != null ? optimizer : program);
+        scanner.feed(script);
+        scanner.finish();
+        if (optimizer != null) {
+            optimizer.flush();
+        }
+        return program;
+    }
+
+    /**
+     * Every iteration of every block
+     */
+    private static long iterate(CommandProgram program, int from, int to, long state, Table table, List<Long> reports) {
+        int[] code = program.code();
+        int pc = from;
+        while (pc < to) {
+            int op = code[pc];
+            if (op == CommandProgram.OP_REPEAT) {
+                int end = code[pc + 2];
+                for (int iteration = 0; iteration < code[pc + 1]; ++iteration) {
+                    state = iterate(program, pc + 5, end, state, table, reports);
+                }
+                pc = end;
+            } else {
+                int next = pc + (op == CommandProgram.OP_PLACE ? 4 : 1);
+                state = CommandInterpreter.execute(program, pc, next, state, table, reports::add);
+                pc = next;
+            }
+        }
+        return state;
+    }
+
+    private static void expand(ReportRuns runs, List<Long> reports) {
+        for (int entry = 0; entry < runs.size(); ++entry) {
+            for (long count = 0; count < runs.count(entry); ++count) {
+                if (runs.block(entry) != null) {
+                    expand(runs.block(entry), reports);
+                } else {
+                    reports.add(runs.state(entry));
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.config.ReportJsonModule;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.IRobotLocation;
+import com.codingchallenge.toyrobot.domain.RobotLocationDTO;
+import com.codingchallenge.toyrobot.domain.RobotLocationMessageDTO;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ReportFragmentsTests {
+
+    @Autowired
+    private RobotCommandService robotCommandService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void internedReportsTest() {
+        long state = RobotState.of(4, 3, DirectionEnum.WEST);
+        IRobotLocation location = robotCommandService.convertStateToDTO(state);
+        assertSame(location, robotCommandService.convertStateToDTO(state));
+        assertSame(location, robotCommandService.convertLocationToDTO(RobotState.toLocation(state)));
+        // Off the default table reports are not interned
+        assertNotSame(robotCommandService.convertStateToDTO(RobotState.of(5, 3, DirectionEnum.WEST)),
+                robotCommandService.convertStateToDTO(RobotState.of(5, 3, DirectionEnum.WEST)));
+    }
+
+    @Test
+    void jsonTest() throws JsonProcessingException {
+        IRobotLocation location = robotCommandService.convertStateToDTO(RobotState.of(4, 3, DirectionEnum.WEST));
+        IRobotLocation offTable = robotCommandService.convertStateToDTO(RobotState.of(5, 3, DirectionEnum.WEST));
+        // Written as Jackson writes the DTOs reflectively
+        assertTrue(objectMapper.getRegisteredModuleIds().contains(ReportJsonModule.class.getName()));
+        ObjectMapper reflective = new ObjectMapper();
+        List<IRobotLocation> reports = Arrays.asList(location, offTable, robotCommandService.convertStateToDTO(RobotState.EMPTY),
+                new RobotLocationDTO(Integer.MAX_VALUE - 1, 0, DirectionEnum.SOUTH), new RobotLocationMessageDTO("\"quoted\""));
+        assertEquals(reflective.writeValueAsString(reports), objectMapper.writeValueAsString(reports));
+        assertEquals("[{\"x\":4,\"y\":3,\"direction\":\"WEST\"}]",
+                new String(objectMapper.writeValueAsBytes(reports.subList(0, 1)), StandardCharsets.UTF_8));
+    }
+
+}
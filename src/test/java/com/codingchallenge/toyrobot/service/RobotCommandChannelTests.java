@@ -0,0 +1,90 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.config.ApplicationExceptionHandler;
+import com.codingchallenge.toyrobot.controller.UnknownCommandException;
+import com.codingchallenge.toyrobot.domain.CommandAckDTO;
+import com.codingchallenge.toyrobot.domain.CommandEnum;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.IRobotLocation;
+import com.codingchallenge.toyrobot.domain.Robot;
+import com.codingchallenge.toyrobot.domain.RobotLocation;
+import com.codingchallenge.toyrobot.domain.RobotLocationDTO;
+import com.codingchallenge.toyrobot.domain.RobotLocationMessageDTO;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.codingchallenge.toyrobot.service.BinaryProtocolTests.BinaryCommands;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class RobotCommandChannelTests {
+
+    @Autowired
+    private RobotCommandService robotCommandService;
+
+    @Autowired
+    private RobotRegistry robotRegistry;
+
+    @Test
+    void textMessagesTest() {
+        RobotCommandChannel channel = new RobotCommandChannel(robotCommandService, robotRegistry, "channel");
+        CommandAckDTO ack = channel.execute("MOVE REPORT");
+        assertEquals(2, ack.getCommands());
+        assertEquals(ApplicationExceptionHandler.MISSING_ROBOT_MESSAGE,
+                ((RobotLocationMessageDTO) ack.getReports().get(0)).getMessage());
+        ack = channel.execute("PLACE 1,1,NORTH MOVE");
+        assertEquals(2, ack.getCommands());
+        assertTrue(ack.getReports().isEmpty());
+        ack = channel.execute("REPORT LEFT REPORT");
+        assertEquals(3, ack.getCommands());
+        assertDTO(ack.getReports().get(0), 1, 2, DirectionEnum.NORTH);
+        assertDTO(ack.getReports().get(1), 1, 2, DirectionEnum.WEST);
+        assertNull(ack.getError());
+        // Commands before a rejected command are executed, the rest of the message is discarded
+        ack = channel.execute("MOVE JUMP MOVE");
+        assertEquals(1, ack.getCommands());
+        assertEquals("Unsupported command [JUMP] at offset 5", ack.getError());
+        ack = channel.execute("REPORT");
+        assertDTO(ack.getReports().get(0), 0, 2, DirectionEnum.WEST);
+        robotRegistry.remove("channel");
+    }
+
+    @Test
+    void binaryMessagesTest() {
+        RobotCommandChannel channel = new RobotCommandChannel(robotCommandService, robotRegistry, "binary");
+        assertEquals(RobotState.EMPTY, BinaryProtocol.decodeReports(channel.execute(
+                new BinaryCommands().op(CommandEnum.REPORT).toByteArray()))[0]);
+        channel.execute(new BinaryCommands().place(1, 1, DirectionEnum.NORTH).op(CommandEnum.MOVE).toByteArray());
+        assertLocation(robotRegistry.find("binary"), 1, 2, DirectionEnum.NORTH);
+        // Malformed commands are rejected before any command is executed
+        assertThrows(UnknownCommandException.class, () -> channel.execute(
+                new BinaryCommands().op(CommandEnum.MOVE).op(CommandEnum.values().length).toByteArray()));
+        byte[] truncated = new BinaryCommands().op(CommandEnum.MOVE).place(0, 0, DirectionEnum.NORTH).toByteArray();
+        assertThrows(IllegalArgumentException.class, () -> channel.execute(
+                Arrays.copyOf(truncated, truncated.length - 1)));
+        assertLocation(robotRegistry.find("binary"), 1, 2, DirectionEnum.NORTH);
+        robotRegistry.remove("binary");
+    }
+
+    private void assertLocation(Robot robot, int x, int y, DirectionEnum direction) {
+        RobotLocation location = robotCommandService.reportLocation(robot);
+        assertEquals(x, location.getX());
+        assertEquals(y, location.getY());
+        assertEquals(direction, location.getDirection());
+    }
+
+    private static void assertDTO(IRobotLocation location, int x, int y, DirectionEnum direction) {
+        RobotLocationDTO dto = (RobotLocationDTO) location;
+        assertEquals(x, dto.getX());
+        assertEquals(y, dto.getY());
+        assertEquals(direction, dto.getDirection());
+    }
+
+}
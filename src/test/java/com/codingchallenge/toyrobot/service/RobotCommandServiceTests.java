@@ -1,20 +1,56 @@
 package com.codingchallenge.toyrobot.service;
 
 import com.codingchallenge.toyrobot.config.ApplicationExceptionHandler;
+import com.codingchallenge.toyrobot.controller.RobotController;
+import com.codingchallenge.toyrobot.controller.RobotNotFoundException;
 import com.codingchallenge.toyrobot.controller.UnknownCommandException;
+import com.codingchallenge.toyrobot.domain.CommandEnum;
 import com.codingchallenge.toyrobot.domain.CommandPlace;
 import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.Fleet;
 import com.codingchallenge.toyrobot.domain.IRobotLocation;
+import com.codingchallenge.toyrobot.domain.ObstacleMap;
+import com.codingchallenge.toyrobot.domain.RepeatedReportsDTO;
+import com.codingchallenge.toyrobot.domain.Robot;
+import com.codingchallenge.toyrobot.domain.RobotHistory;
+import com.codingchallenge.toyrobot.domain.RobotHistoryDTO;
 import com.codingchallenge.toyrobot.domain.RobotLocation;
 import com.codingchallenge.toyrobot.domain.RobotLocationDTO;
 import com.codingchallenge.toyrobot.domain.RobotLocationMessageDTO;
+import com.codingchallenge.toyrobot.domain.RobotPositionDTO;
+import com.codingchallenge.toyrobot.domain.RobotState;
+import com.codingchallenge.toyrobot.domain.Table;
+import com.codingchallenge.toyrobot.domain.TrajectoryDTO;
+import com.codingchallenge.toyrobot.domain.TurnEnum;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -26,16 +62,79 @@ class RobotCommandServiceTests {
     @Autowired
     private RobotCommandService robotCommandService;
 
+    @Autowired
+    private TableRegistry tableRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RobotRegistry robotRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private FleetService fleetService;
+
+    @Autowired
+    private RobotController robotController;
+
     @Test
     void placeRobotTest() {
-        AtomicReference<RobotLocation> stateFulRobotLocation = new AtomicReference<>();
+        Robot stateFulRobotLocation = newRobot("test");
         robotCommandService.placeRobot(stateFulRobotLocation, new CommandPlace(4, 3, DirectionEnum.SOUTH));
         assertLocation(stateFulRobotLocation, 4, 3, DirectionEnum.SOUTH);
     }
 
+    @Test
+    void independentRobotsTest() {
+        robotController.placeRobot("first", 0, 0, DirectionEnum.NORTH);
+        robotController.placeRobot("second", 3, 3, DirectionEnum.SOUTH);
+        robotController.moveForward("first");
+        robotController.moveForward("first");
+        robotController.turnRight("first");
+        robotController.turnLeft("second");
+        robotController.moveForward("second");
+        assertDTO(robotController.reportLocation("first"), 0, 2, DirectionEnum.EAST);
+        assertDTO(robotController.reportLocation("second"), 4, 3, DirectionEnum.EAST);
+        // Removing one robot leaves the other where it is
+        robotController.deleteRobot("second");
+        Assertions.assertThrows(RobotNotFoundException.class, () -> robotController.reportLocation("second"));
+        assertDTO(robotController.reportLocation("first"), 0, 2, DirectionEnum.EAST);
+        robotController.deleteRobot("first");
+    }
+
+    @Test
+    void unknownRobotTest() {
+        int robots = robotRegistry.size();
+        robotController.moveForward("unknown");
+        robotController.turnLeft("unknown");
+        robotController.turnRight("unknown");
+        // Commands other than a placement do not register the robot
+        assertNull(robotRegistry.find("unknown"));
+        assertEquals(robots, robotRegistry.size());
+        Assertions.assertThrows(RobotNotFoundException.class, () -> robotController.reportLocation("unknown"));
+    }
+
+    @Test
+    void defaultRobotTest() {
+        robotController.placeRobot(1, 0, DirectionEnum.EAST);
+        robotController.moveForward();
+        robotController.turnLeft();
+        robotController.moveForward("other");
+        assertDTO(robotController.reportLocation(), 2, 0, DirectionEnum.NORTH);
+        // The original endpoints command the robot with the default id
+        assertDTO(robotController.reportLocation(RobotRegistry.DEFAULT_ROBOT_ID), 2, 0, DirectionEnum.NORTH);
+        robotController.turnRight(RobotRegistry.DEFAULT_ROBOT_ID);
+        assertDTO(robotController.reportLocation(), 2, 0, DirectionEnum.EAST);
+        robotController.deleteRobot();
+        assertNull(robotRegistry.find(RobotRegistry.DEFAULT_ROBOT_ID));
+    }
+
     @Test
     void placeRobotOutsideRangeTest() {
-        AtomicReference<RobotLocation> stateFulRobotLocation = new AtomicReference<>();
+        Robot stateFulRobotLocation = newRobot("test");
         robotCommandService.placeRobot(stateFulRobotLocation, new CommandPlace(5, -1, DirectionEnum.NORTH));
         assertNull(robotCommandService.reportLocation(stateFulRobotLocation));
         robotCommandService.placeRobot(stateFulRobotLocation, new CommandPlace(-2, 10, DirectionEnum.NORTH));
@@ -44,7 +143,7 @@ class RobotCommandServiceTests {
 
     @Test
     void reportNotExistsDTOTest() {
-        AtomicReference<RobotLocation> stateFulRobotLocation = new AtomicReference<>();
+        Robot stateFulRobotLocation = newRobot("test");
         RobotLocation robotLocation = robotCommandService.reportLocation(stateFulRobotLocation);
         IRobotLocation location = robotCommandService.convertLocationToDTO(robotLocation);
         assertTrue(location instanceof RobotLocationMessageDTO);
@@ -53,7 +152,7 @@ class RobotCommandServiceTests {
 
     @Test
     void generalCommandsTest() {
-        AtomicReference<RobotLocation> stateFulRobotLocation = new AtomicReference<>();
+        Robot stateFulRobotLocation = newRobot("test");
         robotCommandService.placeRobot(stateFulRobotLocation, new CommandPlace(4, 3, DirectionEnum.NORTH));
         robotCommandService.moveForward(stateFulRobotLocation);
         assertLocation(stateFulRobotLocation, 4, 4, DirectionEnum.NORTH);
@@ -69,7 +168,7 @@ class RobotCommandServiceTests {
 
     @Test
     void outsideGridTest() {
-        AtomicReference<RobotLocation> stateFulRobotLocation = new AtomicReference<>();
+        Robot stateFulRobotLocation = newRobot("test");
         robotCommandService.placeRobot(stateFulRobotLocation, new CommandPlace(0, 0, DirectionEnum.SOUTH));
         robotCommandService.moveForward(stateFulRobotLocation);
         assertLocation(stateFulRobotLocation, 0, 0, DirectionEnum.SOUTH);
@@ -79,15 +178,15 @@ class RobotCommandServiceTests {
         assertLocation(stateFulRobotLocation, 0, 0, DirectionEnum.WEST);
         robotCommandService.turnRight(stateFulRobotLocation);
         assertLocation(stateFulRobotLocation, 0, 0, DirectionEnum.NORTH);
-        moveForwardSteps(stateFulRobotLocation, RobotCommandService.MAX_X + 1);
+        moveForwardSteps(stateFulRobotLocation, tableRegistry.getDefaultTable().getMaxX() + 1);
         assertLocation(stateFulRobotLocation, 0, 4, DirectionEnum.NORTH);
         robotCommandService.turnRight(stateFulRobotLocation);
         assertLocation(stateFulRobotLocation, 0, 4, DirectionEnum.EAST);
-        moveForwardSteps(stateFulRobotLocation, RobotCommandService.MAX_X + 1);
+        moveForwardSteps(stateFulRobotLocation, tableRegistry.getDefaultTable().getMaxX() + 1);
         assertLocation(stateFulRobotLocation, 4, 4, DirectionEnum.EAST);
         robotCommandService.turnRight(stateFulRobotLocation);
         assertLocation(stateFulRobotLocation, 4, 4, DirectionEnum.SOUTH);
-        moveForwardSteps(stateFulRobotLocation, RobotCommandService.MAX_X + 1);
+        moveForwardSteps(stateFulRobotLocation, tableRegistry.getDefaultTable().getMaxX() + 1);
         assertLocation(stateFulRobotLocation, 4, 0, DirectionEnum.SOUTH);
     }
 
@@ -101,6 +200,322 @@ class RobotCommandServiceTests {
         assertEquals(DirectionEnum.SOUTH, rDTO.getDirection());
     }
 
+    @Test
+    void batchCliProgramTest() {
+        List<IRobotLocation> locations = robotCommandService.executeBatchCommandsForRobot(
+                "REPORT PLACE 1,2,EAST MOVE MOVE LEFT MOVE REPORT PLACE 9,9,WEST REPORT MOVE MOVE MOVE MOVE REPORT");
+        assertEquals(4, locations.size());
+        assertTrue(locations.get(0) instanceof RobotLocationMessageDTO);
+        assertDTO(locations.get(1), 3, 3, DirectionEnum.NORTH);
+        // Off grid placement is ignored
+        assertDTO(locations.get(2), 3, 3, DirectionEnum.NORTH);
+        assertDTO(locations.get(3), 3, 4, DirectionEnum.NORTH);
+    }
+
+    @Test
+    void streamBatchCliTest() throws Exception {
+        StringBuilder commands = new StringBuilder("PLACE 0,0,NORTH ");
+        for (int cnt = 0; cnt < 10000; ++cnt) {
+            commands.append("MOVE RIGHT MOVE LEFT REPORT\n");
+        }
+        List<IRobotLocation> expected = robotCommandService.executeBatchCommandsForRobot(commands.toString());
+        List<IRobotLocation> locations = new ArrayList<>();
+        robotCommandService.streamBatchCommandsForRobot(new ByteArrayInputStream(commands.toString().getBytes(StandardCharsets.US_ASCII)),
+                tableRegistry.getDefaultTable(), locations::add, () -> { });
+        assertEquals(expected.size(), locations.size());
+        for (int cnt = 0; cnt < expected.size(); ++cnt) {
+            assertEquals(expected.get(cnt).toString(), locations.get(cnt).toString());
+        }
+        assertDTO(locations.get(locations.size() - 1), 4, 4, DirectionEnum.NORTH);
+    }
+
+    @Test
+    void trajectoryTest() throws IOException {
+        Table table = tableRegistry.privateTable(5, 5);
+        ObstacleMap obstacles = ObstacleMap.allocate(5, 5);
+        obstacles.block(2, 1);
+        table.setObstacles(obstacles);
+        String commands = "MOVE PLACE 0,0,NORTH MOVE RIGHT MOVE MOVE LEFT MOVE REPORT PLACE 9,9,NORTH "
+                + "LEFT MOVE MOVE MOVE RIGHT MOVE MOVE MOVE MOVE MOVE REPORT";
+        TrajectoryDTO trajectory = robotCommandService.analyseBatchCommandsForRobot(
+                new ByteArrayInputStream(commands.getBytes(StandardCharsets.US_ASCII)), table);
+        assertEquals(21, trajectory.getCommands());
+        assertEquals(6, trajectory.getMoves());
+        // Into the obstacle, twice off the west edge and three times off the north edge
+        assertEquals(6, trajectory.getIgnoredMoves());
+        assertEquals(1, trajectory.getIgnoredPlacements());
+        assertEquals(2, trajectory.getReports());
+        assertEquals(7, trajectory.getVisits());
+        assertEquals(7, trajectory.getVisitedCells());
+        int[][] runs = {{0, 0, 1}, {0, 1, 2}, {0, 2, 2}, {0, 3, 1}, {0, 4, 1}};
+        assertEquals(runs.length, trajectory.getVisited().size());
+        for (int run = 0; run < runs.length; ++run) {
+            assertTrue(Arrays.equals(runs[run], trajectory.getVisited().get(run)), Arrays.toString(trajectory.getVisited().get(run)));
+        }
+        List<IRobotLocation> locations = robotCommandService.executeBatchCommandsForRobot(commands, table);
+        assertEquals(locations.get(locations.size() - 1).toString(), trajectory.getLocation().toString());
+        assertDTO(trajectory.getLocation(), 0, 4, DirectionEnum.NORTH);
+    }
+
+    @Test
+    void repeatBatchTest() throws IOException {
+        String commands = "PLACE 0,0,NORTH REPEAT 1000000000 { MOVE LEFT MOVE RIGHT REPORT } REPORT";
+        List<IRobotLocation> locations = robotCommandService.executeBatchCommandsForRobot(commands);
+        assertEquals(4, locations.size());
+        assertDTO(locations.get(0), 0, 1, DirectionEnum.NORTH);
+        assertDTO(locations.get(2), 0, 3, DirectionEnum.NORTH);
+        // Stuck at the north edge, the report after the block is the same too
+        RepeatedReportsDTO repeated = (RepeatedReportsDTO) locations.get(3);
+        assertEquals(1_000_000_000L - 2, repeated.getCount());
+        assertDTO(repeated.getReports().get(0), 0, 4, DirectionEnum.NORTH);
+        assertEquals("{\"count\":999999998,\"reports\":[{\"x\":0,\"y\":4,\"direction\":\"NORTH\"}]}",
+                objectMapper.writeValueAsString(repeated));
+
+        // Blocks split across chunks of the stream run once they end
+        StringBuilder stream = new StringBuilder("PLACE 0,0,NORTH REPEAT 3 {");
+        for (int cnt = 0; cnt < 10000; ++cnt) {
+            stream.append(" RIGHT");
+        }
+        stream.append(" REPORT } ").append(commands);
+        List<IRobotLocation> streamed = new ArrayList<>();
+        robotCommandService.streamBatchCommandsForRobot(new ByteArrayInputStream(stream.toString().getBytes(StandardCharsets.US_ASCII)),
+                tableRegistry.getDefaultTable(), streamed::add, () -> { });
+        // Runs are not merged across the chunks the stream runs in
+        assertEquals(runLengths(robotCommandService.executeBatchCommandsForRobot(stream.toString())), runLengths(streamed));
+        Assertions.assertThrows(UnknownCommandException.class, () -> robotCommandService.analyseBatchCommandsForRobot(
+                new ByteArrayInputStream(commands.getBytes(StandardCharsets.US_ASCII)), tableRegistry.getDefaultTable()));
+    }
+
+    @Test
+    void batchCliTableSizeTest() {
+        Table table = tableRegistry.privateTable(Integer.MAX_VALUE, 3);
+        List<IRobotLocation> locations = robotCommandService.executeBatchCommandsForRobot(
+                "PLACE 2147483645,2,EAST MOVE REPORT MOVE REPORT LEFT MOVE REPORT", table);
+        assertDTO(locations.get(0), Integer.MAX_VALUE - 1, 2, DirectionEnum.EAST);
+        assertDTO(locations.get(1), Integer.MAX_VALUE - 1, 2, DirectionEnum.EAST);
+        assertDTO(locations.get(2), Integer.MAX_VALUE - 1, 2, DirectionEnum.NORTH);
+    }
+
+    @Test
+    void sharedTableOccupancyTest() {
+        Table table = tableRegistry.createSharedTable("occupancy", 1_000_000_000, 1_000_000_000, false);
+        Robot first = new Robot("first", table);
+        Robot second = new Robot("second", table);
+        robotCommandService.placeRobot(first, new CommandPlace(63, 10, DirectionEnum.EAST));
+        robotCommandService.placeRobot(second, new CommandPlace(999_999_999, 999_999_999, DirectionEnum.SOUTH));
+        assertEquals(1, robotCommandService.findRobots(table, 63, 10, 63, 10).size());
+        // Moving across a bucket boundary re-indexes the robot
+        robotCommandService.moveForward(first);
+        assertEquals(0, robotCommandService.findRobots(table, 63, 10, 63, 10).size());
+        RobotPositionDTO found = (RobotPositionDTO) robotCommandService.findRobots(table, 64, 10, 64, 10).get(0);
+        assertEquals("first", found.getId());
+        assertEquals(2, robotCommandService.findRobots(table, 0, 0, table.getMaxX(), table.getMaxY()).size());
+        robotCommandService.deleteRobot(second);
+        assertEquals(1, robotCommandService.findRobots(table, 0, 0, table.getMaxX(), table.getMaxY()).size());
+    }
+
+    @Test
+    void collisionTest() {
+        Table table = tableRegistry.createSharedTable("collisions", 5, 5, true);
+        Robot first = new Robot("first", table);
+        Robot second = new Robot("second", table);
+        robotCommandService.placeRobot(first, new CommandPlace(1, 1, DirectionEnum.EAST));
+        // Placement on an occupied location is ignored
+        robotCommandService.placeRobot(second, new CommandPlace(1, 1, DirectionEnum.WEST));
+        assertNull(robotCommandService.reportLocation(second));
+        robotCommandService.placeRobot(second, new CommandPlace(3, 1, DirectionEnum.WEST));
+        robotCommandService.moveForward(first);
+        // Move into the other robot is ignored
+        robotCommandService.moveForward(first);
+        assertLocation(first, 2, 1, DirectionEnum.EAST);
+        robotCommandService.moveForward(second);
+        assertLocation(second, 3, 1, DirectionEnum.WEST);
+        robotCommandService.deleteRobot(second);
+        robotCommandService.moveForward(first);
+        assertLocation(first, 3, 1, DirectionEnum.EAST);
+    }
+
+    @Test
+    void concurrentCollisionTest() throws Exception {
+        int threads = 8;
+        Table table = tableRegistry.createSharedTable("concurrent-collisions", 4, 4, true);
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> robots = new ArrayList<>();
+            for (int t = 0; t < threads; ++t) {
+                Robot robot = new Robot("robot" + t, table);
+                int row = t % table.getHeight();
+                int column = t / table.getHeight();
+                robots.add(executor.submit(() -> {
+                    robotCommandService.placeRobot(robot, new CommandPlace(column, row, DirectionEnum.NORTH));
+                    barrier.await();
+                    // Robots patrol the crowded table, turning right when blocked
+                    for (int cnt = 0; cnt < 20000; ++cnt) {
+                        RobotLocation before = robotCommandService.reportLocation(robot);
+                        robotCommandService.moveForward(robot);
+                        RobotLocation after = robotCommandService.reportLocation(robot);
+                        if (before.getX() == after.getX() && before.getY() == after.getY()) {
+                            robotCommandService.turnRight(robot);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> robot : robots) {
+                robot.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // Every robot is still on its own location
+        List<IRobotLocation> found = robotCommandService.findRobots(table, 0, 0, table.getMaxX(), table.getMaxY());
+        assertEquals(threads, found.size());
+        assertEquals(threads, found.stream()
+                .map(location -> ((RobotPositionDTO) location).getX() + "," + ((RobotPositionDTO) location).getY())
+                .distinct().count());
+    }
+
+    @Test
+    void metricsTest() {
+        Timer moves = meterRegistry.get("robot.command").tag("command", "move").timer();
+        Counter ignored = meterRegistry.get("robot.move.ignored").counter();
+        Counter parseErrors = meterRegistry.get("robot.batch.parse.errors").counter();
+        DistributionSummary batchSize = meterRegistry.get("robot.batch.size").summary();
+        long movesBefore = moves.count();
+        double ignoredBefore = ignored.count();
+        double parseErrorsBefore = parseErrors.count();
+        long batchesBefore = batchSize.count();
+
+        Robot robot = newRobot("metrics");
+        robotCommandService.placeRobot(robot, new CommandPlace(0, 3, DirectionEnum.NORTH));
+        moveForwardSteps(robot, 2);
+        assertEquals(movesBefore + 3, moves.count());
+        assertEquals(ignoredBefore + 2, ignored.count());
+
+        robotCommandService.executeBatchCommandsForRobot("PLACE 0,0,NORTH MOVE REPORT");
+        assertEquals(batchesBefore + 1, batchSize.count());
+        Assertions.assertThrows(UnknownCommandException.class,
+                () -> robotCommandService.executeBatchCommandsForRobot("PLACE 0,0,NORTH JUMP"));
+        assertEquals(parseErrorsBefore + 1, parseErrors.count());
+    }
+
+    @Test
+    void batchesTest() {
+        List<List<IRobotLocation>> batches = robotCommandService.executeBatchesForRobots(Arrays.asList(
+                "PLACE 0,0,NORTH MOVE REPORT", "MOVE REPORT", "PLACE 1,2,EAST MOVE MOVE LEFT MOVE REPORT LEFT REPORT"),
+                tableRegistry.getDefaultTable());
+        assertEquals(3, batches.size());
+        assertDTO(batches.get(0).get(0), 0, 1, DirectionEnum.NORTH);
+        assertEquals(ApplicationExceptionHandler.MISSING_ROBOT_MESSAGE,
+                ((RobotLocationMessageDTO) batches.get(1).get(0)).getMessage());
+        assertDTO(batches.get(2).get(0), 3, 3, DirectionEnum.NORTH);
+        assertDTO(batches.get(2).get(1), 3, 3, DirectionEnum.WEST);
+        Assertions.assertThrows(UnknownCommandException.class, () -> robotCommandService.executeBatchesForRobots(
+                Arrays.asList("PLACE 0,0,NORTH", "JUMP"), tableRegistry.getDefaultTable()));
+    }
+
+    @Test
+    void batchCacheTest() {
+        String script = "PLACE 0,0,NORTH MOVE MOVE RIGHT MOVE REPORT LEFT REPORT";
+        double hitsBefore = cacheGets("hit");
+        double missesBefore = cacheGets("miss");
+        robotCommandService.executeBatchCommandsForRobot(script);
+        // Same program in another case and spacing
+        List<IRobotLocation> locations = robotCommandService.executeBatchCommandsForRobot(
+                script.toLowerCase().replace(" ", "\n "));
+        assertEquals(hitsBefore + 1, cacheGets("hit"));
+        assertEquals(missesBefore + 1, cacheGets("miss"));
+        assertDTO(locations.get(0), 1, 2, DirectionEnum.EAST);
+        // Another table layout is another entry
+        List<IRobotLocation> larger = robotCommandService.executeBatchCommandsForRobot(script,
+                tableRegistry.privateTable(10, 10));
+        assertEquals(missesBefore + 2, cacheGets("miss"));
+        assertDTO(larger.get(0), 1, 2, DirectionEnum.EAST);
+        assertDTO(larger.get(1), 1, 2, DirectionEnum.NORTH);
+        // The binary encoding of the program shares the entry
+        BinaryProtocolTests.BinaryCommands commands = new BinaryProtocolTests.BinaryCommands()
+                .place(0, 0, DirectionEnum.NORTH).op(CommandEnum.MOVE).op(CommandEnum.MOVE).op(CommandEnum.RIGHT)
+                .op(CommandEnum.MOVE).op(CommandEnum.REPORT).op(CommandEnum.LEFT).op(CommandEnum.REPORT);
+        robotCommandService.executeBinaryBatchForRobot(commands.toByteArray(), tableRegistry.getDefaultTable());
+        assertEquals(hitsBefore + 2, cacheGets("hit"));
+        // Private copies of a table share its layout version, new obstacles are a new version
+        Table layout = new Table(null, 5, 5, false);
+        layout.setObstacles(ObstacleMap.allocate(5, 5));
+        robotCommandService.executeBatchCommandsForRobot(script, tableRegistry.privateTable(layout));
+        robotCommandService.executeBatchCommandsForRobot(script, tableRegistry.privateTable(layout));
+        assertEquals(missesBefore + 3, cacheGets("miss"));
+        assertEquals(hitsBefore + 3, cacheGets("hit"));
+        layout.setObstacles(ObstacleMap.allocate(5, 5));
+        robotCommandService.executeBatchCommandsForRobot(script, tableRegistry.privateTable(layout));
+        assertEquals(missesBefore + 4, cacheGets("miss"));
+    }
+
+    @Test
+    void fleetTest() {
+        // Larger than a slice so broadcasts are split between the pool threads
+        Fleet fleet = fleetService.createFleet("fleet", tableRegistry.privateTable(10, 10), 200_000, 4);
+        fleetService.place(fleet, null, new CommandPlace(0, 0, DirectionEnum.NORTH));
+        fleetService.place(fleet, 1, new CommandPlace(5, 5, DirectionEnum.EAST));
+        fleetService.turn(fleet, 2, TurnEnum.RIGHT);
+        fleetService.placeRobot(fleet, 199_999, new CommandPlace(9, 9, DirectionEnum.SOUTH));
+        for (int i = 0; i < 6; ++i) {
+            fleetService.move(fleet, null);
+        }
+        assertDTO(fleetService.reportRobot(fleet, 0), 0, 6, DirectionEnum.NORTH);
+        assertDTO(fleetService.reportRobot(fleet, 50_000), 9, 5, DirectionEnum.EAST);
+        assertDTO(fleetService.reportRobot(fleet, 100_000), 6, 0, DirectionEnum.EAST);
+        assertDTO(fleetService.reportRobot(fleet, 149_999), 6, 0, DirectionEnum.EAST);
+        assertDTO(fleetService.reportRobot(fleet, 150_000), 0, 6, DirectionEnum.NORTH);
+        assertDTO(fleetService.reportRobot(fleet, 199_999), 9, 3, DirectionEnum.SOUTH);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> fleetService.move(fleet, 4));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> fleetService.reportRobot(fleet, 200_000));
+        assertTrue(fleet == fleetService.removeFleet("fleet"));
+    }
+
+    @Test
+    void obstacleTest() throws IOException {
+        ObstacleMap obstacles = ObstacleMap.allocate(5, 5);
+        obstacles.block(1, 2);
+        // Round trip through the binary format, as a memory mapped file and as an upload
+        Path file = Files.createTempFile("obstacles", ".bin");
+        try {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                obstacles.writeTo(channel);
+            }
+            assertTrue(ObstacleMap.map(file).isBlocked(1, 2));
+            ByteArrayOutputStream upload = new ByteArrayOutputStream();
+            obstacles.writeTo(Channels.newChannel(upload));
+            obstacles = ObstacleMap.read(Channels.newChannel(new ByteArrayInputStream(upload.toByteArray())), 5, 5);
+            // A header not matching the table is rejected before the map is allocated or read
+            byte[] uploaded = upload.toByteArray();
+            Assertions.assertThrows(IllegalArgumentException.class, () ->
+                    ObstacleMap.read(Channels.newChannel(new ByteArrayInputStream(uploaded)), 4, 5));
+            ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(ObstacleMap.MAGIC).putInt(Integer.MAX_VALUE).putInt(Integer.MAX_VALUE);
+            Assertions.assertThrows(IllegalArgumentException.class, () ->
+                    ObstacleMap.read(Channels.newChannel(new ByteArrayInputStream(header.array())), 5, 5));
+        } finally {
+            Files.delete(file);
+        }
+        assertTrue(obstacles.isBlocked(1, 2));
+        assertEquals(false, obstacles.isBlocked(2, 1));
+
+        Table table = tableRegistry.createSharedTable("obstacles", 5, 5, false);
+        table.setObstacles(obstacles);
+        Robot robot = new Robot("robot", table);
+        robotCommandService.placeRobot(robot, new CommandPlace(1, 2, DirectionEnum.NORTH));
+        assertNull(robotCommandService.reportLocation(robot));
+        robotCommandService.placeRobot(robot, new CommandPlace(1, 0, DirectionEnum.NORTH));
+        moveForwardSteps(robot, 3);
+        assertLocation(robot, 1, 1, DirectionEnum.NORTH);
+
+        List<IRobotLocation> locations = robotCommandService.executeBatchCommandsForRobot(
+                "PLACE 1,2,NORTH REPORT PLACE 0,2,EAST MOVE REPORT", tableRegistry.privateTable(table));
+        assertEquals(ApplicationExceptionHandler.MISSING_ROBOT_MESSAGE, ((RobotLocationMessageDTO) locations.get(0)).getMessage());
+        assertDTO(locations.get(1), 0, 2, DirectionEnum.EAST);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> table.setObstacles(ObstacleMap.allocate(4, 5)));
+    }
 
     @Test
     void batchCliParseErrorTest() {
@@ -110,14 +525,139 @@ class RobotCommandServiceTests {
     }
 
 
-    private void assertLocation(AtomicReference<RobotLocation> stateFulRobotLocation, int x, int y, DirectionEnum direction) {
+    @Test
+    void historyTest() {
+        Robot robot = newRobot("test");
+        assertNull(robotCommandService.historyAt(robot, null, null));
+        robot.setHistory(new RobotHistory(2, System.currentTimeMillis()));
+        robotCommandService.placeRobot(robot, new CommandPlace(1, 1, DirectionEnum.NORTH));
+        robotCommandService.moveForward(robot);
+        robotCommandService.turnRight(robot);
+        robotCommandService.moveForward(robot);
+        assertHistory(robotCommandService.historyAt(robot, null, null), 4, 2, 2, DirectionEnum.EAST);
+        assertHistory(robotCommandService.historyAt(robot, 2L, null), 2, 1, 2, DirectionEnum.NORTH);
+        assertHistory(robotCommandService.historyAt(robot, 3L, null), 3, 1, 2, DirectionEnum.EAST);
+        RobotHistoryDTO created = robotCommandService.historyAt(robot, 0L, null);
+        assertEquals(ApplicationExceptionHandler.MISSING_ROBOT_MESSAGE,
+                ((RobotLocationMessageDTO) created.getLocation()).getMessage());
+        assertHistory(robotCommandService.historyAt(robot, null, Long.MAX_VALUE), 4, 2, 2, DirectionEnum.EAST);
+    }
+
+    @Test
+    void concurrentMovesAreNotLostTest() throws Exception {
+        int threads = tableRegistry.getDefaultTable().getMaxY();
+        Robot robot = newRobot("stress");
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 2000; ++round) {
+                robotCommandService.placeRobot(robot, new CommandPlace(0, 0, DirectionEnum.NORTH));
+                // Each thread moves once so exactly max y moves reach the top edge, lost or doubled moves would not
+                List<Future<?>> moves = new ArrayList<>();
+                for (int t = 0; t < threads; ++t) {
+                    moves.add(executor.submit(() -> {
+                        barrier.await();
+                        robotCommandService.moveForward(robot);
+                        return null;
+                    }));
+                }
+                for (Future<?> move : moves) {
+                    move.get(10, TimeUnit.SECONDS);
+                }
+                assertLocation(robot, 0, tableRegistry.getDefaultTable().getMaxY(), DirectionEnum.NORTH);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentTurnsAreNotLostTest() throws Exception {
+        int threads = 6;
+        int turnsPerThread = 20001;
+        Robot robot = newRobot("stress");
+        robotCommandService.placeRobot(robot, new CommandPlace(2, 2, DirectionEnum.NORTH));
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> turns = new ArrayList<>();
+            for (int t = 0; t < threads; ++t) {
+                turns.add(executor.submit(() -> {
+                    barrier.await();
+                    for (int cnt = 0; cnt < turnsPerThread; ++cnt) {
+                        robotCommandService.turnRight(robot);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> turn : turns) {
+                turn.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // 6 * 20001 right turns is a half rotation past a multiple of 4, a lost turn changes the direction
+        assertLocation(robot, 2, 2, DirectionEnum.SOUTH);
+    }
+
+    private void assertLocation(Robot stateFulRobotLocation, int x, int y, DirectionEnum direction) {
         RobotLocation robotLocation = robotCommandService.reportLocation(stateFulRobotLocation);
         assertEquals(x, robotLocation.getX());
         assertEquals(y, robotLocation.getY());
         assertEquals(direction, robotLocation.getDirection());
     }
 
-    private void moveForwardSteps(AtomicReference<RobotLocation> robotLocationInstance, int steps) {
+    private void assertDTO(IRobotLocation location, int x, int y, DirectionEnum direction) {
+        RobotLocationDTO rDTO = (RobotLocationDTO) location;
+        assertEquals(x, rDTO.getX());
+        assertEquals(y, rDTO.getY());
+        assertEquals(direction, rDTO.getDirection());
+    }
+
+    private static void assertHistory(RobotHistoryDTO history, long command, int x, int y, DirectionEnum direction) {
+        assertEquals(command, history.getCommand());
+        assertEquals(4, history.getCommands());
+        RobotLocationDTO location = (RobotLocationDTO) history.getLocation();
+        assertEquals(x, location.getX());
+        assertEquals(y, location.getY());
+        assertEquals(direction, location.getDirection());
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "robot.batch").tag("result", result).functionCounter().count();
+    }
+
+    private Robot newRobot(String id) {
+        return new Robot(id, tableRegistry.getDefaultTable());
+    }
+
+    /**
+     * Runs of identical reports as count x report, merged however they were split
+     */
+    private static List<String> runLengths(List<IRobotLocation> locations) {
+        List<String> runs = new ArrayList<>();
+        String last = null;
+        long count = 0;
+        for (IRobotLocation location : locations) {
+            long reports = 1;
+            if (location instanceof RepeatedReportsDTO) {
+                reports = ((RepeatedReportsDTO) location).getCount();
+                location = ((RepeatedReportsDTO) location).getReports().get(0);
+            }
+            if (!location.toString().equals(last)) {
+                if (last != null) {
+                    runs.add(count + " x " + last);
+                }
+                last = location.toString();
+                count = 0;
+            }
+            count += reports;
+        }
+        runs.add(count + " x " + last);
+        return runs;
+    }
+
+    private void moveForwardSteps(Robot robotLocationInstance, int steps) {
         for (int cnt = 0; cnt <= steps; ++cnt) {
             robotCommandService.moveForward(robotLocationInstance);
         }
@@ -0,0 +1,174 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.domain.CommandPlace;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.Robot;
+import com.codingchallenge.toyrobot.domain.RobotLocation;
+import com.codingchallenge.toyrobot.domain.Table;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RobotPersistenceTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoverJournalTest() throws Exception {
+        Services services = start(RobotJournal.Fsync.GROUP);
+        Table table = services.tableRegistry.createSharedTable("shared", 10, 10, true);
+        services.robotRegistry.register("first", table);
+        Robot first = services.robotRegistry.find("first");
+        services.robotCommandService.placeRobot(first, new CommandPlace(1, 1, DirectionEnum.NORTH));
+        services.robotCommandService.moveForward(first);
+        services.robotCommandService.turnRight(first);
+        Robot robot = services.robotRegistry.getOrCreate("default");
+        services.robotCommandService.placeRobot(robot, new CommandPlace(4, 4, DirectionEnum.SOUTH));
+        Robot deleted = services.robotRegistry.getOrCreate("deleted");
+        services.robotCommandService.placeRobot(deleted, new CommandPlace(0, 0, DirectionEnum.SOUTH));
+        services.robotCommandService.deleteRobot(services.robotRegistry.remove("deleted"));
+        services.stop();
+
+        Services recovered = start(RobotJournal.Fsync.GROUP);
+        assertLocation(recovered, "first", 1, 2, DirectionEnum.EAST);
+        assertLocation(recovered, "default", 4, 4, DirectionEnum.SOUTH);
+        assertNull(recovered.robotRegistry.find("deleted"));
+        // Cell claims and occupancy of the shared table are rebuilt
+        Table recoveredTable = recovered.tableRegistry.findSharedTable("shared");
+        assertSame(recovered.robotRegistry.find("first"), recoveredTable.getCells().holder(1, 2));
+        assertEquals(1, recovered.robotCommandService.findRobots(recoveredTable, 0, 0, 9, 9).size());
+        recovered.stop();
+    }
+
+    @Test
+    void snapshotTest() throws Exception {
+        Services services = start(RobotJournal.Fsync.ALWAYS);
+        Robot robot = services.robotRegistry.getOrCreate("robot");
+        services.robotCommandService.placeRobot(robot, new CommandPlace(0, 0, DirectionEnum.NORTH));
+        services.persistence.snapshot();
+        services.robotCommandService.moveForward(robot);
+        services.persistence.snapshot();
+        services.robotCommandService.moveForward(robot);
+        // Registrations of an id are journaled in the order they replace each other
+        Table table = services.tableRegistry.createSharedTable("replacing", 3, 3, false);
+        services.robotRegistry.getOrCreate("replaced");
+        services.robotRegistry.register("replaced", table);
+        services.stop();
+        // Only the latest snapshot and the journal written since are kept
+        assertEquals(1, count("snapshot-"));
+
+        Services recovered = start(RobotJournal.Fsync.ALWAYS);
+        assertLocation(recovered, "robot", 0, 2, DirectionEnum.NORTH);
+        assertEquals("replacing", recovered.robotRegistry.find("replaced").getTable().getId());
+        recovered.stop();
+    }
+
+    @Test
+    void incompleteRecordTest() throws Exception {
+        Services services = start(RobotJournal.Fsync.NEVER);
+        Robot robot = services.robotRegistry.getOrCreate("robot");
+        services.robotCommandService.placeRobot(robot, new CommandPlace(3, 3, DirectionEnum.WEST));
+        services.stop();
+        // A crash part way through appending a state record
+        try (Stream<Path> files = Files.list(directory)) {
+            Path segment = files.filter(path -> path.getFileName().toString().startsWith("journal-"))
+                    .max(Path::compareTo).get();
+            Files.write(segment, new byte[]{RobotJournal.STATE, 0, 0}, StandardOpenOption.APPEND);
+        }
+
+        Services recovered = start(RobotJournal.Fsync.NEVER);
+        assertLocation(recovered, "robot", 3, 3, DirectionEnum.WEST);
+        recovered.stop();
+    }
+
+    @Test
+    void failedWriteTest() throws Exception {
+        Services services = start(RobotJournal.Fsync.ALWAYS);
+        Robot robot = services.robotRegistry.getOrCreate("robot");
+        services.robotCommandService.placeRobot(robot, new CommandPlace(0, 0, DirectionEnum.NORTH));
+        // The next segment already exists so starting it fails
+        long segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            Path current = files.filter(path -> path.getFileName().toString().startsWith("journal-"))
+                    .max(Path::compareTo).get();
+            String name = current.getFileName().toString();
+            segment = Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length()));
+        }
+        Files.createFile(RobotJournal.segmentPath(directory, segment + 1));
+        assertThrows(IllegalStateException.class, services.persistence::snapshot);
+        // Later changes are not acknowledged as journaled
+        assertThrows(IllegalStateException.class, () -> services.robotCommandService.moveForward(robot));
+        assertThrows(IllegalStateException.class, () -> services.robotRegistry.getOrCreate("other"));
+        services.stop();
+    }
+
+    private long count(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+
+    private static void assertLocation(Services services, String robotId, int x, int y, DirectionEnum direction) {
+        RobotLocation location = services.robotCommandService.reportLocation(services.robotRegistry.find(robotId));
+        assertEquals(x, location.getX());
+        assertEquals(y, location.getY());
+        assertEquals(direction, location.getDirection());
+    }
+
+    private Services start(RobotJournal.Fsync fsync) throws IOException {
+        RobotProperties robotProperties = new RobotProperties();
+        robotProperties.getJournal().setEnabled(true);
+        robotProperties.getJournal().setDirectory(directory.toString());
+        robotProperties.getJournal().setFsync(fsync);
+        return new Services(robotProperties);
+    }
+
+    /**
+     * Services of one application run
+     */
+    private static class Services {
+        final RobotJournal journal;
+        final TableRegistry tableRegistry;
+        final RobotRegistry robotRegistry;
+        final CommandAudit audit;
+        final BatchExecutor batchExecutor;
+        final RobotCommandService robotCommandService;
+        final RobotPersistence persistence;
+
+        Services(RobotProperties robotProperties) throws IOException {
+            journal = new RobotJournal(robotProperties);
+            tableRegistry = new TableRegistry(robotProperties, journal);
+            robotRegistry = new RobotRegistry(tableRegistry, journal, robotProperties);
+            audit = new CommandAudit(robotProperties);
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            RobotMetrics metrics = new RobotMetrics(meterRegistry, robotRegistry, audit, robotProperties);
+            batchExecutor = new BatchExecutor(robotProperties);
+            robotCommandService = new RobotCommandService(tableRegistry, audit, metrics, journal,
+                    new BatchResultCache(robotProperties, meterRegistry), batchExecutor,
+                    new ReportFragments(robotProperties));
+            persistence = new RobotPersistence(robotProperties, journal, tableRegistry, robotRegistry);
+            persistence.recover();
+        }
+
+        void stop() throws Exception {
+            persistence.close();
+            journal.close();
+            audit.close();
+            batchExecutor.close();
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.codingchallenge.toyrobot.service;
+
+import com.codingchallenge.toyrobot.config.RobotProperties;
+import com.codingchallenge.toyrobot.controller.UnknownCommandException;
+import com.codingchallenge.toyrobot.domain.BehaviourEnum;
+import com.codingchallenge.toyrobot.domain.CommandPlace;
+import com.codingchallenge.toyrobot.domain.DirectionEnum;
+import com.codingchallenge.toyrobot.domain.Robot;
+import com.codingchallenge.toyrobot.domain.RobotLocation;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class SimulationSchedulerTests {
+
+    @Autowired
+    private RobotCommandService robotCommandService;
+
+    @Autowired
+    private TableRegistry tableRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private BatchExecutor batchExecutor;
+
+    @Autowired
+    private RobotMetrics metrics;
+
+    @Test
+    void programsAndBehavioursTest() throws InterruptedException {
+        SimulationScheduler simulation = newScheduler(new RobotProperties());
+        Timer ticks = meterRegistry.get("robot.simulation.tick").timer();
+        long ticksBefore = ticks.count();
+
+        Robot program = newRobot("program");
+        simulation.runProgram(program, "PLACE 0,0,NORTH MOVE MOVE RIGHT MOVE REPORT", false);
+        Robot patrol = newRobot("patrol");
+        robotCommandService.placeRobot(patrol, new CommandPlace(2, 0, DirectionEnum.NORTH));
+        simulation.runBehaviour(patrol, BehaviourEnum.PATROL);
+        Robot[] walkers = new Robot[100];
+        for (int i = 0; i < walkers.length; ++i) {
+            walkers[i] = new Robot("walker" + i, tableRegistry.privateTable(3, 3));
+            robotCommandService.placeRobot(walkers[i], new CommandPlace(1, 1, DirectionEnum.NORTH));
+            simulation.runBehaviour(walkers[i], BehaviourEnum.RANDOM_WALK);
+        }
+        assertThrows(UnknownCommandException.class, () -> simulation.runProgram(program, "MOVE JUMP", false));
+        assertThrows(UnknownCommandException.class, () -> simulation.runProgram(program, "REPEAT 2 { MOVE }", false));
+
+        for (int tick = 0; tick < 6; ++tick) {
+            assertEquals(102, simulation.tick());
+        }
+        assertLocation(program, 1, 2, DirectionEnum.EAST);
+        // Four moves, a move ignored at the table edge and the first turn of turning around
+        assertLocation(patrol, 2, 4, DirectionEnum.EAST);
+        // The finished program stops being simulated
+        assertEquals(101, simulation.tick());
+        assertEquals(101, simulation.size());
+        assertTrue(simulation.stop("patrol"));
+        assertEquals(100, simulation.tick());
+        // The second turn on tick 7, then stopped
+        assertLocation(patrol, 2, 4, DirectionEnum.SOUTH);
+        int moved = 0;
+        for (Robot walker : walkers) {
+            RobotLocation location = robotCommandService.reportLocation(walker);
+            assertTrue(location.getX() <= 2 && location.getY() <= 2);
+            moved += location.getX() != 1 || location.getY() != 1 || location.getDirection() != DirectionEnum.NORTH ? 1 : 0;
+        }
+        assertTrue(moved > 0);
+        assertEquals(6 * 102 + 101 + 100, simulation.getSteps());
+        assertEquals(8, simulation.getTicks());
+        assertEquals(ticksBefore + 8, ticks.count());
+        simulation.close();
+    }
+
+    @Test
+    void tickCountTest() throws InterruptedException {
+        RobotProperties properties = new RobotProperties();
+        properties.getSimulation().setMaxTicksPerRequest(3);
+        SimulationScheduler simulation = newScheduler(properties);
+        Robot walker = new Robot("counted", tableRegistry.privateTable(3, 3));
+        robotCommandService.placeRobot(walker, new CommandPlace(1, 1, DirectionEnum.NORTH));
+        simulation.runBehaviour(walker, BehaviourEnum.RANDOM_WALK);
+        // Tick requests are bounded by the maximum ticks per request
+        assertEquals(3, simulation.tick(3));
+        assertEquals(3, simulation.getTicks());
+        assertThrows(IllegalArgumentException.class, () -> simulation.tick(0));
+        assertThrows(IllegalArgumentException.class, () -> simulation.tick(-1));
+        assertThrows(IllegalArgumentException.class, () -> simulation.tick(4));
+        assertThrows(IllegalArgumentException.class, () -> simulation.tick(Integer.MAX_VALUE));
+        assertEquals(3, simulation.getTicks());
+        simulation.close();
+
+        properties.getSimulation().setMaxTicksPerRequest(0);
+        assertThrows(IllegalArgumentException.class, () -> newScheduler(properties));
+    }
+
+    /**
+     * Paused so ticks are only advanced here, slices small enough for ticks to be split between the pool threads
+     */
+    private SimulationScheduler newScheduler(RobotProperties properties) {
+        properties.getSimulation().setTickRate(0);
+        properties.getSimulation().setSliceLength(16);
+        return new SimulationScheduler(robotCommandService, batchExecutor, metrics, properties);
+    }
+
+    private void assertLocation(Robot robot, int x, int y, DirectionEnum direction) {
+        RobotLocation location = robotCommandService.reportLocation(robot);
+        assertEquals(x, location.getX());
+        assertEquals(y, location.getY());
+        assertEquals(direction, location.getDirection());
+    }
+
+    private Robot newRobot(String id) {
+        return new Robot(id, tableRegistry.getDefaultTable());
+    }
+
+}